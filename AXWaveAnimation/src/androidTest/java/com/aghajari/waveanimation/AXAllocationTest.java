@@ -0,0 +1,231 @@
+package com.aghajari.waveanimation;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.aghajari.waveanimation.core.AXLevelOfDetail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Draws both views for thousands of frames and fails if a steady-state frame allocates.
+ * Only the UI thread is counted, the changes between the frames (setState, setAmplitude, ...)
+ * happen outside of the counted onDraw.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AXAllocationTest {
+
+    private static final int FRAMES = 3000;
+    private static final int WARM_UP = 300;
+    private static final int SIZE = 400;
+
+    private static final int SCENARIO_AMPLITUDE = 0;
+    private static final int SCENARIO_STATES = 1;
+    private static final int SCENARIO_REMOVE = 2;
+    private static final int SCENARIO_STUB = 3;
+    private static final int SCENARIO_QUALITY = 4;
+
+    @Test
+    public void waveViewAmplitude() {
+        runWaveView(SCENARIO_AMPLITUDE, false);
+    }
+
+    @Test
+    public void waveViewStates() {
+        runWaveView(SCENARIO_STATES, false);
+    }
+
+    @Test
+    public void waveViewPrepareToRemove() {
+        runWaveView(SCENARIO_REMOVE, false);
+    }
+
+    @Test
+    public void waveViewStub() {
+        runWaveView(SCENARIO_STUB, false);
+    }
+
+    @Test
+    public void waveViewQuality() {
+        runWaveView(SCENARIO_QUALITY, false);
+    }
+
+    @Test
+    public void waveViewBackgroundSimulation() {
+        runWaveView(SCENARIO_STATES, true);
+    }
+
+    @Test
+    public void lineWaveViewAmplitude() {
+        runLineWaveView(SCENARIO_AMPLITUDE, false);
+    }
+
+    @Test
+    public void lineWaveViewStates() {
+        runLineWaveView(SCENARIO_STATES, false);
+    }
+
+    @Test
+    public void lineWaveViewStub() {
+        runLineWaveView(SCENARIO_STUB, false);
+    }
+
+    @Test
+    public void lineWaveViewQuality() {
+        runLineWaveView(SCENARIO_QUALITY, false);
+    }
+
+    @Test
+    public void lineWaveViewBackgroundSimulation() {
+        runLineWaveView(SCENARIO_STATES, true);
+    }
+
+    private void runWaveView(final int scenario, final boolean background) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                final AXWaveView view = new AXWaveView(context);
+                view.setRandomSeed(1);
+                view.getFrameClock().setFixedFrameTime(AXFrameClock.DEFAULT_FRAME_TIME);
+                view.setBackgroundSimulationEnabled(background);
+                if (scenario == SCENARIO_QUALITY) enableQuality(view);
+                layout(view);
+
+                view.addState(1, AXWeavingState.createRadial(1, SIZE, 0xff5B79F5, 0xff0976E3));
+                view.addState(2, AXWeavingState.createRadial(2, SIZE, 0xffF55B79, 0xffE30976));
+
+                drawFrames(view, new Frame() {
+                    @Override
+                    public void before(int frame) {
+                        switch (scenario) {
+                            case SCENARIO_STATES:
+                                if (frame % 60 == 0) view.setState(frame % 120 == 0 ? 1 : 2);
+                                break;
+                            case SCENARIO_REMOVE:
+                                if (frame % 90 == 0) view.prepareToRemove(frame % 180 == 0);
+                                break;
+                            case SCENARIO_STUB:
+                                if (frame == 0) view.setAmplitude(-1);
+                                break;
+                        }
+                        if (scenario != SCENARIO_STUB && frame % 10 == 0) view.setAmplitude(amplitude(frame));
+                    }
+
+                    @Override
+                    public void draw(Canvas canvas) {
+                        view.onDraw(canvas);
+                    }
+                }, "AXWaveView scenario " + scenario);
+            }
+        });
+    }
+
+    private void runLineWaveView(final int scenario, final boolean background) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                final AXLineWaveView view = new AXLineWaveView(context);
+                view.setRandomSeed(1);
+                view.getFrameClock().setFixedFrameTime(AXFrameClock.DEFAULT_FRAME_TIME);
+                view.setBackgroundSimulationEnabled(background);
+                if (scenario == SCENARIO_QUALITY) enableQuality(view);
+                layout(view);
+
+                view.addState(1, AXLineWeavingState.createLinear(1, SIZE, 0xff5B79F5, 0xff0976E3, 0xff5B79F5));
+                view.addState(2, AXLineWeavingState.createLinear(2, SIZE, 0xffF55B79, 0xffE30976, 0xffF55B79));
+
+                drawFrames(view, new Frame() {
+                    @Override
+                    public void before(int frame) {
+                        switch (scenario) {
+                            case SCENARIO_STATES:
+                                if (frame % 60 == 0) view.setState(frame % 120 == 0 ? 1 : 2);
+                                break;
+                            case SCENARIO_STUB:
+                                if (frame == 0) view.setAmplitude(-1);
+                                break;
+                        }
+                        if (scenario != SCENARIO_STUB && frame % 10 == 0) view.setAmplitude(amplitude(frame));
+                    }
+
+                    @Override
+                    public void draw(Canvas canvas) {
+                        view.onDraw(canvas);
+                    }
+                }, "AXLineWaveView scenario " + scenario);
+            }
+        });
+    }
+
+    private interface Frame {
+        void before(int frame);
+
+        void draw(Canvas canvas);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void drawFrames(View view, Frame frame, String name) {
+        Bitmap bitmap = Bitmap.createBitmap(view.getWidth(), view.getHeight(), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        int allocatingFrames = 0;
+        int firstFrame = -1;
+        long allocations = 0;
+
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < FRAMES; i++) {
+                frame.before(i);
+                long before = Debug.getThreadAllocCount();
+                frame.draw(canvas);
+                long count = Debug.getThreadAllocCount() - before;
+
+                if (i >= WARM_UP && count > 0) {
+                    if (firstFrame == -1) firstFrame = i;
+                    allocatingFrames++;
+                    allocations += count;
+                }
+            }
+        } finally {
+            Debug.stopAllocCounting();
+            bitmap.recycle();
+        }
+
+        if (allocatingFrames > 0) {
+            fail(name + ": " + allocatingFrames + " of " + (FRAMES - WARM_UP)
+                    + " steady-state frames allocated " + allocations + " objects, first at frame " + firstFrame);
+        }
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+    }
+
+    private static void enableQuality(AXWaveView view) {
+        view.setMetricsEnabled(true);
+        view.setQualityGovernor(new AXQualityGovernor());
+        view.setLevelOfDetail(new AXLevelOfDetail());
+    }
+
+    private static void enableQuality(AXLineWaveView view) {
+        view.setMetricsEnabled(true);
+        view.setQualityGovernor(new AXQualityGovernor());
+        view.setLevelOfDetail(new AXLevelOfDetail());
+    }
+
+    private static float amplitude(int frame) {
+        return (frame * 37 % 100) / 100f * AXWaveView.MAX_AMPLITUDE;
+    }
+}
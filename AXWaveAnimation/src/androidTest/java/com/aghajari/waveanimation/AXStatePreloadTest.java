@@ -0,0 +1,105 @@
+package com.aghajari.waveanimation;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the frame that draws a new state for the first time, with and without preloading.
+ * Times are logged under the "AXStatePreload" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AXStatePreloadTest {
+
+    private static final int RUNS = 25;
+    private static final int SIZE = 400;
+
+    private int colorSeed;
+
+    @Test
+    public void firstTransitionFrame() {
+        final long[] cold = new long[RUNS];
+        final long[] preloaded = new long[RUNS];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+                for (int i = 0; i < RUNS; i++) {
+                    cold[i] = transition(context, canvas, false);
+                    preloaded[i] = transition(context, canvas, true);
+                }
+                bitmap.recycle();
+            }
+        });
+
+        long coldMedian = median(cold);
+        long preloadedMedian = median(preloaded);
+        Log.i("AXStatePreload", "first transition frame (median of " + RUNS + "): cold "
+                + coldMedian / 1000 + "us, preloaded " + preloadedMedian / 1000 + "us");
+    }
+
+    @Test
+    public void preloadCreatesShaders() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                AXWaveView view = createView(InstrumentationRegistry.getInstrumentation().getTargetContext());
+                AXWeavingState state = nextState();
+                view.addState(1, state);
+                assertNull(state.shader);
+                view.preloadStates();
+                assertNotNull(state.shader);
+                assertTrue(state.width > 0);
+            }
+        });
+    }
+
+    private long transition(Context context, Canvas canvas, boolean preload) {
+        AXWaveView view = createView(context);
+        view.draw(canvas);
+        view.addState(1, nextState());
+        if (preload) view.preloadStates();
+
+        view.setState(1);
+        long start = System.nanoTime();
+        view.draw(canvas);
+        return System.nanoTime() - start;
+    }
+
+    private AXWaveView createView(Context context) {
+        AXWaveView view = new AXWaveView(context);
+        view.setRandomSeed(1);
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        return view;
+    }
+
+    /**
+     * new colors every time, so the shader cache can't serve the cold transitions
+     */
+    private AXWeavingState nextState() {
+        colorSeed++;
+        return AXWeavingState.createRadial(1, 200, 0xff000000 | colorSeed, 0xff0976E3);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
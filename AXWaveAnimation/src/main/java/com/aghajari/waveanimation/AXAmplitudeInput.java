@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free and allocation-free amplitude handoff.
+ * Any thread (e.g. an AudioRecord thread) can {@link #offer(float)} readings,
+ * the UI thread {@link #drain()}s them once per frame and gets a single conflated value.
+ * Negative readings (stub mode) are passed through as the latest value.
+ */
+public class AXAmplitudeInput {
+
+    /**
+     * use the latest reading of the frame
+     */
+    public final static int CONFLATE_LATEST = 0;
+
+    /**
+     * use the highest reading of the frame
+     */
+    public final static int CONFLATE_PEAK = 1;
+
+    /**
+     * use the average of the readings of the frame
+     */
+    public final static int CONFLATE_MEAN = 2;
+
+    private final static long EMPTY = pack(Float.NaN, Float.NEGATIVE_INFINITY);
+
+    // latest reading (high bits) and peak (low bits)
+    private final AtomicLong levels = new AtomicLong(EMPTY);
+    // sum of the readings (high bits) and number of readings (low bits)
+    private final AtomicLong sums = new AtomicLong(0);
+
+    // bits of the previous reading, swapped in one step so concurrent offers can't both miss a change
+    private final AtomicInteger lastOffered = new AtomicInteger(Float.floatToIntBits(Float.NaN));
+    private int policy = CONFLATE_LATEST;
+
+    private float value;
+    private float peak;
+    private float mean;
+    private int count;
+
+    /**
+     * publish a new reading, safe to call from any thread
+     * @return true if the reading is different from the previous one
+     */
+    public boolean offer(float value) {
+        long current, next;
+        do {
+            current = levels.get();
+            float peak = Float.intBitsToFloat((int) current);
+            if (value >= 0 && !(value <= peak)) peak = value;
+            next = pack(value, peak);
+        } while (!levels.compareAndSet(current, next));
+
+        if (value >= 0) {
+            do {
+                current = sums.get();
+                float sum = Float.intBitsToFloat((int) (current >>> 32)) + value;
+                next = ((long) Float.floatToRawIntBits(sum) << 32) | (((int) current + 1) & 0xFFFFFFFFL);
+            } while (!sums.compareAndSet(current, next));
+        }
+
+        int bits = Float.floatToIntBits(value);
+        return lastOffered.getAndSet(bits) != bits;
+    }
+
+    /**
+     * @return true if there are readings which are not drained yet
+     */
+    public boolean hasPending() {
+        return levels.get() != EMPTY || sums.get() != 0;
+    }
+
+    /**
+     * collect the readings published since the last drain, UI thread only
+     * @return true if there was any new reading, the result is available by {@link #getValue()}
+     */
+    public boolean drain() {
+        long levels = this.levels.getAndSet(EMPTY);
+        long sums = this.sums.getAndSet(0);
+        // the two slots are not updated atomically, a reading can show up in only one of them
+        if (levels == EMPTY && sums == 0) return false;
+
+        count = (int) sums;
+        float sum = Float.intBitsToFloat((int) (sums >>> 32));
+        float latest = levels == EMPTY ? sum / count : Float.intBitsToFloat((int) (levels >>> 32));
+        peak = levels == EMPTY ? latest : Float.intBitsToFloat((int) levels);
+        mean = count > 0 ? sum / count : latest;
+        if (peak < 0) peak = latest;
+
+        if (latest < 0) {
+            value = latest;
+        } else {
+            switch (policy) {
+                case CONFLATE_PEAK:
+                    value = peak;
+                    break;
+                case CONFLATE_MEAN:
+                    value = mean;
+                    break;
+                default:
+                    value = latest;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return conflated value of the last drain
+     */
+    public float getValue() {
+        return value;
+    }
+
+    public float getPeak() {
+        return peak;
+    }
+
+    public float getMean() {
+        return mean;
+    }
+
+    /**
+     * @return number of readings conflated by the last drain
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public int getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @param policy {@link #CONFLATE_LATEST}, {@link #CONFLATE_PEAK} or {@link #CONFLATE_MEAN}
+     */
+    public void setPolicy(int policy) {
+        this.policy = policy;
+    }
+
+    private static long pack(float high, float low) {
+        return ((long) Float.floatToRawIntBits(high) << 32) | (Float.floatToRawIntBits(low) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads the microphone through {@link AudioRecord#read(ByteBuffer, int)} into a direct buffer,
+ * the frames are analyzed in place without copying them into the heap.
+ */
+public class AXAudioRecordSource implements AXAudioSource {
+
+    private final AudioRecord record;
+    private final ByteBuffer buffer;
+    private final int channels;
+    private final int encoding;
+
+    /**
+     * @param bufferSize size of the read buffer in bytes
+     */
+    public AXAudioRecordSource(@NonNull AudioRecord record, int bufferSize) {
+        this.record = record;
+        this.channels = record.getChannelCount();
+        this.encoding = record.getAudioFormat();
+        if (encoding != AudioFormat.ENCODING_PCM_16BIT && encoding != AudioFormat.ENCODING_PCM_FLOAT) {
+            throw new IllegalArgumentException("unsupported encoding " + encoding);
+        }
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+    }
+
+    @Override
+    public int read(@NonNull AXPcmInput input) {
+        int bytes = record.read(buffer, buffer.capacity());
+        if (bytes <= 0) return bytes;
+        input.write(buffer, 0, bytes, channels, encoding);
+        return bytes / ((encoding == AudioFormat.ENCODING_PCM_FLOAT ? 4 : 2) * channels);
+    }
+
+    public AudioRecord getAudioRecord() {
+        return record;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the wave simulation (drawables and weaving states) on {@link AXSimulationThread},
+ * or in the shared step of an {@link AXWaveTicker}, where the shapes can be updated in the batch
+ * of the ticker.
+ * The step writes into a back {@link Frame} and publishes it through a triple buffer,
+ * onDraw only reads the latest published frame and emits the paths.
+ * Inputs are written by the UI thread while the worker is idle,
+ * the elapsed time of the frames drawn during a step is passed to the next one.
+ */
+abstract class AXBackgroundSimulation implements AXWaveTicker.BatchStep {
+
+    private final static int INDEX = 3;
+    private final static int FRESH = 4;
+
+    private final View view;
+    // set by the view while it schedules frames
+    private final AtomicBoolean animating;
+    // null to step on the worker
+    private final AXWaveTicker ticker;
+    private final Frame[] frames = {new Frame(), new Frame(), new Frame()};
+    // index of the middle frame, FRESH if the worker published it after the last acquire
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int front = 0;
+    private int back = 2;
+    private volatile boolean busy;
+    private volatile Runnable idleAction;
+    private float pendingDt;
+    // index of the first instance added to the batch
+    private int batchStart;
+
+    // inputs of the next step
+    float dt;
+    float amplitude;
+    float speedScale;
+    float left, top, right, bottom;
+    boolean buildPaths;
+    Object[] drawables = new Object[4];
+    int drawableCount;
+    AXWeavingState currentState;
+    AXWeavingState previousState;
+
+    AXBackgroundSimulation(View view, AtomicBoolean animating, AXWaveTicker ticker) {
+        this.view = view;
+        this.animating = animating;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return ticker that runs the steps, null if they run on {@link AXSimulationThread}
+     */
+    AXWaveTicker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * advance the simulation by {@link #dt} and write the results into the frame,
+     * called on the simulation thread
+     */
+    protected abstract void step(Frame frame);
+
+    /**
+     * add the shapes to the batch that can be updated there, with their inputs and bounds,
+     * the per-frame hooks of the drawables run here
+     */
+    protected abstract void addShapes(AXBatchSimulation batch);
+
+    /**
+     * same as {@link #step(Frame)} with the points of the shapes added since the start index
+     * already computed by the batch
+     */
+    protected abstract void finishStep(Frame frame, AXBatchSimulation batch, int start);
+
+    @Override
+    public final void run() {
+        runStep(null);
+    }
+
+    @Override
+    public final void beginBatch(AXBatchSimulation batch) {
+        batchStart = batch.size();
+        addShapes(batch);
+    }
+
+    @Override
+    public final void endBatch(AXBatchSimulation batch) {
+        runStep(batch);
+    }
+
+    /**
+     * @param batch null if the shapes weren't added to a batch
+     */
+    private void runStep(AXBatchSimulation batch) {
+        boolean published = false;
+        try {
+            Frame frame = frames[back];
+            frame.reset();
+            if (batch != null) {
+                finishStep(frame, batch, batchStart);
+            } else {
+                step(frame);
+            }
+            frame.valid = true;
+            back = middle.getAndSet(back | FRESH) & INDEX;
+            published = true;
+        } finally {
+            busy = false;
+            postIdleAction();
+            // show the fresh frame without waiting for the next vsync, an idle or hidden view stays paused
+            if (published && animating.get()) view.postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * run the action on the main thread once the worker is idle,
+     * replaces the action that hasn't run yet. it may run twice if the step finishes meanwhile
+     */
+    void runWhenIdle(Runnable action) {
+        idleAction = action;
+        if (!busy) postIdleAction();
+    }
+
+    private void postIdleAction() {
+        Runnable action = idleAction;
+        if (action == null) return;
+        idleAction = null;
+        // the view may be detached, view.post wouldn't run it before the next attach
+        MainHandler.INSTANCE.post(action);
+    }
+
+    /**
+     * @return latest published frame, null if there is no frame yet. UI thread only
+     */
+    Frame acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        Frame frame = frames[front];
+        return frame.valid ? frame : null;
+    }
+
+    /**
+     * @return true while the worker is running a step, the inputs must not be touched
+     */
+    boolean isBusy() {
+        return busy;
+    }
+
+    /**
+     * add the elapsed time of the current frame
+     * @return true if the worker is idle and the inputs of the next step can be written
+     */
+    boolean prepare(float dt) {
+        pendingDt += dt;
+        if (busy) return false;
+        this.dt = pendingDt;
+        return true;
+    }
+
+    /**
+     * @param count number of drawables to simulate from the start of the list
+     */
+    void setDrawables(List<?> list, int count) {
+        if (drawables.length < count + 1) {
+            drawables = new Object[count + 1];
+        }
+        drawableCount = 0;
+        for (int i = 0; i < count; i++) {
+            drawables[drawableCount++] = list.get(i);
+        }
+    }
+
+    void addDrawable(Object drawable) {
+        if (drawableCount == drawables.length) {
+            drawables = Arrays.copyOf(drawables, drawableCount + 1);
+        }
+        drawables[drawableCount++] = drawable;
+    }
+
+    /**
+     * run a step with the inputs written since {@link #prepare(float)}
+     */
+    void start() {
+        pendingDt = 0;
+        busy = true;
+        if (ticker != null) {
+            ticker.requestStep(this);
+        } else {
+            AXSimulationThread.getInstance().post(this);
+        }
+    }
+
+    /**
+     * load the transform of the state from the frame,
+     * falls back to the current values of the state if the frame doesn't have it. UI thread only
+     */
+    void loadMatrix(Frame frame, AXWeavingState state) {
+        if (frame != null && frame.loadMatrix(state)) return;
+        // the worker acquires the shader of the states it updates
+        if (!busy) state.acquireShader();
+        state.loadMatrix();
+    }
+
+    /**
+     * Snapshot of a simulation step, the path points of the drawables and the shader transforms.
+     * Arrays are reused between the steps.
+     */
+    static final class Frame {
+
+        private AXWaveDrawable[] owners = new AXWaveDrawable[4];
+        private float[][] points = new float[4][];
+        private int[] blobCounts = new int[4];
+        private int count;
+
+        private final AXWeavingState[] states = new AXWeavingState[2];
+        private final float[] transforms = new float[6];
+        private int stateCount;
+
+        boolean valid;
+
+        void reset() {
+            count = 0;
+            stateCount = 0;
+        }
+
+        /**
+         * copy the points computed by the drawable
+         */
+        void addPoints(AXWaveDrawable owner) {
+            addPoints(owner, owner.getPoints());
+        }
+
+        /**
+         * copy the points of the drawable computed elsewhere (e.g. by a batch)
+         */
+        void addPoints(AXWaveDrawable owner, float[] src) {
+            if (count == owners.length) {
+                owners = Arrays.copyOf(owners, count * 2);
+                points = Arrays.copyOf(points, count * 2);
+                blobCounts = Arrays.copyOf(blobCounts, count * 2);
+            }
+            float[] dst = points[count];
+            if (dst == null || dst.length < src.length) {
+                dst = points[count] = new float[src.length];
+            }
+            System.arraycopy(src, 0, dst, 0, owner.getShape().getPointCount());
+            blobCounts[count] = owner.getBlobCount();
+            owners[count++] = owner;
+        }
+
+        /**
+         * build the path of the drawable from its points in this frame
+         * @return false if the drawable wasn't simulated in this frame
+         */
+        boolean emitPath(AXWaveDrawable owner) {
+            for (int i = 0; i < count; i++) {
+                if (owners[i] == owner) {
+                    owner.emitPath(points[i], blobCounts[i]);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * copy the transform of the state
+         */
+        void addState(AXWeavingState state) {
+            if (stateCount == states.length) return;
+            states[stateCount] = state;
+            transforms[stateCount * 3] = state.x;
+            transforms[stateCount * 3 + 1] = state.y;
+            transforms[stateCount * 3 + 2] = state.scale;
+            stateCount++;
+        }
+
+        boolean loadMatrix(AXWeavingState state) {
+            for (int i = 0; i < stateCount; i++) {
+                if (states[i] == state) {
+                    state.loadMatrix(transforms[i * 3], transforms[i * 3 + 1], transforms[i * 3 + 2]);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class MainHandler {
+        static final Handler INSTANCE = new Handler(Looper.getMainLooper());
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.view.Choreographer;
+
+/**
+ * Animation clock based on the Choreographer frame timestamps.
+ * Every {@link #tick()} returns the real elapsed time (ms) since the previous frame,
+ * so the animations run at the same speed on 60, 90 and 120 Hz displays.
+ * Frames are requested through the shared {@link AXWaveTicker} by default.
+ */
+public class AXFrameClock implements Choreographer.FrameCallback {
+
+    /**
+     * frame time of the first frame (ms)
+     */
+    public final static float DEFAULT_FRAME_TIME = 16f;
+
+    /**
+     * huge deltas (after a pause or a long jank) get clamped to this value (ms)
+     */
+    public final static float MAX_FRAME_TIME = 100f;
+
+    public interface Callback {
+        void onFrame(AXFrameClock clock);
+    }
+
+    private final Callback callback;
+    private boolean scheduled;
+
+    private long frameTimeNanos = -1;
+    private long lastFrameTimeNanos = -1;
+    private float delta = DEFAULT_FRAME_TIME;
+    private float maxFrameTime = MAX_FRAME_TIME;
+    private float fixedFrameTime = 0;
+    private double virtualTime = 0;
+    private int frameInterval = 1;
+    private int skippedFrames = 0;
+    private AXWaveTicker ticker = AXWaveTicker.getInstance();
+    private long frameStartNanos = -1;
+    private long frameCost = 0;
+
+    public AXFrameClock(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * request the next vsync, {@link Callback#onFrame(AXFrameClock)} will be called on it
+     */
+    public void scheduleFrame() {
+        if (scheduled) return;
+        scheduled = true;
+        post();
+    }
+
+    /**
+     * cancel the requested vsync
+     */
+    public void cancelFrame() {
+        if (!scheduled) return;
+        scheduled = false;
+        if (ticker != null) {
+            ticker.remove(this);
+        } else {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        skippedFrames = 0;
+    }
+
+    private void post() {
+        if (ticker != null) {
+            ticker.post(this);
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public boolean isFrameScheduled() {
+        return scheduled;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (++skippedFrames < frameInterval) {
+            post();
+            return;
+        }
+        skippedFrames = 0;
+        scheduled = false;
+        this.frameTimeNanos = frameTimeNanos;
+        if (callback != null) callback.onFrame(this);
+    }
+
+    /**
+     * advance the clock to the current frame
+     * @return elapsed time since the previous frame (ms)
+     */
+    public float tick() {
+        frameStartNanos = nanoTime();
+        if (fixedFrameTime > 0) {
+            frameTimeNanos = -1;
+            delta = fixedFrameTime;
+            virtualTime += delta;
+            return delta;
+        }
+
+        long now = frameTimeNanos != -1 ? frameTimeNanos : nanoTime();
+        frameTimeNanos = -1;
+
+        if (lastFrameTimeNanos == -1) {
+            delta = DEFAULT_FRAME_TIME;
+        } else if (now <= lastFrameTimeNanos) {
+            // same frame, or a vsync timestamp older than the last fallback time
+            delta = 0;
+            return delta;
+        } else {
+            delta = Math.min((now - lastFrameTimeNanos) / 1_000_000f, maxFrameTime);
+        }
+        lastFrameTimeNanos = now;
+        return delta;
+    }
+
+    /**
+     * end of the frame started by the last {@link #tick()},
+     * the ticker spreads frames over several vsyncs by their costs
+     */
+    public void endFrame() {
+        if (frameStartNanos == -1) return;
+        frameCost = nanoTime() - frameStartNanos;
+        frameStartNanos = -1;
+    }
+
+    /**
+     * @return cost of the last frame (ns)
+     */
+    public long getFrameCost() {
+        return frameCost;
+    }
+
+    /**
+     * forget the previous frame, next {@link #tick()} returns {@link #DEFAULT_FRAME_TIME}
+     */
+    public void reset() {
+        frameTimeNanos = -1;
+        lastFrameTimeNanos = -1;
+        delta = DEFAULT_FRAME_TIME;
+    }
+
+    /**
+     * @return elapsed time of the last tick (ms)
+     */
+    public float getDelta() {
+        return delta;
+    }
+
+    /**
+     * @return monotonic time of the last tick (ms)
+     */
+    public long getTimeMillis() {
+        if (fixedFrameTime > 0) return (long) virtualTime;
+        return (lastFrameTimeNanos == -1 ? nanoTime() : lastFrameTimeNanos) / 1_000_000;
+    }
+
+    public float getMaxFrameTime() {
+        return maxFrameTime;
+    }
+
+    public void setMaxFrameTime(float maxFrameTime) {
+        this.maxFrameTime = maxFrameTime;
+    }
+
+    public float getFixedFrameTime() {
+        return fixedFrameTime;
+    }
+
+    /**
+     * run on a virtual clock, every {@link #tick()} advances the time by the giving value (ms)
+     * no matter when the frame is drawn, so the same seed gives the same frames.
+     * 0 to go back to the real frame times
+     */
+    public void setFixedFrameTime(float fixedFrameTime) {
+        this.fixedFrameTime = Math.max(fixedFrameTime, 0);
+        virtualTime = 0;
+    }
+
+    public int getFrameInterval() {
+        return frameInterval;
+    }
+
+    /**
+     * run the callback on every n-th vsync only, 1 for every vsync.
+     * the deltas still follow the real frame times
+     */
+    public void setFrameInterval(int frameInterval) {
+        this.frameInterval = Math.max(frameInterval, 1);
+    }
+
+    public AXWaveTicker getTicker() {
+        return ticker;
+    }
+
+    /**
+     * request frames through the giving ticker, null for a Choreographer callback of its own
+     */
+    public void setTicker(AXWaveTicker ticker) {
+        if (ticker == this.ticker) return;
+        boolean wasScheduled = scheduled;
+        cancelFrame();
+        this.ticker = ticker;
+        if (wasScheduled) scheduleFrame();
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+}
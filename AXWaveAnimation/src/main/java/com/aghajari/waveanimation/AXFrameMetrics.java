@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+/**
+ * Frame costs of a single wave view: update, path-build and draw time histograms,
+ * drawn passes, state transitions, idle frames and frames over budget.
+ * Recorded on the UI thread without allocations, read it on the UI thread for consistent values.
+ * Views only record while metrics are enabled, see {@link AXMetricsRegistry}.
+ */
+public class AXFrameMetrics {
+
+    /**
+     * default frame budget, 60 fps (ns)
+     */
+    public final static long DEFAULT_BUDGET = 16_666_667L;
+
+    public interface Listener {
+        /**
+         * called at the end of every recorded frame (UI thread), times are in ns
+         */
+        void onFrame(AXFrameMetrics metrics, long updateTime, long buildTime, long drawTime, int passes);
+    }
+
+    private final String name;
+    final AXHistogram update = new AXHistogram();
+    final AXHistogram build = new AXHistogram();
+    final AXHistogram draw = new AXHistogram();
+    final AXHistogram frame = new AXHistogram();
+
+    long frames;
+    long passes;
+    long stateTransitions;
+    long idleFrames;
+    long overBudgetFrames;
+    long budget = DEFAULT_BUDGET;
+    Listener listener;
+
+    private long frameStart;
+    private long mark;
+    private long updateTime;
+    private long buildTime;
+    private int framePasses;
+
+    public AXFrameMetrics(String name) {
+        this.name = name;
+    }
+
+    void beginFrame() {
+        frameStart = mark = nanoTime();
+        updateTime = buildTime = 0;
+        framePasses = 0;
+    }
+
+    /**
+     * end of the simulation step
+     */
+    void markUpdate() {
+        long now = nanoTime();
+        updateTime = now - mark;
+        mark = now;
+    }
+
+    /**
+     * end of the path building
+     */
+    void markBuild() {
+        long now = nanoTime();
+        buildTime = now - mark;
+        mark = now;
+    }
+
+    void pass() {
+        framePasses++;
+    }
+
+    void stateTransition() {
+        stateTransitions++;
+    }
+
+    void endFrame(boolean idle) {
+        long now = nanoTime();
+        long drawTime = now - mark;
+        long frameTime = now - frameStart;
+
+        update.record(updateTime);
+        build.record(buildTime);
+        draw.record(drawTime);
+        frame.record(frameTime);
+        frames++;
+        passes += framePasses;
+        if (idle) idleFrames++;
+        if (frameTime > budget) overBudgetFrames++;
+
+        if (listener != null) listener.onFrame(this, updateTime, buildTime, drawTime, framePasses);
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AXHistogram getUpdateTime() {
+        return update;
+    }
+
+    public AXHistogram getBuildTime() {
+        return build;
+    }
+
+    public AXHistogram getDrawTime() {
+        return draw;
+    }
+
+    /**
+     * @return time of the whole onDraw
+     */
+    public AXHistogram getFrameTime() {
+        return frame;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return number of drawn passes (shaders) of all frames
+     */
+    public long getPassCount() {
+        return passes;
+    }
+
+    public long getStateTransitionCount() {
+        return stateTransitions;
+    }
+
+    /**
+     * @return number of frames after which the view stopped animating
+     */
+    public long getIdleFrameCount() {
+        return idleFrames;
+    }
+
+    public long getOverBudgetFrameCount() {
+        return overBudgetFrames;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget frame budget (ns), longer frames are counted as over budget
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void reset() {
+        update.reset();
+        build.reset();
+        draw.reset();
+        frame.reset();
+        frames = 0;
+        passes = 0;
+        stateTransitions = 0;
+        idleFrames = 0;
+        overBudgetFrames = 0;
+    }
+
+    /**
+     * @return a detached copy of the current values
+     */
+    public AXFrameMetrics snapshot() {
+        AXFrameMetrics snapshot = new AXFrameMetrics(name);
+        snapshot.update.set(update);
+        snapshot.build.set(build);
+        snapshot.draw.set(draw);
+        snapshot.frame.set(frame);
+        snapshot.frames = frames;
+        snapshot.passes = passes;
+        snapshot.stateTransitions = stateTransitions;
+        snapshot.idleFrames = idleFrames;
+        snapshot.overBudgetFrames = overBudgetFrames;
+        snapshot.budget = budget;
+        return snapshot;
+    }
+}
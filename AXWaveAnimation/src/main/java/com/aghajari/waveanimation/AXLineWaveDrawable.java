@@ -21,6 +21,13 @@ package com.aghajari.waveanimation;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+import com.aghajari.waveanimation.core.AXLineShape;
+import com.aghajari.waveanimation.core.AXWaveShape;
+
+/**
+ * Draws an {@link AXLineShape} inside the giving bounds.
+ */
 public class AXLineWaveDrawable extends AXWaveDrawable {
 
     protected float lineSpeedScale;
@@ -28,98 +35,126 @@ public class AXLineWaveDrawable extends AXWaveDrawable {
     protected float deltaTop;
     protected float deltaRight;
     protected float deltaBottom;
+    // a subclass overrides the deprecated draw, the view calls it instead of drawing the cached path
+    private final boolean legacyDraw;
+    // false if a subclass overrides the update or the points, a batch would skip them
+    private final boolean batchable;
 
     public AXLineWaveDrawable(int n,float lineSpeedScale) {
         super(n);
         this.lineSpeedScale = lineSpeedScale;
+        legacyDraw = overrides(getClass(), AXLineWaveDrawable.class, "draw", float.class, float.class,
+                float.class, float.class, Canvas.class, Paint.class, float.class);
+        batchable = !overrides(getClass(), AXLineWaveDrawable.class, "update", float.class, float.class, float.class)
+                && !overrides(getClass(), AXLineWaveDrawable.class, "computePoints", float.class, float.class,
+                float.class, float.class, float.class);
     }
 
     @Override
-    void init(int n) {
-        N = n;
-        radius = new float[n + 1];
-
-        radiusNext = new float[n + 1];
-        progress = new float[n + 1];
-        speed = new float[n + 1];
-
-        for (int i = 0; i <= N; i++) {
-            generateBlob(radius,null, i);
-            generateBlob(radiusNext,null, i);
-            progress[i] = 0;
-        }
+    protected AXWaveShape createShape(int n) {
+        return new AXLineShape(n) {
+            @Override
+            protected void generateBlob(int i, int target) {
+                if (isLegacyGenerator()) {
+                    generateLegacyBlob(this, i, target);
+                } else {
+                    super.generateBlob(i, target);
+                }
+            }
+        };
     }
 
     @Override
-    protected void generateBlob(float[] radius, float[] angle, int i) {
-        float radDif = maxRadius - minRadius;
-        radius[i] = minRadius + Math.abs(((random.nextInt() % 100f) / 100f)) * radDif;
-        speed[i] = (float) (0.017 + 0.003 * (Math.abs(random.nextInt() % 100f) / 100f));
+    public AXLineShape getShape() {
+        return (AXLineShape) shape;
     }
 
+    /**
+     * @param speedScale -1 to use the line speed scale
+     */
     @Override
-    public void update(float amplitude, float speedScale) {
-        final float s = speedScale == -1 ? lineSpeedScale : speedScale;
-        for (int i = 0; i <= N; i++) {
-            progress[i] += (speed[i] * minSpeed) + amplitude * speed[i] * maxSpeed * s;
-            if (progress[i] >= 1f) {
-                progress[i] = 0;
-                radius[i] = radiusNext[i];
-                generateBlob(radiusNext,null,i);
-            }
-        }
+    public void update(float amplitude, float speedScale, float dt) {
+        shape.update(amplitude, speedScale == -1 ? lineSpeedScale : speedScale, dt);
     }
 
     @Override
     public void draw(float cX, float cY, Canvas canvas, Paint paint) {}
 
+    @Override
+    public void buildPath(float cX, float cY) {}
+
+    @Override
+    public void computePoints(float cX, float cY) {}
+
+    /**
+     * build the path and draw it
+     * @deprecated the views build the path once per frame and draw it in every pass,
+     * they only call an overridden draw while they simulate on the UI thread (not with background simulation).
+     * override {@link #computePoints(float, float, float, float, float)} to move the bounds instead
+     */
+    @Deprecated
     public void draw(float left, float top, float right, float bottom, Canvas canvas, Paint paint, float amplitude) {
-        realDraw(left+deltaLeft,bottom - top - deltaTop,right+deltaRight,bottom - deltaBottom,canvas,paint,0,1f);
+        buildPath(left, top, right, bottom, amplitude);
+        drawPath(canvas, paint);
     }
 
-    private void realDraw(float left, float top, float right, float bottom, Canvas canvas, Paint paint, float  pinnedTop, float progressToPinned) {
-        path.reset();
+    boolean isLegacyDraw() {
+        return legacyDraw;
+    }
 
-        path.moveTo(right, bottom);
-        path.lineTo(left, bottom);
-
-        for (int i = 0; i <= N; i++) {
-            if (i == 0) {
-                float progress = this.progress[i];
-                float r1 = radius[i] * (1f - progress) + radiusNext[i] * progress;
-                float y = (top - r1) * progressToPinned + pinnedTop * (1f - progressToPinned);
-                path.lineTo(left, y);
-            } else {
-                float progress = this.progress[i - 1];
-                float r1 = radius[i - 1] * (1f - progress) + radiusNext[i - 1] * progress;
-                float progressNext = this.progress[i];
-                float r2 = radius[i] * (1f - progressNext) + radiusNext[i] * progressNext;
-                float x1 = (right - left) / N * (i - 1);
-                float x2 = (right - left) / N * i;
-                float cx = x1 + (x2 - x1) / 2;
-
-                float y1 = (top - r1) * progressToPinned + pinnedTop * (1f - progressToPinned);
-                float y2 = (top - r2) * progressToPinned + pinnedTop * (1f - progressToPinned);
-                path.cubicTo(
-                        cx, y1,
-                        cx, y2,
-                        x2, y2
-                );
-                if (i == N) {
-                    path.lineTo(right, bottom);
-                }
-            }
-        }
+    /**
+     * build the line path,
+     * the same path can be drawn several times by {@link #drawPath(Canvas, Paint)}
+     */
+    public void buildPath(float left, float top, float right, float bottom, float amplitude) {
+        computePoints(left, top, right, bottom, amplitude);
+        emitPath(points);
+    }
 
-        canvas.drawPath(path, paint);
+    /**
+     * compute the line points into {@link #points},
+     * doesn't touch the path so it can run on a background thread
+     */
+    public void computePoints(float left, float top, float right, float bottom, float amplitude) {
+        getShape().computePoints(left + deltaLeft, bottom - top - deltaTop,
+                right + deltaRight, bottom - deltaBottom, points);
+    }
+
+    @Override
+    boolean isBatchable(AXBatchSimulation batch) {
+        return batchable;
+    }
+
+    /**
+     * write the bounds of {@link #computePoints(float, float, float, float, float)} into the batch
+     */
+    void setBounds(AXBatchSimulation batch, int index, float left, float top, float right, float bottom) {
+        batch.setBounds(index, left + deltaLeft, bottom - top - deltaTop, right + deltaRight, bottom - deltaBottom);
     }
 
-    public void generateBlob() {
-        for (int i = 0; i < N; i++) {
-            generateBlob(radius, null, i);
-            generateBlob(radiusNext,null, i);
-            progress[i] = 0;
+    /**
+     * build the path from the giving points (same layout as {@link #points}):
+     * bottom right, bottom left, first point and N cubic segments
+     */
+    @Override
+    public void emitPath(float[] points, int count) {
+        path.reset();
+        path.moveTo(points[0], points[1]);
+        path.lineTo(points[2], points[3]);
+        path.lineTo(points[4], points[5]);
+        for (int i = 0, p = 6; i < count; i++, p += 6) {
+            path.cubicTo(
+                    points[p], points[p + 1],
+                    points[p + 2], points[p + 3],
+                    points[p + 4], points[p + 5]
+            );
         }
+        path.lineTo(points[0], points[1]);
+    }
+
+    @Override
+    public void drawPath(Canvas canvas, Paint paint) {
+        canvas.drawPath(path, paint);
     }
 
     protected void updateLine (float amplitude,float maxHeight){}
@@ -19,12 +19,14 @@
 package com.aghajari.waveanimation;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.os.Build;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.View;
 
@@ -32,19 +34,25 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+import com.aghajari.waveanimation.core.AXEnvelopeFollower;
+import com.aghajari.waveanimation.core.AXLevelOfDetail;
+import com.aghajari.waveanimation.core.AXSpectrum;
+import com.aghajari.waveanimation.core.AXSpectrumBands;
+
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class AXLineWaveView extends View {
+public class AXLineWaveView extends View implements AXAmplitudeReceiver {
 
     Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     float amplitude;
-    float animateToAmplitude;
-    float animateAmplitudeDiff;
+    final AXEnvelopeFollower amplitudeFollower = new AXEnvelopeFollower();
     float amplitudeSpeed = 0.33f;
 
     private boolean stub;
@@ -55,6 +63,37 @@ public class AXLineWaveView extends View {
 
     float progressToState = 1f;
     Random random = new Random();
+    AXFrameClock clock = new AXFrameClock(new AXFrameClock.Callback() {
+        @Override
+        public void onFrame(AXFrameClock clock) {
+            invalidate();
+        }
+    });
+    AXVisibilityTracker visibility = new AXVisibilityTracker(this);
+    AXAmplitudeInput amplitudeInput = new AXAmplitudeInput();
+    final AtomicBoolean animating = new AtomicBoolean();
+    float idleThreshold = -1f;
+    AXBackgroundSimulation simulation;
+    boolean seeded;
+    long seed;
+    AXFrameMetrics metrics;
+    AXLevelOfDetail lod;
+    boolean lodDirty;
+    // shaders to release once the worker is idle
+    private final ArrayList<AXLineWeavingState> pendingReleases = new ArrayList<>();
+    private boolean pendingReleaseAll;
+    boolean backgroundSimulation;
+    private final Runnable simulationIdle = new Runnable() {
+        @Override
+        public void run() {
+            onSimulationIdle();
+        }
+    };
+    AXQualityGovernor governor;
+    int qualityTier = AXQualityGovernor.TIER_FULL;
+    AXSpectrum spectrum;
+    float[] spectrumPower;
+    AXTimelinePlayer timeline;
 
     int maxAlpha = 76;
 
@@ -62,9 +101,12 @@ public class AXLineWaveView extends View {
     int shaderColor2;
 
     List<AXLineWaveDrawable> waveDrawables = new ArrayList<>();
-    Map<Integer,AXLineWeavingState> states = new HashMap<>();
+    SparseArray<AXLineWeavingState> states = new SparseArray<>();
+    private Map<Integer,AXLineWeavingState> stateMap;
 
     AXLineWaveDrawable mainWave;
+    // cached, dp() runs in the per-frame drawable overrides
+    float density;
     boolean mainWaveEnabled = true;
     float mainWaveHeight = -1;
 
@@ -90,6 +132,7 @@ public class AXLineWaveView extends View {
     }
 
     private void init(@Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        density = getResources().getDisplayMetrics().density;
         if (attrs!=null) {
             final TypedArray a = getContext().obtainStyledAttributes(
                     attrs, R.styleable.AXLineWaveView, defStyleAttr, defStyleRes);
@@ -111,17 +154,12 @@ public class AXLineWaveView extends View {
 
         addWaveDrawable(new AXLineWaveDrawable(7,0.7f){
 
-            @Override
-            public void draw(float left, float top, float right, float bottom, Canvas canvas, Paint paint, float amplitude) {
-                deltaTop = dp(6) * amplitude;
-                super.draw(left, top, right, bottom, canvas, paint, amplitude);
-            }
-
             @Override
             protected void updateLine(float amplitude,float maxHeight) {
                 super.updateLine(amplitude,maxHeight);
                 setMinRadius(0);
                 setMaxRadius(Math.max(maxHeight  * amplitude,dp(3)));
+                deltaTop = dp(6) * amplitude;
             }
 
         });
@@ -133,12 +171,7 @@ public class AXLineWaveView extends View {
                 super.updateLine(amplitude,maxHeight);
                 setMinRadius(0);
                 setMaxRadius(Math.max(maxHeight  * amplitude,dp(3)));
-            }
-
-            @Override
-            public void draw(float left, float top, float right, float bottom, Canvas canvas, Paint paint, float amplitude) {
                 deltaTop = dp(6) * amplitude;
-                super.draw(left, top, right, bottom, canvas, paint, amplitude);
             }
         });
 
@@ -154,7 +187,7 @@ public class AXLineWaveView extends View {
     }
 
     protected AXLineWeavingState createDefaultState(){
-        return AXLineWeavingState.create(-1,AXWaveView.createLinearShader(getWidth(),shaderColor1,shaderColor2,shaderColor1));
+        return AXLineWeavingState.createLinear(-1,getWidth(),shaderColor1,shaderColor2,shaderColor1);
     }
 
     private int getThemeColor(int index) {
@@ -197,6 +230,13 @@ public class AXLineWaveView extends View {
         }
 
         if (mainWaveHeight == -1) mainWaveHeight = h * 0.75f;
+        if (lod != null) lodDirty = true;
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        density = getResources().getDisplayMetrics().density;
     }
 
     @Override
@@ -208,95 +248,370 @@ public class AXLineWaveView extends View {
 
     protected void draw(float left, float top, float right, float bottom, Canvas canvas, float progress) {
 
+        if (metrics != null) metrics.beginFrame();
+        if (governor != null) {
+            governor.beginFrame();
+            if (governor.getTier() != qualityTier) applyQualityTier(governor.getTier());
+        }
+        final float dt = clock.tick();
+        if (amplitudeInput.drain()) applyAmplitude(amplitudeInput.getValue());
+
         if (stub) loadStubWaves();
 
-        if (animateToAmplitude != amplitude) {
-            amplitude += animateAmplitudeDiff * 16;
-            if (animateAmplitudeDiff > 0) {
-                if (amplitude > animateToAmplitude) {
-                    amplitude = animateToAmplitude;
-                }
-            } else {
-                if (amplitude < animateToAmplitude) {
-                    amplitude = animateToAmplitude;
-                }
-            }
-        }
+        amplitude = amplitudeFollower.update(dt);
 
         if (previousState != null) {
-            progressToState += 16 / 250f;
+            progressToState += dt / 250f;
             if (progressToState > 1f) {
                 progressToState = 1f;
+                AXLineWeavingState dropped = previousState;
                 previousState = null;
+                releaseShader(dropped);
+            }
+        }
+
+        // segment counts change only while the worker isn't reading the drawables
+        if (lodDirty && (simulation == null || !simulation.isBusy())) applyLevelOfDetail(right - left);
+
+        // follows the shared step setting of the ticker
+        updateSimulation();
+        if (timeline != null) timeline.advance(dt);
+        AXBackgroundSimulation.Frame frame = timeline == null && simulation != null ? simulation.acquire() : null;
+        // simulate on this thread until the worker publishes its first frame
+        final boolean simulate = timeline != null || simulation == null || (frame == null && !simulation.isBusy());
+
+        // the main wave is the primary one, the first drawable only when it's disabled
+        final int waveCount = qualityTier < AXQualityGovernor.TIER_PRIMARY_WAVES ? waveDrawables.size()
+                : mainWaveEnabled ? 0 : Math.min(1, waveDrawables.size());
+        final boolean crossFade = previousState != null && qualityTier < AXQualityGovernor.TIER_NO_CROSS_FADE;
+
+        if (spectrum != null) updateSpectrum(dt);
+
+        float wavesHeight = bottom - top;
+        if (mainWaveEnabled) wavesHeight -= mainWaveHeight;
+
+        final long lodStart = lod != null && lod.getBudget() > 0 ? System.nanoTime() : 0;
+        if (simulate) {
+
+            for (int index = 0; index < waveCount; index++) {
+                AXLineWaveDrawable waveDrawable = waveDrawables.get(index);
+                waveDrawable.updateLine(amplitude, wavesHeight - dp(6));
+                if (timeline == null || !timeline.apply(index, waveDrawable)) {
+                    waveDrawable.update(amplitude, waveDrawable.lineSpeedScale, dt);
+                }
+            }
+            if (mainWaveEnabled) {
+                mainWave.updateLine(amplitude, wavesHeight);
+                if (timeline == null || !timeline.apply(waveDrawables.size(), mainWave)) {
+                    mainWave.update(amplitude, mainWave.lineSpeedScale, dt);
+                }
+            }
+            if (metrics != null) metrics.markUpdate();
+
+            // an overridden draw builds the path itself in every pass
+            for (int index = 0; index < waveCount; index++) {
+                AXLineWaveDrawable waveDrawable = waveDrawables.get(index);
+                if (!waveDrawable.isLegacyDraw()) waveDrawable.buildPath(left, top, right, wavesHeight, amplitude);
+            }
+            if (mainWaveEnabled && !mainWave.isLegacyDraw()) {
+                mainWave.buildPath(left, bottom - wavesHeight, right, bottom, amplitude);
+            }
+        } else {
+            if (metrics != null) metrics.markUpdate();
+            if (frame != null) {
+                for (int index = 0; index < waveCount; index++) {
+                    frame.emitPath(waveDrawables.get(index));
+                }
+                if (mainWaveEnabled) frame.emitPath(mainWave);
             }
         }
+        if (metrics != null) metrics.markBuild();
+        if (lodStart != 0 && lod.onFrameCost(System.nanoTime() - lodStart)) lodDirty = true;
 
         for (int i = 0; i < 2; i++) {
             float alpha;
-            if (i == 0 && previousState == null) {
+            if (i == 0 && !crossFade) {
                 continue;
             }
 
             if (i == 0) {
                 alpha = 1f - progressToState;
-                previousState.setSize(left,top,right,bottom);
-                previousState.update(16, amplitude);
-                previousState.loadMatrix();
+                if (simulate) {
+                    previousState.setSize(left, top, right, bottom);
+                    if (timeline == null || !timeline.apply(previousState)) previousState.update(dt, amplitude);
+                    previousState.loadMatrix();
+                } else {
+                    simulation.loadMatrix(frame, previousState);
+                }
                 previousState.setToPaint(paint);
             } else {
                 if (currentState == null) {
+                    pauseAnimation();
                     return;
                 }
-                alpha = previousState != null ? progressToState : 1f;
-                currentState.setSize(left,top,right,bottom);
-                currentState.update(16, amplitude);
-                currentState.loadMatrix();
+                alpha = crossFade ? progressToState : 1f;
+                if (simulate) {
+                    currentState.setSize(left, top, right, bottom);
+                    if (timeline == null || !timeline.apply(currentState)) currentState.update(dt, amplitude);
+                    currentState.loadMatrix();
+                } else {
+                    simulation.loadMatrix(frame, currentState);
+                }
                 currentState.setToPaint(paint);
             }
+            if (metrics != null) metrics.pass();
 
             paint.setAlpha((int) (maxAlpha * alpha));
 
-            float wavesHeight = bottom - top;
-            if (mainWaveEnabled) wavesHeight -= mainWaveHeight;
-
-            for (int index=0;index<waveDrawables.size(); index++){
+            for (int index = 0; index < waveCount; index++){
                 AXLineWaveDrawable waveDrawable = waveDrawables.get(index);
-                waveDrawable.updateLine(amplitude,wavesHeight - dp(6));
-                waveDrawable.update(amplitude,waveDrawable.lineSpeedScale);
-
-                waveDrawable.draw(left, top, right, wavesHeight, canvas, paint,amplitude);
+                if (simulate && waveDrawable.isLegacyDraw()) {
+                    waveDrawable.draw(left, top, right, wavesHeight, canvas, paint, amplitude);
+                } else {
+                    waveDrawable.drawPath(canvas, paint);
+                }
             }
 
             if (mainWaveEnabled) {
-                mainWave.updateLine(amplitude,wavesHeight);
-                mainWave.update(amplitude,mainWave.lineSpeedScale);
-
                 if (i == 1) {
                     paint.setAlpha((int) (255 * alpha));
                 } else {
                     paint.setAlpha(255);
                 }
 
-                mainWave.draw(left,bottom - wavesHeight,right,bottom,canvas,paint,amplitude);
+                if (simulate && mainWave.isLegacyDraw()) {
+                    mainWave.draw(left, bottom - wavesHeight, right, bottom, canvas, paint, amplitude);
+                } else {
+                    mainWave.drawPath(canvas, paint);
+                }
             }
         }
 
-        invalidate();
+        // only step while the view keeps drawing frames, an idle or hidden view doesn't need new ones
+        if (timeline == null && isSimulationCurrent() && !isIdle() && visibility.isVisible()
+                && simulation.prepare(simulate ? 0 : dt)) {
+            simulation.amplitude = amplitude;
+            simulation.left = left;
+            simulation.top = top;
+            simulation.right = right;
+            simulation.bottom = bottom;
+            simulation.setDrawables(waveDrawables, waveCount);
+            if (mainWaveEnabled) simulation.addDrawable(mainWave);
+            simulation.currentState = currentState;
+            simulation.previousState = previousState;
+            simulation.start();
+        }
+        if (metrics != null) metrics.endFrame(isIdle());
+        if (governor != null) governor.endFrame();
+        clock.endFrame();
+        scheduleNextFrame();
+    }
+
+    private void applyQualityTier(int tier) {
+        qualityTier = tier;
+        paint.setAntiAlias(tier < AXQualityGovernor.TIER_NO_ANTI_ALIAS);
+        clock.setFrameInterval(tier >= AXQualityGovernor.TIER_HALF_RATE ? 2 : 1);
+    }
+
+    private void applyLevelOfDetail(float width) {
+        if (width <= 0) return;
+        lodDirty = false;
+        float sizeRatio = width / dp(LOD_REFERENCE_SIZE);
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            applyLevelOfDetail(waveDrawables.get(index), sizeRatio);
+        }
+        applyLevelOfDetail(mainWave, sizeRatio);
+    }
+
+    private void applyLevelOfDetail(AXLineWaveDrawable waveDrawable, float sizeRatio) {
+        int base = waveDrawable.getBaseBlobCount();
+        waveDrawable.setBlobCount(lod != null ? lod.getCount(base, sizeRatio) : base);
+    }
+
+    private AXBackgroundSimulation createSimulation(AXWaveTicker ticker) {
+        return new AXBackgroundSimulation(this, animating, ticker) {
+            @Override
+            protected void step(Frame frame) {
+                float wavesHeight = getWavesHeight();
+                for (int index = 0; index < drawableCount; index++) {
+                    AXLineWaveDrawable waveDrawable = (AXLineWaveDrawable) drawables[index];
+                    updateLine(waveDrawable, wavesHeight);
+                    step(frame, waveDrawable, wavesHeight);
+                }
+                stepStates(frame);
+            }
+
+            @Override
+            protected void addShapes(AXBatchSimulation batch) {
+                float wavesHeight = getWavesHeight();
+                for (int index = 0; index < drawableCount; index++) {
+                    AXLineWaveDrawable waveDrawable = (AXLineWaveDrawable) drawables[index];
+                    // the batched and the skipped drawables update their lines before the batch
+                    updateLine(waveDrawable, wavesHeight);
+                    if (!waveDrawable.isBatchable(batch)) continue;
+                    int i = batch.add(waveDrawable.getShape());
+                    batch.setInput(i, amplitude, waveDrawable.lineSpeedScale, dt);
+                    if (waveDrawable == mainWave) {
+                        waveDrawable.setBounds(batch, i, left, bottom - wavesHeight, right, bottom);
+                    } else {
+                        waveDrawable.setBounds(batch, i, left, top, right, wavesHeight);
+                    }
+                }
+            }
+
+            @Override
+            protected void finishStep(Frame frame, AXBatchSimulation batch, int start) {
+                float wavesHeight = getWavesHeight();
+                for (int index = 0, i = start; index < drawableCount; index++) {
+                    AXLineWaveDrawable waveDrawable = (AXLineWaveDrawable) drawables[index];
+                    if (i < batch.size() && batch.getShape(i) == waveDrawable.getShape()) {
+                        frame.addPoints(waveDrawable, batch.getPoints(i++));
+                    } else {
+                        step(frame, waveDrawable, wavesHeight);
+                    }
+                }
+                stepStates(frame);
+            }
+
+            private float getWavesHeight() {
+                float wavesHeight = bottom - top;
+                if (drawableCount > 0 && drawables[drawableCount - 1] == mainWave) wavesHeight -= mainWaveHeight;
+                return wavesHeight;
+            }
+
+            private void updateLine(AXLineWaveDrawable waveDrawable, float wavesHeight) {
+                waveDrawable.updateLine(amplitude, waveDrawable == mainWave ? wavesHeight : wavesHeight - dp(6));
+            }
+
+            private void step(Frame frame, AXLineWaveDrawable waveDrawable, float wavesHeight) {
+                waveDrawable.update(amplitude, waveDrawable.lineSpeedScale, dt);
+                if (waveDrawable == mainWave) {
+                    waveDrawable.computePoints(left, bottom - wavesHeight, right, bottom, amplitude);
+                } else {
+                    waveDrawable.computePoints(left, top, right, wavesHeight, amplitude);
+                }
+                frame.addPoints(waveDrawable);
+            }
+
+            private void stepStates(Frame frame) {
+                step(frame, (AXLineWeavingState) previousState);
+                step(frame, (AXLineWeavingState) currentState);
+            }
+
+            private void step(Frame frame, AXLineWeavingState state) {
+                if (state == null) return;
+                state.setSize(left, top, right, bottom);
+                state.update(dt, amplitude);
+                frame.addState(state);
+            }
+        };
+    }
+
+    private void scheduleNextFrame() {
+        if (!isIdle() && visibility.isVisible()) {
+            animating.set(true);
+            clock.scheduleFrame();
+            return;
+        }
+
+        animating.set(false);
+        // a reading published after the drain would be missed otherwise
+        if (amplitudeInput.hasPending() && animating.compareAndSet(false, true)) {
+            clock.scheduleFrame();
+        } else {
+            clock.reset();
+        }
+    }
+
+    /**
+     * @return true if the next frames would look the same as the current one,
+     * the view stops drawing new frames until something changes
+     */
+    public boolean isIdle() {
+        if (previousState != null || timeline != null) return false;
+        return !stub && idleThreshold >= 0 && amplitudeFollower.isSettled() && amplitude <= idleThreshold;
     }
 
     protected void loadStubWaves(){
-        long currentTime = System.currentTimeMillis();
+        long currentTime = clock.getTimeMillis();
         if (currentTime - lastStubUpdateAmplitude > 1000) {
             lastStubUpdateAmplitude = currentTime;
-            animateToAmplitude = 0.5f + 0.5f * Math.abs(random.nextInt() % 100) / 100f;
-            animateAmplitudeDiff = (animateToAmplitude - amplitude) / (100 + 1500.0f * getAmplitudeSpeed());
+            float target = 0.5f + 0.5f * Math.abs(random.nextInt() % 100) / 100f;
+            amplitudeFollower.glideTo(target, 100 + 1500.0f * getAmplitudeSpeed());
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        visibility.onAttached();
+        if (metrics != null) AXMetricsRegistry.register(metrics);
+        // attached again before the worker went idle
+        pendingReleaseAll = false;
+        // released on detach, acquire them here instead of the first frame
+        if (currentState != null) currentState.acquireShader();
+        if (previousState != null) previousState.acquireShader();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        visibility.onDetached();
+        if (metrics != null) AXMetricsRegistry.unregister(metrics);
+        pauseAnimation();
+        releaseShaders();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        visibility.setAggregatedVisible(isVisible);
+        if (!isVisible) pauseAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        this.visibility.setWindowVisible(visibility == VISIBLE);
+        if (visibility != VISIBLE) pauseAnimation();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        visibility.setWindowFocused(hasWindowFocus);
+        if (!visibility.isVisible()) pauseAnimation();
+    }
+
+    /**
+     * stop drawing new frames, the view resumes on the next invalidate
+     */
+    protected void pauseAnimation() {
+        clock.cancelFrame();
+        clock.reset();
+        animating.set(false);
+    }
+
+    /**
+     * restart the frame loop if it's stopped (idle or hidden)
+     */
+    protected void resumeAnimation() {
+        if (animating.compareAndSet(false, true)) postInvalidateOnAnimation();
+    }
+
     public void addWaveDrawable(@NonNull AXLineWaveDrawable blobDrawable){
         if (waveDrawables.contains(blobDrawable)) return;
         waveDrawables.add(blobDrawable);
-        blobDrawable.generateBlob();
+        if (seeded) {
+            blobDrawable.setSeed(seedFor(waveDrawables.size()));
+        } else {
+            blobDrawable.generateBlob();
+        }
+        if (lod != null) {
+            blobDrawable.ensureCapacity(lod.getMaxCount(blobDrawable.getBaseBlobCount()));
+            lodDirty = true;
+        }
+        if (spectrum != null) attachSpectrum(blobDrawable);
         invalidate();
     }
 
@@ -319,13 +634,37 @@ public class AXLineWaveView extends View {
     }
 
     public void removeState(int key){
+        AXLineWeavingState state = states.get(key);
         states.remove(key);
+        if (state != null) releaseShader(state);
     }
 
-    public Map<Integer,AXLineWeavingState> getAllWeavingStates(){
+    public SparseArray<AXLineWeavingState> getWeavingStates(){
         return states;
     }
 
+    /**
+     * @return live map of the saved states, writes go through {@link #addState(int, AXLineWeavingState)} and {@link #removeState(int)}
+     * @deprecated boxes the keys, use {@link #getWeavingStates()}
+     */
+    @Deprecated
+    public Map<Integer,AXLineWeavingState> getAllWeavingStates(){
+        if (stateMap == null) {
+            stateMap = new AXStateMap<AXLineWeavingState>(states) {
+                @Override
+                void addState(int key, AXLineWeavingState state) {
+                    AXLineWaveView.this.addState(key, state);
+                }
+
+                @Override
+                void removeState(int key) {
+                    AXLineWaveView.this.removeState(key);
+                }
+            };
+        }
+        return stateMap;
+    }
+
     public AXLineWeavingState getState(int key){
         return states.get(key);
     }
@@ -336,14 +675,36 @@ public class AXLineWaveView extends View {
 
     public final static float MAX_AMPLITUDE = 8_500f;
 
+    /**
+     * view width (dp) the base segment counts are tuned for
+     */
+    public final static int LOD_REFERENCE_SIZE = 360;
+
+    /**
+     * set the amplitude of the voice, safe to call from any thread (e.g. an AudioRecord thread).
+     * readings are conflated once per frame, see {@link AXAmplitudeInput#setPolicy(int)}
+     * @param value amplitude (0 - {@link #MAX_AMPLITUDE}), negative for the stub animation
+     */
+    @Override
     public void setAmplitude(float value) {
+        if (amplitudeInput.offer(value)) resumeAnimation();
+    }
+
+    /**
+     * apply the conflated amplitude of the current frame
+     */
+    protected void applyAmplitude(float value) {
         if (value < 0) {
             stub = true;
             return;
         }
         stub = false;
-        animateToAmplitude = (float) (Math.min(MAX_AMPLITUDE, value) / MAX_AMPLITUDE);
-        animateAmplitudeDiff = (animateToAmplitude - amplitude) / (100 + 500.0f * getAmplitudeSpeed());
+        float target = (float) (Math.min(MAX_AMPLITUDE, value) / MAX_AMPLITUDE);
+        if (amplitudeFollower.getMode() == AXEnvelopeFollower.MODE_LINEAR) {
+            amplitudeFollower.glideTo(target, 100 + 500.0f * getAmplitudeSpeed());
+        } else {
+            amplitudeFollower.setTarget(target);
+        }
     }
 
     public float getAmplitude() {
@@ -363,42 +724,391 @@ public class AXLineWaveView extends View {
             return;
         }
 
+        state.acquireShader();
+        if (seeded) state.setSeed(seedFor(state));
+        AXLineWeavingState dropped = previousState;
         previousState = currentState;
         currentState = state;
+        if (dropped != null) releaseShader(dropped);
         if (previousState != null) {
             progressToState = 0;
+            if (metrics != null) metrics.stateTransition();
         } else {
             progressToState = 1;
         }
         invalidate();
     }
 
+    /**
+     * create the shaders and the first transforms of the saved states ahead of their first frame,
+     * call it after adding the states so {@link #setState(int)} doesn't hitch
+     */
+    public void preloadStates() {
+        preloadStates(false);
+    }
+
+    /**
+     * @param background create the shaders on the simulation thread,
+     *                   the states are sized and their matrices loaded on the UI thread afterwards
+     */
+    public void preloadStates(boolean background) {
+        AXWeavingState[] preload = new AXWeavingState[states.size()];
+        int count = 0;
+        for (int i = 0; i < states.size(); i++) {
+            AXLineWeavingState state = states.valueAt(i);
+            // the current states are updated by the frames
+            if (state == currentState || state == previousState) continue;
+            if (getWidth() > 0) state.setSize(0, 0, getWidth(), getHeight());
+            preload[count++] = state;
+        }
+        AXStatePreloader.preload(this, Arrays.copyOf(preload, count), background);
+    }
+
     public int getMaxAlpha() {
         return maxAlpha;
     }
 
     public void setMaxAlpha(int maxAlpha) {
         this.maxAlpha = maxAlpha;
+        invalidate();
     }
 
     public float getAmplitudeSpeed() {
         return amplitudeSpeed;
     }
 
+    /**
+     * speed of the stub animation, and of the readings in {@link AXEnvelopeFollower#MODE_LINEAR},
+     * see {@link #getAmplitudeFollower()} for the other modes
+     */
     public void setAmplitudeSpeed(float amplitudeSpeed) {
         this.amplitudeSpeed = amplitudeSpeed;
     }
 
+    public AXAmplitudeInput getAmplitudeInput() {
+        return amplitudeInput;
+    }
+
+    /**
+     * smooths the amplitude between the readings, set its mode and attack/release times,
+     * {@link AXEnvelopeFollower#MODE_LINEAR} restores the old per-reading slope of {@link #getAmplitudeSpeed()}
+     */
+    public AXEnvelopeFollower getAmplitudeFollower() {
+        return amplitudeFollower;
+    }
+
+    public AXFrameClock getFrameClock() {
+        return clock;
+    }
+
+    public float getIdleThreshold() {
+        return idleThreshold;
+    }
+
+    /**
+     * the view stops drawing new frames once the amplitude settles at or below this value,
+     * -1 (default) to keep animating forever.
+     * the blobs and the gradient still move at a silent amplitude, they freeze while the view is idle
+     */
+    public void setIdleThreshold(float idleThreshold) {
+        this.idleThreshold = idleThreshold;
+        resumeAnimation();
+    }
+
+    /**
+     * seed the view, its drawables and states (including the ones added later).
+     * with the same seed, the same amplitudes and a fixed frame time
+     * ({@link AXFrameClock#setFixedFrameTime(float)}) the view draws the same frames on every run,
+     * doesn't apply to the background simulation
+     */
+    public void setRandomSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+        random.setSeed(seed);
+        lastStubUpdateAmplitude = 0;
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            waveDrawables.get(index).setSeed(seedFor(index + 1));
+        }
+        mainWave.setSeed(seedFor(Integer.MAX_VALUE));
+        if (previousState != null) previousState.setSeed(seedFor(previousState));
+        if (currentState != null) currentState.setSeed(seedFor(currentState));
+        invalidate();
+    }
+
+    public long getRandomSeed() {
+        return seed;
+    }
+
+    private long seedFor(long salt) {
+        return seed + 0x9E3779B97F4A7C15L * salt;
+    }
+
+    private long seedFor(AXWeavingState state) {
+        // far from the small salts of the drawables
+        return seedFor(((long) state.getState() << 32) - 1);
+    }
+
+    public boolean isBackgroundSimulationEnabled() {
+        return backgroundSimulation;
+    }
+
+    /**
+     * advance the waves and the weaving states on a worker thread,
+     * onDraw only emits the paths of the latest simulated frame.
+     * call it from the UI thread, drawables and states shouldn't be reconfigured while it's enabled.
+     * disabling it waits for a running step, the view keeps drawing its frames until then
+     */
+    public void setBackgroundSimulationEnabled(boolean enabled) {
+        backgroundSimulation = enabled;
+        updateSimulation();
+    }
+
+    /**
+     * @return ticker that should run the steps, null for the worker or if the view simulates in onDraw
+     */
+    private AXWaveTicker getSharedTicker() {
+        AXWaveTicker ticker = clock.getTicker();
+        return !backgroundSimulation && ticker != null && ticker.isSharedStepEnabled() ? ticker : null;
+    }
+
+    /**
+     * @return true if the simulation runs where it's requested now and can start new steps
+     */
+    private boolean isSimulationCurrent() {
+        return simulation != null && (backgroundSimulation || simulation.getTicker() == getSharedTicker());
+    }
+
+    /**
+     * move the simulation to the worker or the shared step of the ticker, or drop it.
+     * a running step is finished first, the view keeps drawing its frames until then
+     */
+    private void updateSimulation() {
+        AXWaveTicker ticker = getSharedTicker();
+        boolean enabled = backgroundSimulation || ticker != null;
+        if (enabled ? isSimulationCurrent() : simulation == null) return;
+        if (simulation != null && simulation.isBusy()) {
+            // the step is still writing the drawables
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        simulation = enabled ? createSimulation(ticker) : null;
+        invalidate();
+    }
+
+    /**
+     * record the frame costs of this view into {@link #getMetrics()},
+     * registered in {@link AXMetricsRegistry} while the view is attached
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (metrics != null)) return;
+        if (enabled) {
+            metrics = new AXFrameMetrics(getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this)));
+            if (getWindowToken() != null) AXMetricsRegistry.register(metrics);
+        } else {
+            AXMetricsRegistry.unregister(metrics);
+            metrics = null;
+        }
+    }
+
+    /**
+     * scale the segment counts of the lines by the view width
+     * (the base counts fit a {@value #LOD_REFERENCE_SIZE}dp view) and the budget of the policy,
+     * null to restore the base counts
+     */
+    public void setLevelOfDetail(AXLevelOfDetail lod) {
+        if (lod == this.lod) return;
+        this.lod = lod;
+        if (lod != null) {
+            for (int index = 0; index < waveDrawables.size(); index++) {
+                AXLineWaveDrawable waveDrawable = waveDrawables.get(index);
+                waveDrawable.ensureCapacity(lod.getMaxCount(waveDrawable.getBaseBlobCount()));
+            }
+            mainWave.ensureCapacity(lod.getMaxCount(mainWave.getBaseBlobCount()));
+        }
+        lodDirty = true;
+        invalidate();
+    }
+
+    /**
+     * give the shader of a state that isn't drawn or saved anymore back to {@link AXShaderCache}
+     */
+    private void releaseShader(AXLineWeavingState state) {
+        if (state == currentState || state == previousState || states.indexOfValue(state) >= 0) return;
+        // the worker may be updating the state
+        if (simulation != null && simulation.isBusy()) {
+            if (!pendingReleases.contains(state)) pendingReleases.add(state);
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        state.releaseShader();
+    }
+
+    /**
+     * give the shaders of a detached view back to {@link AXShaderCache}, states acquire them again when they are drawn
+     */
+    private void releaseShaders() {
+        if (simulation != null && simulation.isBusy()) {
+            pendingReleaseAll = true;
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        for (int i = 0; i < states.size(); i++) {
+            states.valueAt(i).releaseShader();
+        }
+        if (currentState != null) currentState.releaseShader();
+        if (previousState != null) previousState.releaseShader();
+    }
+
+    /**
+     * switch the simulation and run the queued releases once the worker is idle, main thread only
+     */
+    private void onSimulationIdle() {
+        if (simulation != null && simulation.isBusy()) {
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        updateSimulation();
+        flushReleases();
+    }
+
+    /**
+     * run the releases that were queued while the worker was busy, main thread only
+     */
+    private void flushReleases() {
+        if (pendingReleaseAll) {
+            pendingReleaseAll = false;
+            releaseShaders();
+        }
+        // skips the states that were drawn or saved again meanwhile
+        for (int i = 0; i < pendingReleases.size(); i++) {
+            releaseShader(pendingReleases.get(i));
+        }
+        pendingReleases.clear();
+    }
+
+    public AXTimelinePlayer getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * replay a baked timeline instead of simulating the waves and states, the background simulation
+     * is skipped meanwhile. the drawables are the baked drawables of the same index
+     * and the main wave is the one after them,
+     * states that aren't baked keep moving live, null to go back to the live simulation
+     */
+    public void setTimeline(AXTimelinePlayer timeline) {
+        this.timeline = timeline;
+        resumeAnimation();
+        invalidate();
+    }
+
+    public AXSpectrum getSpectrum() {
+        return spectrum;
+    }
+
+    /**
+     * drive the points of the waves by the frequency bands of the spectrum instead of random targets,
+     * every drawable gets its own {@link AXSpectrumBands} with one band per point
+     * (see {@link AXWaveDrawable#getSpectrumBands()}). feed the spectrum with
+     * {@link AXPcmInput#setSpectrum(AXSpectrum)}, null to go back to the random waves
+     */
+    public void setSpectrum(AXSpectrum spectrum) {
+        if (spectrum == this.spectrum) return;
+        this.spectrum = spectrum;
+        spectrumPower = spectrum != null ? new float[spectrum.getBinCount()] : null;
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            attachSpectrum(waveDrawables.get(index));
+        }
+        attachSpectrum(mainWave);
+        invalidate();
+    }
+
+    private void attachSpectrum(AXWaveDrawable waveDrawable) {
+        if (spectrum == null) {
+            waveDrawable.setSpectrumBands(null);
+        } else if (waveDrawable.getSpectrumBands() == null) {
+            waveDrawable.setSpectrumBands(new AXSpectrumBands(waveDrawable.getShape().getSpectrumSize()));
+        }
+    }
+
+    /**
+     * aggregate the latest spectrum into the bands of the drawables,
+     * the worker may read the levels meanwhile, a torn frame only mixes two spectra
+     */
+    private void updateSpectrum(float dt) {
+        spectrum.copyPower(spectrumPower);
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            updateSpectrum(waveDrawables.get(index), dt);
+        }
+        updateSpectrum(mainWave, dt);
+    }
+
+    private void updateSpectrum(AXWaveDrawable waveDrawable, float dt) {
+        AXSpectrumBands bands = waveDrawable.getSpectrumBands();
+        if (bands != null) bands.update(spectrum, spectrumPower, dt);
+    }
+
+    public AXLevelOfDetail getLevelOfDetail() {
+        return lod;
+    }
+
+    /**
+     * degrade the drawing while frames are over the budget of the governor,
+     * null to always draw at full quality
+     */
+    public void setQualityGovernor(AXQualityGovernor governor) {
+        this.governor = governor;
+        applyQualityTier(governor != null ? governor.getTier() : AXQualityGovernor.TIER_FULL);
+        invalidate();
+    }
+
+    public AXQualityGovernor getQualityGovernor() {
+        return governor;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * @return frame metrics, null if they are not enabled
+     */
+    public AXFrameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isPauseOnWindowFocusLoss() {
+        return visibility.pauseOnFocusLoss;
+    }
+
+    /**
+     * pause the animation while the window doesn't have focus
+     */
+    public void setPauseOnWindowFocusLoss(boolean pauseOnFocusLoss) {
+        visibility.pauseOnFocusLoss = pauseOnFocusLoss;
+        if (visibility.isVisible()) {
+            resumeAnimation();
+        } else {
+            pauseAnimation();
+        }
+    }
+
     public boolean isMainWaveEnabled() {
         return mainWaveEnabled;
     }
 
     public void setMainWaveEnabled(boolean mainWaveEnabled) {
         this.mainWaveEnabled = mainWaveEnabled;
+        invalidate();
     }
 
     public void setMainWave(@NonNull AXLineWaveDrawable mainWave) {
         this.mainWave = mainWave;
+        if (spectrum != null) attachSpectrum(mainWave);
+        if (lod != null) {
+            mainWave.ensureCapacity(lod.getMaxCount(mainWave.getBaseBlobCount()));
+            lodDirty = true;
+        }
     }
 
     public AXLineWaveDrawable getMainWave() {
@@ -411,10 +1121,11 @@ public class AXLineWaveView extends View {
 
     public void setMainWaveHeight(float mainWaveHeight) {
         this.mainWaveHeight = mainWaveHeight;
+        invalidate();
     }
 
     private int dp(int value){
-        return (int) (getContext().getResources().getDisplayMetrics().density * value);
+        return (int) (density * value);
     }
 
 }
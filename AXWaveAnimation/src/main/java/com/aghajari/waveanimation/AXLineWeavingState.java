@@ -36,6 +36,22 @@ public abstract class AXLineWeavingState extends AXWeavingState {
         this.height = (int) (right - left);
     }
 
+    /**
+     * state with a shared linear gradient of {@link AXShaderCache},
+     * same as {@link AXWaveView#createLinearShader(float, int, int, int)}
+     */
+    public static AXLineWeavingState createLinear(final int state, final float size, final int color1, final int color2, final int color3){
+        final int[] colors = {color1, color2, color3};
+        final float[] stops = {0, 0.4f, 1f};
+        return new AXLineWeavingState(state) {
+
+            @Override
+            public Shader createShader() {
+                return AXShaderCache.getInstance().acquireLinear(size, colors, stops);
+            }
+        };
+    }
+
     public static AXLineWeavingState create(final int state, final Shader weavingShader, final float weavingScale){
         return new AXLineWeavingState(state) {
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Global registry of the metrics of the attached wave views with metrics enabled.
+ */
+public final class AXMetricsRegistry {
+
+    private final static List<AXFrameMetrics> metrics = new ArrayList<>();
+
+    private AXMetricsRegistry() {
+    }
+
+    static void register(AXFrameMetrics frameMetrics) {
+        synchronized (metrics) {
+            if (!metrics.contains(frameMetrics)) metrics.add(frameMetrics);
+        }
+    }
+
+    static void unregister(AXFrameMetrics frameMetrics) {
+        synchronized (metrics) {
+            metrics.remove(frameMetrics);
+        }
+    }
+
+    /**
+     * @return live metrics of the registered views
+     */
+    public static List<AXFrameMetrics> getAll() {
+        synchronized (metrics) {
+            return new ArrayList<>(metrics);
+        }
+    }
+
+    /**
+     * @return detached copies of the metrics of the registered views
+     */
+    public static List<AXFrameMetrics> snapshot() {
+        synchronized (metrics) {
+            List<AXFrameMetrics> snapshot = new ArrayList<>(metrics.size());
+            for (AXFrameMetrics frameMetrics : metrics) {
+                snapshot.add(frameMetrics.snapshot());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * reset the metrics of the registered views
+     */
+    public static void resetAll() {
+        synchronized (metrics) {
+            for (AXFrameMetrics frameMetrics : metrics) {
+                frameMetrics.reset();
+            }
+        }
+    }
+}
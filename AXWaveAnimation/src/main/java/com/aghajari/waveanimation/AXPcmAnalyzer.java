@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.media.AudioFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single pass, allocation-free RMS / peak / dBFS extraction of PCM frames.
+ * Interleaved channels are down-mixed per frame, levels are normalized to 0-1 (full scale).
+ */
+public class AXPcmAnalyzer {
+
+    public final static float MIN_DBFS = -96f;
+
+    private float rms;
+    private float peak;
+    private float dbfs = MIN_DBFS;
+    private int frames;
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void analyze(short[] pcm, int offset, int length, int channels) {
+        checkChannels(channels);
+        final int end = offset + length - length % channels;
+        final float scale = 1f / (32768f * channels);
+        double sum = 0;
+        float peak = 0;
+
+        for (int i = offset; i < end; ) {
+            int mix = 0;
+            for (int c = 0; c < channels; c++) mix += pcm[i++];
+            float sample = mix * scale;
+            sum += sample * sample;
+            if (sample < 0) sample = -sample;
+            if (sample > peak) peak = sample;
+        }
+        publish(sum, peak, (end - offset) / channels);
+    }
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void analyze(float[] pcm, int offset, int length, int channels) {
+        checkChannels(channels);
+        final int end = offset + length - length % channels;
+        final float scale = 1f / channels;
+        double sum = 0;
+        float peak = 0;
+
+        for (int i = offset; i < end; ) {
+            float mix = 0;
+            for (int c = 0; c < channels; c++) mix += pcm[i++];
+            float sample = mix * scale;
+            sum += sample * sample;
+            if (sample < 0) sample = -sample;
+            if (sample > peak) peak = sample;
+        }
+        publish(sum, peak, (end - offset) / channels);
+    }
+
+    /**
+     * reads the buffer with absolute gets, so a direct buffer filled by
+     * {@code AudioRecord.read(ByteBuffer, int)} is never copied.
+     * the buffer's byte order must match the PCM data (native order for AudioRecord)
+     *
+     * @param offset   first byte
+     * @param length   number of bytes
+     * @param encoding {@link AudioFormat#ENCODING_PCM_16BIT} or {@link AudioFormat#ENCODING_PCM_FLOAT}
+     */
+    public void analyze(ByteBuffer pcm, int offset, int length, int channels, int encoding) {
+        checkChannels(channels);
+        final int bytes;
+        final float scale;
+        if (encoding == AudioFormat.ENCODING_PCM_16BIT) {
+            bytes = 2;
+            scale = 1f / (32768f * channels);
+        } else if (encoding == AudioFormat.ENCODING_PCM_FLOAT) {
+            bytes = 4;
+            scale = 1f / channels;
+        } else {
+            throw new IllegalArgumentException("unsupported encoding " + encoding);
+        }
+
+        final int frameSize = bytes * channels;
+        final int end = offset + length - length % frameSize;
+        double sum = 0;
+        float peak = 0;
+
+        for (int i = offset; i < end; ) {
+            float mix = 0;
+            for (int c = 0; c < channels; c++, i += bytes) {
+                mix += bytes == 2 ? pcm.getShort(i) : pcm.getFloat(i);
+            }
+            float sample = mix * scale;
+            sum += sample * sample;
+            if (sample < 0) sample = -sample;
+            if (sample > peak) peak = sample;
+        }
+        publish(sum, peak, (end - offset) / frameSize);
+    }
+
+    private void publish(double sum, float peak, int frames) {
+        this.frames = frames;
+        this.peak = Math.min(peak, 1f);
+        this.rms = frames == 0 ? 0 : (float) Math.min(Math.sqrt(sum / frames), 1.0);
+        this.dbfs = rms == 0 ? MIN_DBFS : Math.max(MIN_DBFS, (float) (20 * Math.log10(rms)));
+    }
+
+    private static void checkChannels(int channels) {
+        if (channels < 1) {
+            throw new IllegalArgumentException("channels must be at least 1");
+        }
+    }
+
+    /**
+     * @return root mean square of the last buffer (0 - 1)
+     */
+    public float getRms() {
+        return rms;
+    }
+
+    /**
+     * @return absolute peak of the last buffer (0 - 1)
+     */
+    public float getPeak() {
+        return peak;
+    }
+
+    /**
+     * @return RMS level of the last buffer in dBFS ({@link #MIN_DBFS} - 0)
+     */
+    public float getDbfs() {
+        return dbfs;
+    }
+
+    /**
+     * @return number of frames of the last buffer
+     */
+    public int getFrames() {
+        return frames;
+    }
+}
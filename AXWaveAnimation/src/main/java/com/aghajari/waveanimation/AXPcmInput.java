@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.media.AudioFormat;
+
+import androidx.annotation.NonNull;
+
+import com.aghajari.waveanimation.core.AXSpectrum;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PCM ingestion pipeline, analyzes every written buffer with {@link AXPcmAnalyzer}
+ * and feeds the level into the receivers (e.g. {@link AXWaveView} and {@link AXLineWaveView}).
+ * Writing doesn't allocate, call it from the audio thread.
+ */
+public class AXPcmInput {
+
+    /**
+     * feed the peak of the buffer
+     */
+    public final static int LEVEL_PEAK = 0;
+
+    /**
+     * feed the RMS of the buffer
+     */
+    public final static int LEVEL_RMS = 1;
+
+    private final static AXAmplitudeReceiver[] EMPTY = new AXAmplitudeReceiver[0];
+
+    private final AXPcmAnalyzer analyzer = new AXPcmAnalyzer();
+    private volatile AXAmplitudeReceiver[] receivers = EMPTY;
+    private int level = LEVEL_PEAK;
+    private float gain = 1f;
+    private volatile AXSpectrum spectrum;
+
+    public AXPcmInput(AXAmplitudeReceiver... receivers) {
+        for (AXAmplitudeReceiver receiver : receivers) addReceiver(receiver);
+    }
+
+    public synchronized void addReceiver(@NonNull AXAmplitudeReceiver receiver) {
+        AXAmplitudeReceiver[] current = receivers;
+        for (AXAmplitudeReceiver r : current) {
+            if (r == receiver) return;
+        }
+        AXAmplitudeReceiver[] next = new AXAmplitudeReceiver[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = receiver;
+        receivers = next;
+    }
+
+    public synchronized void removeReceiver(AXAmplitudeReceiver receiver) {
+        AXAmplitudeReceiver[] current = receivers;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == receiver) {
+                AXAmplitudeReceiver[] next = new AXAmplitudeReceiver[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                receivers = next;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void write(short[] pcm, int offset, int length, int channels) {
+        analyzer.analyze(pcm, offset, length, channels);
+        AXSpectrum spectrum = this.spectrum;
+        if (spectrum != null) spectrum.write(pcm, offset, length, channels);
+        publish();
+    }
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void write(float[] pcm, int offset, int length, int channels) {
+        analyzer.analyze(pcm, offset, length, channels);
+        AXSpectrum spectrum = this.spectrum;
+        if (spectrum != null) spectrum.write(pcm, offset, length, channels);
+        publish();
+    }
+
+    /**
+     * @param length   number of bytes
+     * @param encoding {@link AudioFormat#ENCODING_PCM_16BIT} or {@link AudioFormat#ENCODING_PCM_FLOAT}
+     */
+    public void write(ByteBuffer pcm, int offset, int length, int channels, int encoding) {
+        analyzer.analyze(pcm, offset, length, channels, encoding);
+        AXSpectrum spectrum = this.spectrum;
+        if (spectrum != null) {
+            spectrum.write(pcm, offset, length, channels, encoding == AudioFormat.ENCODING_PCM_FLOAT);
+        }
+        publish();
+    }
+
+    /**
+     * read one buffer of the source into this input
+     * @return number of frames read, negative if the source is closed or failed
+     */
+    public int pump(@NonNull AXAudioSource source) {
+        return source.read(this);
+    }
+
+    private void publish() {
+        float value = (level == LEVEL_RMS ? analyzer.getRms() : analyzer.getPeak()) * gain;
+        float amplitude = Math.min(value, 1f) * 32767f;
+        AXAmplitudeReceiver[] receivers = this.receivers;
+        for (AXAmplitudeReceiver receiver : receivers) {
+            receiver.setAmplitude(amplitude);
+        }
+    }
+
+    /**
+     * @return analysis of the last written buffer
+     */
+    public AXPcmAnalyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    public AXSpectrum getSpectrum() {
+        return spectrum;
+    }
+
+    /**
+     * also transform the written buffers into the spectrum,
+     * see {@link AXWaveView#setSpectrum(AXSpectrum)}. null to only feed the levels
+     */
+    public void setSpectrum(AXSpectrum spectrum) {
+        this.spectrum = spectrum;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @param level {@link #LEVEL_PEAK} or {@link #LEVEL_RMS}
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public float getGain() {
+        return gain;
+    }
+
+    /**
+     * scale the level before feeding it into the receivers
+     */
+    public void setGain(float gain) {
+        this.gain = gain;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+/**
+ * Watches the frame costs of a wave view and trades detail for frame time.
+ * While the average cost is over budget it steps down one tier at a time
+ * (anti-aliasing off, no cross-fade pass, primary waves only, half frame rate),
+ * and steps back up after enough frames with headroom.
+ * Tiers change at most once per cooldown, so the view doesn't flicker between them.
+ */
+public class AXQualityGovernor {
+
+    /**
+     * everything enabled
+     */
+    public final static int TIER_FULL = 0;
+
+    /**
+     * anti-aliasing off
+     */
+    public final static int TIER_NO_ANTI_ALIAS = 1;
+
+    /**
+     * the previous state isn't cross-faded, the new state is drawn at once
+     */
+    public final static int TIER_NO_CROSS_FADE = 2;
+
+    /**
+     * only the primary wave: the first drawable, or the main wave of the line view
+     */
+    public final static int TIER_PRIMARY_WAVES = 3;
+
+    /**
+     * draw every other vsync
+     */
+    public final static int TIER_HALF_RATE = 4;
+
+    public interface Listener {
+        /**
+         * called on the UI thread, the view applies the new tier on its next frame
+         */
+        void onTierChanged(AXQualityGovernor governor, int oldTier, int newTier);
+    }
+
+    private final static float ALPHA = 0.1f;
+
+    private long budget = AXFrameMetrics.DEFAULT_BUDGET;
+    private float headroom = 0.6f;
+    private int cooldownFrames = 30;
+    private int upgradeFrames = 120;
+    private int maxTier = TIER_HALF_RATE;
+    private Listener listener;
+
+    private int tier = TIER_FULL;
+    private float averageCost = -1;
+    private int cooldown;
+    private int goodFrames;
+    private long frameStart;
+
+    void beginFrame() {
+        frameStart = nanoTime();
+    }
+
+    /**
+     * @return true if the tier has changed
+     */
+    boolean endFrame() {
+        return onFrameCost(nanoTime() - frameStart);
+    }
+
+    /**
+     * report the cost of a frame, views report their draw time by themselves
+     * @return true if the tier has changed
+     */
+    public boolean onFrameCost(long nanos) {
+        averageCost = averageCost < 0 ? nanos : averageCost + (nanos - averageCost) * ALPHA;
+        goodFrames = averageCost < budget * headroom ? goodFrames + 1 : 0;
+        if (cooldown > 0) {
+            cooldown--;
+            return false;
+        }
+
+        if (averageCost > budget && tier < maxTier) {
+            return changeTier(tier + 1);
+        } else if (goodFrames >= upgradeFrames && tier > TIER_FULL) {
+            return changeTier(tier - 1);
+        }
+        return false;
+    }
+
+    private boolean changeTier(int newTier) {
+        int oldTier = tier;
+        tier = newTier;
+        cooldown = cooldownFrames;
+        goodFrames = 0;
+        // the cost of the old tier says little about the new one
+        averageCost = -1;
+        if (listener != null) listener.onTierChanged(this, oldTier, newTier);
+        return true;
+    }
+
+    /**
+     * @return current tier, {@link #TIER_FULL} to {@link #TIER_HALF_RATE}
+     */
+    public int getTier() {
+        return tier;
+    }
+
+    /**
+     * go back to {@link #TIER_FULL} and forget the recorded costs
+     */
+    public void reset() {
+        if (tier != TIER_FULL) changeTier(TIER_FULL);
+        averageCost = -1;
+        cooldown = 0;
+        goodFrames = 0;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget frame cost budget (ns)
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public float getHeadroom() {
+        return headroom;
+    }
+
+    /**
+     * @param headroom the tier steps up while the average cost is below budget * headroom
+     */
+    public void setHeadroom(float headroom) {
+        this.headroom = headroom;
+    }
+
+    public int getCooldownFrames() {
+        return cooldownFrames;
+    }
+
+    /**
+     * @param cooldownFrames frames to wait after a tier change
+     */
+    public void setCooldownFrames(int cooldownFrames) {
+        this.cooldownFrames = cooldownFrames;
+    }
+
+    public int getUpgradeFrames() {
+        return upgradeFrames;
+    }
+
+    /**
+     * @param upgradeFrames frames in a row with headroom before stepping up
+     */
+    public void setUpgradeFrames(int upgradeFrames) {
+        this.upgradeFrames = upgradeFrames;
+    }
+
+    public int getMaxTier() {
+        return maxTier;
+    }
+
+    /**
+     * @param maxTier lowest quality the governor can step down to
+     */
+    public void setMaxTier(int maxTier) {
+        this.maxTier = Math.max(TIER_FULL, Math.min(maxTier, TIER_HALF_RATE));
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.LinearGradient;
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Process-wide cache of the gradient shaders of the wave views and their states.
+ * Identical gradients (type, colors, stops and size) are shared, holders acquire and release them.
+ * Released shaders stay cached for later acquires until the entry or byte budget evicts them,
+ * least recently used first. Shaders that are still acquired are never evicted.
+ * The local matrix of a shared shader is set by every state right before it draws.
+ */
+public class AXShaderCache {
+
+    public final static int TYPE_LINEAR = 0;
+    public final static int TYPE_RADIAL = 1;
+
+    /**
+     * estimated native size of a gradient, skia bakes most of them into a 256px color ramp (bytes)
+     */
+    private final static int GRADIENT_BYTES = 256 * 4;
+
+    private static AXShaderCache instance;
+
+    public static synchronized AXShaderCache getInstance() {
+        if (instance == null) instance = new AXShaderCache();
+        return instance;
+    }
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final IdentityHashMap<Shader, Entry> shaders = new IdentityHashMap<>();
+    private final Key probe = new Key();
+    private int maxEntries = 32;
+    private long maxBytes = 64 * 1024;
+    private long bytes;
+
+    AXShaderCache() {
+    }
+
+    /**
+     * {@link LinearGradient} from (0, 0) to (size, 0) with the giving colors and stops
+     */
+    public Shader acquireLinear(float size, int[] colors, float[] stops) {
+        return acquire(TYPE_LINEAR, size, colors, stops);
+    }
+
+    /**
+     * {@link RadialGradient} centered at (size, size) with the giving radius
+     */
+    public Shader acquireRadial(float size, int[] colors, float[] stops) {
+        return acquire(TYPE_RADIAL, size, colors, stops);
+    }
+
+    /**
+     * @return shared shader, call {@link #release(Shader)} once it isn't used anymore
+     */
+    public synchronized Shader acquire(int type, float size, int[] colors, float[] stops) {
+        probe.set(type, size, colors, stops);
+        Entry entry = entries.get(probe);
+        if (entry == null) {
+            Key key = new Key();
+            key.set(type, size, colors.clone(), stops != null ? stops.clone() : null);
+            entry = new Entry(key, createShader(type, size, colors, stops));
+            entries.put(key, entry);
+            shaders.put(entry.shader, entry);
+            bytes += entry.bytes;
+        }
+        probe.set(0, 0, null, null);
+        entry.references++;
+        trim();
+        return entry.shader;
+    }
+
+    /**
+     * take another reference of a shader that came from this cache
+     * @return false if the shader isn't cached (anymore)
+     */
+    public synchronized boolean retain(Shader shader) {
+        Entry entry = shader != null ? shaders.get(shader) : null;
+        if (entry == null) return false;
+        entry.references++;
+        return true;
+    }
+
+    /**
+     * @return false if the shader isn't cached, the caller keeps owning it then
+     */
+    public synchronized boolean release(Shader shader) {
+        Entry entry = shader != null ? shaders.get(shader) : null;
+        if (entry == null) return false;
+        if (entry.references > 0) entry.references--;
+        trim();
+        return true;
+    }
+
+    public synchronized boolean contains(Shader shader) {
+        return shader != null && shaders.containsKey(shader);
+    }
+
+    protected Shader createShader(int type, float size, int[] colors, float[] stops) {
+        if (type == TYPE_RADIAL) {
+            return new RadialGradient(size, size, size, colors, stops, Shader.TileMode.CLAMP);
+        }
+        return new LinearGradient(0, 0, size, 0, colors, stops, Shader.TileMode.CLAMP);
+    }
+
+    private void trim() {
+        evict(false);
+    }
+
+    /**
+     * evict every released shader
+     */
+    public synchronized void evictAll() {
+        evict(true);
+    }
+
+    /**
+     * evict released shaders, least recently used first, until the cache fits its budget
+     */
+    private void evict(boolean all) {
+        // acquire and release run in onDraw, don't create an iterator while the cache fits
+        if (!all && entries.size() <= maxEntries && bytes <= maxBytes) return;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((all || entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.references > 0) continue;
+            iterator.remove();
+            shaders.remove(entry.shader);
+            bytes -= entry.bytes;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated native size of the cached shaders (bytes)
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        trim();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes budget of the estimated native size (bytes)
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    private final static class Entry {
+        final Key key;
+        final Shader shader;
+        final int bytes;
+        int references;
+
+        Entry(Key key, Shader shader) {
+            this.key = key;
+            this.shader = shader;
+            bytes = GRADIENT_BYTES + key.colors.length * 4 + (key.stops != null ? key.stops.length * 4 : 0);
+        }
+    }
+
+    private final static class Key {
+        int type;
+        float size;
+        int[] colors;
+        float[] stops;
+
+        void set(int type, float size, int[] colors, float[] stops) {
+            this.type = type;
+            this.size = size;
+            this.colors = colors;
+            this.stops = stops;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return type == key.type
+                    && Float.compare(key.size, size) == 0
+                    && Arrays.equals(colors, key.colors)
+                    && Arrays.equals(stops, key.stops);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type;
+            result = 31 * result + Float.floatToIntBits(size);
+            result = 31 * result + Arrays.hashCode(colors);
+            result = 31 * result + Arrays.hashCode(stops);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+
+/**
+ * Shared worker thread of the background simulations.
+ */
+final class AXSimulationThread extends Thread {
+
+    private final static String TAG = "AXWaveSimulation";
+
+    private static AXSimulationThread instance;
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+
+    private AXSimulationThread() {
+        super(TAG);
+        setDaemon(true);
+    }
+
+    static synchronized AXSimulationThread getInstance() {
+        if (instance == null) {
+            instance = new AXSimulationThread();
+            instance.start();
+        }
+        return instance;
+    }
+
+    void post(Runnable task) {
+        synchronized (queue) {
+            queue.add(task);
+            queue.notify();
+        }
+    }
+
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+        while (true) {
+            Runnable task;
+            synchronized (queue) {
+                while (queue.isEmpty()) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                task = queue.poll();
+            }
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                Log.e(TAG, "simulation step failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.util.SparseArray;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * live {@link java.util.Map} view of the saved states of a view,
+ * writes go through addState/removeState so the shaders of removed states are released
+ */
+abstract class AXStateMap<T> extends AbstractMap<Integer, T> {
+
+    private final SparseArray<T> states;
+
+    AXStateMap(SparseArray<T> states) {
+        this.states = states;
+    }
+
+    abstract void addState(int key, T state);
+
+    abstract void removeState(int key);
+
+    @Override
+    public int size() {
+        return states.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && states.indexOfKey((Integer) key) >= 0;
+    }
+
+    @Override
+    public T get(Object key) {
+        return key instanceof Integer ? states.get((Integer) key) : null;
+    }
+
+    @Override
+    public T put(Integer key, T value) {
+        if (value == null) throw new NullPointerException("state must not be null");
+        T old = states.get(key);
+        if (old != null && old != value) removeState(key);
+        addState(key, value);
+        return old;
+    }
+
+    @Override
+    public T remove(Object key) {
+        T old = get(key);
+        if (old != null) removeState((Integer) key);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        while (states.size() > 0) {
+            removeState(states.keyAt(states.size() - 1));
+        }
+    }
+
+    @Override
+    public Set<Entry<Integer, T>> entrySet() {
+        return new AbstractSet<Entry<Integer, T>>() {
+            @Override
+            public int size() {
+                return states.size();
+            }
+
+            @Override
+            public Iterator<Entry<Integer, T>> iterator() {
+                return new Iterator<Entry<Integer, T>>() {
+                    int index;
+                    Integer last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < states.size();
+                    }
+
+                    @Override
+                    public Entry<Integer, T> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        last = states.keyAt(index);
+                        return new SimpleEntry<Integer, T>(last, states.valueAt(index++)) {
+                            @Override
+                            public T setValue(T value) {
+                                put(getKey(), value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last == null) throw new IllegalStateException();
+                        removeState(last);
+                        last = null;
+                        index--;
+                    }
+                };
+            }
+        };
+    }
+}
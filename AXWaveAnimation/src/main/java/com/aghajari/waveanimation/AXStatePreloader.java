@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+import android.view.View;
+
+/**
+ * Preloads weaving states of a view. Shaders can be created on the simulation thread,
+ * they are handed to the states and the first transforms are loaded back on the UI thread.
+ */
+final class AXStatePreloader implements Runnable {
+
+    private final View view;
+    private final AXWeavingState[] states;
+    private final Shader[] shaders;
+    private boolean created;
+
+    private AXStatePreloader(View view, AXWeavingState[] states) {
+        this.view = view;
+        this.states = states;
+        shaders = new Shader[states.length];
+    }
+
+    /**
+     * @param background create the shaders on the simulation thread
+     */
+    static void preload(View view, AXWeavingState[] states, boolean background) {
+        if (!background) {
+            for (AXWeavingState state : states) state.preload();
+            return;
+        }
+        AXSimulationThread.getInstance().post(new AXStatePreloader(view, states));
+    }
+
+    @Override
+    public void run() {
+        if (!created) {
+            // simulation thread, gradients and the shader cache are safe to use here
+            for (int i = 0; i < states.length; i++) {
+                if (states[i].shader == null) shaders[i] = states[i].createShader();
+            }
+            created = true;
+            view.post(this);
+            return;
+        }
+
+        // UI thread, the state may have created its own shader in the meantime
+        for (int i = 0; i < states.length; i++) {
+            if (shaders[i] != null) {
+                if (states[i].shader == null) {
+                    states[i].shader = shaders[i];
+                } else {
+                    AXShaderCache.getInstance().release(shaders[i]);
+                }
+            }
+            states[i].preload();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Baked motion of wave drawables and weaving states, see {@link AXTimelineBaker}.
+ * The file is memory-mapped and read with absolute gets, so a timeline never lives on the heap
+ * and can be shared by any number of {@link AXTimelinePlayer}s on any thread.
+ * <p>
+ * Format (big endian): magic, version, frame time, frame count, drawable and state headers,
+ * then every frame as unsigned 16 bit values: the radii (0 - 1 between the min and max radius)
+ * and angles of every drawable, followed by the x/y fractions of every state.
+ */
+public class AXTimeline {
+
+    final static int MAGIC = 0x4158544C; // AXTL
+    final static int VERSION = 1;
+    final static int FLAG_ANGLES = 1;
+    final static int QUANTIZATION = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final float frameTime;
+    private final int frameCount;
+    private final int frameSize;
+
+    private final int[] pointCounts;
+    private final boolean[] angles;
+    // min and step of the quantized values
+    private final float[] radiusRange;
+    private final float[] angleRange;
+    private final int[] drawableOffsets;
+
+    private final int[] stateKeys;
+    private final float[] stateRange;
+    private final int[] stateOffsets;
+
+    /**
+     * map the file read only, the mapping stays valid after the file is closed
+     */
+    public static AXTimeline open(@NonNull File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new AXTimeline(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * read a timeline from memory (e.g. an asset), absolute gets only, the position isn't used
+     */
+    public static AXTimeline wrap(@NonNull ByteBuffer buffer) {
+        return new AXTimeline(buffer);
+    }
+
+    private AXTimeline(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        buffer = this.buffer;
+        if (buffer.capacity() < 20 || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("not a timeline");
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported timeline version " + buffer.getShort(4));
+        }
+        frameTime = buffer.getFloat(8);
+        frameCount = buffer.getInt(12);
+        int drawableCount = buffer.getShort(16);
+        int stateCount = buffer.getShort(18);
+
+        int p = 20;
+        int offset = 0;
+        pointCounts = new int[drawableCount];
+        angles = new boolean[drawableCount];
+        radiusRange = new float[drawableCount * 2];
+        angleRange = new float[drawableCount * 2];
+        drawableOffsets = new int[drawableCount];
+        for (int i = 0; i < drawableCount; i++, p += 20) {
+            pointCounts[i] = buffer.getShort(p);
+            angles[i] = (buffer.get(p + 2) & FLAG_ANGLES) != 0;
+            radiusRange[2 * i] = buffer.getFloat(p + 4);
+            radiusRange[2 * i + 1] = buffer.getFloat(p + 8);
+            angleRange[2 * i] = buffer.getFloat(p + 12);
+            angleRange[2 * i + 1] = buffer.getFloat(p + 16);
+            drawableOffsets[i] = offset;
+            offset += pointCounts[i] * (angles[i] ? 4 : 2);
+        }
+
+        stateKeys = new int[stateCount];
+        stateRange = new float[stateCount * 4];
+        stateOffsets = new int[stateCount];
+        for (int i = 0; i < stateCount; i++, p += 20) {
+            stateKeys[i] = buffer.getInt(p);
+            for (int j = 0; j < 4; j++) stateRange[4 * i + j] = buffer.getFloat(p + 4 + 4 * j);
+            stateOffsets[i] = offset;
+            offset += 4;
+        }
+
+        frameSize = offset;
+        for (int i = 0; i < drawableCount; i++) drawableOffsets[i] += p;
+        for (int i = 0; i < stateCount; i++) stateOffsets[i] += p;
+        if (frameCount < 1 || buffer.capacity() < p + (long) frameSize * frameCount) {
+            throw new IllegalArgumentException("truncated timeline");
+        }
+    }
+
+    /**
+     * @return radius of the point (0 - 1 between the min and max radius of the drawable)
+     */
+    public float getRadius(int frame, int drawable, int point) {
+        int index = drawableOffsets[drawable] + frame * frameSize + point * 2;
+        return radiusRange[2 * drawable] + (buffer.getShort(index) & QUANTIZATION) * radiusRange[2 * drawable + 1];
+    }
+
+    /**
+     * @return angle of the point (degrees), 0 for lines
+     */
+    public float getAngle(int frame, int drawable, int point) {
+        if (!angles[drawable]) return 0;
+        int index = drawableOffsets[drawable] + frame * frameSize + (pointCounts[drawable] + point) * 2;
+        return angleRange[2 * drawable] + (buffer.getShort(index) & QUANTIZATION) * angleRange[2 * drawable + 1];
+    }
+
+    /**
+     * @return x of the state as a fraction of its width, see {@link AXWeavingState#moveTo(float, float)}
+     */
+    public float getStateX(int frame, int state) {
+        int index = stateOffsets[state] + frame * frameSize;
+        return stateRange[4 * state] + (buffer.getShort(index) & QUANTIZATION) * stateRange[4 * state + 1];
+    }
+
+    /**
+     * @return y of the state as a fraction of its height
+     */
+    public float getStateY(int frame, int state) {
+        int index = stateOffsets[state] + frame * frameSize + 2;
+        return stateRange[4 * state + 2] + (buffer.getShort(index) & QUANTIZATION) * stateRange[4 * state + 3];
+    }
+
+    /**
+     * @return index of the state baked with the giving key, -1 if it isn't baked
+     */
+    public int indexOfState(int key) {
+        for (int i = 0; i < stateKeys.length; i++) {
+            if (stateKeys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    public int getStateKey(int state) {
+        return stateKeys[state];
+    }
+
+    public int getStateCount() {
+        return stateKeys.length;
+    }
+
+    public int getDrawableCount() {
+        return pointCounts.length;
+    }
+
+    /**
+     * @return baked points of the drawable, see {@link com.aghajari.waveanimation.core.AXWaveShape#getStateCount()}
+     */
+    public int getPointCount(int drawable) {
+        return pointCounts[drawable];
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return time between two frames (ms)
+     */
+    public float getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * @return length of the timeline (ms)
+     */
+    public float getDuration() {
+        return frameTime * frameCount;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation;
+
+import androidx.annotation.NonNull;
+
+import com.aghajari.waveanimation.core.AXWaveShape;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the motion of wave drawables and weaving states into an {@link AXTimeline} file.
+ * Every frame advances the live simulation by the frame time and stores the points of the
+ * drawables and the positions of the states, quantized to 16 bits over their recorded range.
+ * Seed the drawables and states first for reproducible files.
+ */
+public class AXTimelineBaker {
+
+    private final float frameTime;
+    private final List<AXWaveDrawable> drawables = new ArrayList<>();
+    private final List<AXWeavingState> states = new ArrayList<>();
+
+    /**
+     * @param frameTime time between two recorded frames (ms)
+     */
+    public AXTimelineBaker(float frameTime) {
+        if (frameTime <= 0) throw new IllegalArgumentException("frameTime must be positive");
+        this.frameTime = frameTime;
+    }
+
+    /**
+     * record the drawable, its min and max radius must be set.
+     * the index of the drawable in the timeline is the order of the calls
+     */
+    public void addDrawable(@NonNull AXWaveDrawable drawable) {
+        drawables.add(drawable);
+    }
+
+    /**
+     * record the state, players find it by {@link AXWeavingState#getState()}
+     */
+    public void addState(@NonNull AXWeavingState state) {
+        states.add(state);
+    }
+
+    public void bake(@NonNull File file, float seconds, float amplitude, float speedScale) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            bake(out, Math.max(1, Math.round(seconds * 1000 / frameTime)), amplitude, speedScale);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param amplitude  amplitude of the recorded motion (0 - 1)
+     * @param speedScale passed to {@link AXWaveDrawable#update(float, float, float)},
+     *                   -1 uses the speed scale of line drawables
+     */
+    public void bake(@NonNull OutputStream out, int frames, float amplitude, float speedScale) throws IOException {
+        final int drawableCount = drawables.size();
+        final int stateCount = states.size();
+        final int[] points = new int[drawableCount];
+        final boolean[] angles = new boolean[drawableCount];
+        int values = 0;
+        for (int i = 0; i < drawableCount; i++) {
+            AXWaveDrawable drawable = drawables.get(i);
+            if (drawable.getMaxRadius() <= drawable.getMinRadius()) {
+                throw new IllegalStateException("set the radii of the drawables before baking");
+            }
+            points[i] = drawable.getShape().getStateCount();
+            angles[i] = !(drawable instanceof AXLineWaveDrawable);
+            values += points[i] * (angles[i] ? 2 : 1);
+        }
+        values += stateCount * 2;
+
+        // recorded first, the quantization ranges are known once every frame is there
+        final float[] recorded = new float[frames * values];
+        for (int frame = 0, p = 0; frame < frames; frame++) {
+            for (int i = 0; i < drawableCount; i++) {
+                AXWaveDrawable drawable = drawables.get(i);
+                drawable.update(amplitude, speedScale, frameTime);
+                AXWaveShape shape = drawable.getShape();
+                float min = drawable.getMinRadius();
+                float range = drawable.getMaxRadius() - min;
+                for (int j = 0; j < points[i]; j++) {
+                    recorded[p++] = (shape.radius(j) - min) / range;
+                }
+                if (angles[i]) {
+                    for (int j = 0; j < points[i]; j++) recorded[p++] = shape.angle(j);
+                }
+            }
+            for (int i = 0; i < stateCount; i++) {
+                AXWeavingState state = states.get(i);
+                state.update(frameTime, amplitude);
+                recorded[p++] = state.startX + (state.targetX - state.startX) * state.interpolation;
+                recorded[p++] = state.startY + (state.targetY - state.startY) * state.interpolation;
+            }
+        }
+
+        // min and step of every value of a frame
+        final float[] mins = new float[values];
+        final float[] steps = new float[values];
+        for (int v = 0; v < values; v++) {
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (int p = v; p < recorded.length; p += values) {
+                min = Math.min(min, recorded[p]);
+                max = Math.max(max, recorded[p]);
+            }
+            mins[v] = min;
+            steps[v] = (max - min) / AXTimeline.QUANTIZATION;
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(AXTimeline.MAGIC);
+        data.writeShort(AXTimeline.VERSION);
+        data.writeShort(0);
+        data.writeFloat(frameTime);
+        data.writeInt(frames);
+        data.writeShort(drawableCount);
+        data.writeShort(stateCount);
+
+        int v = 0;
+        for (int i = 0; i < drawableCount; i++) {
+            data.writeShort(points[i]);
+            data.writeByte(angles[i] ? AXTimeline.FLAG_ANGLES : 0);
+            data.writeByte(0);
+            v = writeRange(data, mins, steps, v, points[i]);
+            if (angles[i]) {
+                v = writeRange(data, mins, steps, v, points[i]);
+            } else {
+                data.writeFloat(0);
+                data.writeFloat(0);
+            }
+        }
+        for (int i = 0; i < stateCount; i++) {
+            data.writeInt(states.get(i).getState());
+            v = writeRange(data, mins, steps, v, 1);
+            v = writeRange(data, mins, steps, v, 1);
+        }
+
+        for (int p = 0; p < recorded.length; p++) {
+            int index = p % values;
+            int q = steps[index] > 0 ? Math.round((recorded[p] - mins[index]) / steps[index]) : 0;
+            data.writeShort(Math.min(Math.max(q, 0), AXTimeline.QUANTIZATION));
+        }
+        data.flush();
+    }
+
+    /**
+     * write one range for the next count values, the values of a drawable share the range of all its points
+     */
+    private static int writeRange(DataOutputStream data, float[] mins, float[] steps, int from, int count) throws IOException {
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (int v = from; v < from + count; v++) {
+            min = Math.min(min, mins[v]);
+            max = Math.max(max, mins[v] + steps[v] * AXTimeline.QUANTIZATION);
+        }
+        float step = (max - min) / AXTimeline.QUANTIZATION;
+        data.writeFloat(min);
+        data.writeFloat(step);
+        for (int v = from; v < from + count; v++) {
+            mins[v] = min;
+            steps[v] = step;
+        }
+        return from + count;
+    }
+
+    public float getFrameTime() {
+        return frameTime;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation;
+
+import androidx.annotation.NonNull;
+
+import com.aghajari.waveanimation.core.AXWaveShape;
+
+/**
+ * Plays an {@link AXTimeline} into wave drawables and weaving states, interpolating between
+ * the baked frames and looping at the end. Nothing is simulated and no random number is drawn.
+ * Every view needs its own player, players of the same timeline can start at different phases.
+ */
+public class AXTimelinePlayer {
+
+    private final AXTimeline timeline;
+    private float phase;
+    private float time;
+
+    // frames around the current time
+    private int frame;
+    private int nextFrame;
+    private float fraction;
+
+    public AXTimelinePlayer(@NonNull AXTimeline timeline) {
+        this.timeline = timeline;
+        seek(0);
+    }
+
+    public AXTimeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * @param dt elapsed time (ms)
+     */
+    public void advance(float dt) {
+        seek(time + dt);
+    }
+
+    /**
+     * @param time playback time (ms) without the phase
+     */
+    public void seek(float time) {
+        float duration = timeline.getDuration();
+        this.time = time % duration;
+        if (this.time < 0) this.time += duration;
+
+        float position = ((this.time + phase) % duration + duration) % duration / timeline.getFrameTime();
+        frame = Math.min((int) position, timeline.getFrameCount() - 1);
+        nextFrame = frame + 1 < timeline.getFrameCount() ? frame + 1 : 0;
+        fraction = position - frame;
+    }
+
+    public float getTime() {
+        return time;
+    }
+
+    public float getPhase() {
+        return phase;
+    }
+
+    /**
+     * offset of this player in the timeline (ms), so views sharing a timeline don't move together
+     */
+    public void setPhase(float phase) {
+        this.phase = phase;
+        seek(time);
+    }
+
+    /**
+     * move the points of the drawable to the current time, between its min and max radius
+     * @param drawable index of the drawable in the timeline
+     * @return false if the timeline has no such drawable
+     */
+    public boolean apply(int drawable, @NonNull AXWaveDrawable waveDrawable) {
+        if (drawable < 0 || drawable >= timeline.getDrawableCount()) return false;
+        AXWaveShape shape = waveDrawable.getShape();
+        int points = timeline.getPointCount(drawable);
+        if (shape.getStateCount() != points) {
+            waveDrawable.setBlobCount(points - (shape.getStateCount() - shape.getBlobCount()));
+        }
+
+        float min = waveDrawable.getMinRadius();
+        float range = waveDrawable.getMaxRadius() - min;
+        for (int i = 0; i < points; i++) {
+            float r1 = timeline.getRadius(frame, drawable, i);
+            float r2 = timeline.getRadius(nextFrame, drawable, i);
+            float a1 = timeline.getAngle(frame, drawable, i);
+            float a2 = timeline.getAngle(nextFrame, drawable, i);
+            shape.setPoint(i, min + (r1 + (r2 - r1) * fraction) * range, a1 + (a2 - a1) * fraction);
+        }
+        return true;
+    }
+
+    /**
+     * move the state to the current time
+     * @return false if the state isn't baked, it has to be updated live then
+     */
+    public boolean apply(@NonNull AXWeavingState state) {
+        int index = timeline.indexOfState(state.getState());
+        if (index == -1) return false;
+        float x1 = timeline.getStateX(frame, index);
+        float y1 = timeline.getStateY(frame, index);
+        float x2 = timeline.getStateX(nextFrame, index);
+        float y2 = timeline.getStateY(nextFrame, index);
+        state.moveTo(x1 + (x2 - x1) * fraction, y1 + (y2 - y1) * fraction);
+        return true;
+    }
+}
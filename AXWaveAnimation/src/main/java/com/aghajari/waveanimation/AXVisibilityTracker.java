@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Tracks whether a wave view can be seen by the user
+ * (attached, window visible, aggregated visibility, on screen and optionally focused).
+ * The view gets invalidated as soon as it becomes visible again.
+ */
+final class AXVisibilityTracker implements ViewTreeObserver.OnScrollChangedListener,
+        ViewTreeObserver.OnGlobalLayoutListener {
+
+    private final View view;
+    private final Rect rect = new Rect();
+
+    private boolean attached;
+    private boolean aggregatedVisible = true;
+    private boolean windowVisible = true;
+    private boolean windowFocused = true;
+    private boolean onScreen = true;
+    boolean pauseOnFocusLoss = false;
+
+    AXVisibilityTracker(View view) {
+        this.view = view;
+    }
+
+    void onAttached() {
+        attached = true;
+        windowFocused = view.hasWindowFocus();
+        ViewTreeObserver observer = view.getViewTreeObserver();
+        observer.addOnScrollChangedListener(this);
+        observer.addOnGlobalLayoutListener(this);
+        onScreen = isOnScreen();
+    }
+
+    void onDetached() {
+        attached = false;
+        ViewTreeObserver observer = view.getViewTreeObserver();
+        observer.removeOnScrollChangedListener(this);
+        observer.removeOnGlobalLayoutListener(this);
+    }
+
+    void setAggregatedVisible(boolean visible) {
+        boolean wasVisible = isVisible();
+        aggregatedVisible = visible;
+        notifyChanged(wasVisible);
+    }
+
+    void setWindowVisible(boolean visible) {
+        boolean wasVisible = isVisible();
+        windowVisible = visible;
+        notifyChanged(wasVisible);
+    }
+
+    void setWindowFocused(boolean focused) {
+        boolean wasVisible = isVisible();
+        windowFocused = focused;
+        notifyChanged(wasVisible);
+    }
+
+    @Override
+    public void onScrollChanged() {
+        refreshOnScreen();
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        refreshOnScreen();
+    }
+
+    private void refreshOnScreen() {
+        boolean wasVisible = isVisible();
+        onScreen = isOnScreen();
+        notifyChanged(wasVisible);
+    }
+
+    /**
+     * a view that isn't laid out yet counts as on screen,
+     * the layout listener checks it again once it has a size
+     */
+    private boolean isOnScreen() {
+        if (view.getWidth() == 0 || view.getHeight() == 0) return true;
+        return view.getGlobalVisibleRect(rect);
+    }
+
+    private void notifyChanged(boolean wasVisible) {
+        if (!wasVisible && isVisible()) view.invalidate();
+    }
+
+    /**
+     * @return true if frames drawn by the view can be seen
+     */
+    boolean isVisible() {
+        if (!attached || !windowVisible || !onScreen) return false;
+        if (pauseOnFocusLoss && !windowFocused) return false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return aggregatedVisible;
+        } else {
+            return view.isShown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Peak and RMS levels of a recorded file, one pair per window of {@link #getWindowFrames()} frames,
+ * see {@link AXWavEnvelopeExtractor}. Levels are stored as 16 bit values (0 - 1 full scale).
+ * Immutable once extracted, can be shared between views and threads.
+ */
+public class AXWavEnvelope {
+
+    private final static float SCALE = 32767f;
+
+    private final int sampleRate;
+    private final int windowFrames;
+    private final long frames;
+    final short[] peaks;
+    final short[] rms;
+
+    AXWavEnvelope(int sampleRate, int windowFrames, long frames, int windows) {
+        this.sampleRate = sampleRate;
+        this.windowFrames = windowFrames;
+        this.frames = frames;
+        this.peaks = new short[windows];
+        this.rms = new short[windows];
+    }
+
+    void set(int window, float peak, float rms) {
+        peaks[window] = (short) Math.round(Math.min(peak, 1f) * SCALE);
+        this.rms[window] = (short) Math.round(Math.min(rms, 1f) * SCALE);
+    }
+
+    /**
+     * @return absolute peak of the window (0 - 1)
+     */
+    public float getPeak(int window) {
+        return peaks[window] / SCALE;
+    }
+
+    /**
+     * @return root mean square of the window (0 - 1)
+     */
+    public float getRms(int window) {
+        return rms[window] / SCALE;
+    }
+
+    /**
+     * @return window that plays at the giving time, clamped to the envelope
+     */
+    public int indexAt(long timeMillis) {
+        long window = timeMillis * sampleRate / 1000 / windowFrames;
+        return (int) Math.min(Math.max(window, 0), peaks.length - 1);
+    }
+
+    /**
+     * @param level {@link AXPcmInput#LEVEL_PEAK} or {@link AXPcmInput#LEVEL_RMS}
+     * @return level of the window that plays at the giving time (0 - 1)
+     */
+    public float getLevel(long timeMillis, int level) {
+        if (peaks.length == 0) return 0;
+        int window = indexAt(timeMillis);
+        return level == AXPcmInput.LEVEL_RMS ? getRms(window) : getPeak(window);
+    }
+
+    /**
+     * feed the level at the playback position into the receiver, call it once per frame
+     * with the position of the player (e.g. {@code MediaPlayer.getCurrentPosition()})
+     */
+    public void feed(long timeMillis, int level, @NonNull AXAmplitudeReceiver receiver) {
+        receiver.setAmplitude(getLevel(timeMillis, level) * 32767f);
+    }
+
+    public int getWindowCount() {
+        return peaks.length;
+    }
+
+    public int getWindowFrames() {
+        return windowFrames;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return number of frames of the file
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return length of the file (ms)
+     */
+    public long getDuration() {
+        return frames * 1000 / sampleRate;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Extracts an {@link AXWavEnvelope} from a PCM WAV file.
+ * The data chunk is memory-mapped and streamed in regions of whole windows,
+ * samples are read with absolute gets so nothing but the envelope is allocated
+ * on the heap, whatever the length of the file.
+ * Disjoint parts of the file can be analyzed by several threads, see {@link #setThreads(int)}.
+ * <p>
+ * Supports 8, 16, 24 and 32 bit integer and 32, 64 bit float PCM (including WAVE_FORMAT_EXTENSIBLE),
+ * interleaved channels are down-mixed per frame the same way {@link AXPcmAnalyzer} does.
+ */
+public class AXWavEnvelopeExtractor {
+
+    private final static int FORMAT_PCM = 1;
+    private final static int FORMAT_FLOAT = 3;
+    private final static int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    final static int DEFAULT_REGION_SIZE = 8 << 20;
+
+    private int windowMillis = 20;
+    private int threads = 1;
+    // bytes mapped at once, rounded down to whole windows
+    int regionSize = DEFAULT_REGION_SIZE;
+
+    public int getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * length of a window (ms), one peak/RMS pair is kept per window
+     */
+    public void setWindowMillis(int windowMillis) {
+        if (windowMillis < 1) {
+            throw new IllegalArgumentException("windowMillis must be at least 1");
+        }
+        this.windowMillis = windowMillis;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * number of threads that analyze disjoint parts of the file,
+     * the calling thread is one of them
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * blocks until the whole file is analyzed, call it off the UI thread
+     */
+    public AXWavEnvelope extract(@NonNull File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return extract(raf.getChannel());
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * blocks until the whole file is analyzed, the channel isn't closed
+     */
+    public AXWavEnvelope extract(@NonNull final FileChannel channel) throws IOException {
+        final Format format = readFormat(channel);
+        final int windowFrames = Math.max(1, (int) ((long) format.sampleRate * windowMillis / 1000));
+        final long frames = format.dataSize / format.frameSize;
+        final int windows = (int) ((frames + windowFrames - 1) / windowFrames);
+        final AXWavEnvelope envelope = new AXWavEnvelope(format.sampleRate, windowFrames, frames, windows);
+
+        int count = Math.min(threads, Math.max(windows, 1));
+        if (count == 1) {
+            analyze(channel, format, envelope, 0, windows);
+            return envelope;
+        }
+
+        final IOException[] errors = new IOException[count];
+        Thread[] workers = new Thread[count - 1];
+        for (int t = 1; t < count; t++) {
+            final int index = t;
+            final int from = (int) ((long) windows * t / count);
+            final int to = (int) ((long) windows * (t + 1) / count);
+            workers[t - 1] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        analyze(channel, format, envelope, from, to);
+                    } catch (IOException e) {
+                        errors[index] = e;
+                    }
+                }
+            }, "AXWavEnvelope-" + t);
+            workers[t - 1].start();
+        }
+
+        try {
+            analyze(channel, format, envelope, 0, windows / count);
+        } catch (IOException e) {
+            errors[0] = e;
+        }
+
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (true) {
+                try {
+                    worker.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        for (IOException error : errors) {
+            if (error != null) throw error;
+        }
+        return envelope;
+    }
+
+    /**
+     * analyze the windows [from, to), mapping at most {@link #regionSize} bytes at a time
+     */
+    void analyze(FileChannel channel, Format format, AXWavEnvelope envelope, int from, int to) throws IOException {
+        final int windowFrames = envelope.getWindowFrames();
+        final long windowSize = (long) windowFrames * format.frameSize;
+        final int regionWindows = (int) Math.max(1, regionSize / windowSize);
+        final long frames = envelope.getFrames();
+
+        for (int window = from; window < to; window += regionWindows) {
+            int end = Math.min(to, window + regionWindows);
+            long firstFrame = (long) window * windowFrames;
+            long lastFrame = Math.min(frames, (long) end * windowFrames);
+
+            ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                    format.dataOffset + firstFrame * format.frameSize,
+                    (lastFrame - firstFrame) * format.frameSize);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+
+            int position = 0;
+            for (int w = window; w < end; w++) {
+                int length = (int) Math.min(windowFrames, frames - (long) w * windowFrames);
+                analyzeWindow(region, position, length, format, envelope, w);
+                position += length * format.frameSize;
+            }
+        }
+    }
+
+    private static void analyzeWindow(ByteBuffer pcm, int offset, int frames,
+                                      Format format, AXWavEnvelope envelope, int window) {
+        final int channels = format.channels;
+        final int bytes = format.bytesPerSample;
+        final boolean isFloat = format.isFloat;
+        final float scale = format.scale / channels;
+        double sum = 0;
+        float peak = 0;
+
+        for (int f = 0, i = offset; f < frames; f++) {
+            float mix = 0;
+            for (int c = 0; c < channels; c++, i += bytes) {
+                mix += sample(pcm, i, bytes, isFloat);
+            }
+            float sample = mix * scale;
+            sum += sample * sample;
+            if (sample < 0) sample = -sample;
+            if (sample > peak) peak = sample;
+        }
+        envelope.set(window, peak, frames == 0 ? 0 : (float) Math.sqrt(sum / frames));
+    }
+
+    private static float sample(ByteBuffer pcm, int i, int bytes, boolean isFloat) {
+        if (isFloat) {
+            return bytes == 4 ? pcm.getFloat(i) : (float) pcm.getDouble(i);
+        }
+        switch (bytes) {
+            case 1:
+                return (pcm.get(i) & 0xFF) - 128;
+            case 2:
+                return pcm.getShort(i);
+            case 3:
+                return (pcm.get(i) & 0xFF) | (pcm.get(i + 1) & 0xFF) << 8 | pcm.get(i + 2) << 16;
+            default:
+                return pcm.getInt(i);
+        }
+    }
+
+    /**
+     * walk the RIFF chunks up to the data chunk
+     */
+    static Format readFormat(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN);
+        long size = channel.size();
+        readFully(channel, header, 0, 12);
+        if (header.getInt(0) != 0x46464952 || header.getInt(8) != 0x45564157) { // RIFF, WAVE
+            throw new IOException("not a WAV file");
+        }
+
+        Format format = null;
+        long position = 12;
+        while (position + 8 <= size) {
+            readFully(channel, header, position, 8);
+            int id = header.getInt(0);
+            long length = header.getInt(4) & 0xFFFFFFFFL;
+
+            if (id == 0x20746D66) { // fmt
+                readFully(channel, header, position + 8, (int) Math.min(length, 40));
+                format = new Format(header, (int) Math.min(length, 40));
+            } else if (id == 0x61746164) { // data
+                if (format == null) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                format.dataOffset = position + 8;
+                // streamed files don't know their length, read up to the end of the file
+                format.dataSize = Math.min(length, size - format.dataOffset);
+                return format;
+            }
+            position += 8 + length + (length & 1);
+        }
+        throw new IOException("no data chunk");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, int length) throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of the WAV file");
+            }
+        }
+    }
+
+    static class Format {
+        final int channels;
+        final int sampleRate;
+        final int bytesPerSample;
+        final int frameSize;
+        final boolean isFloat;
+        // normalizes a sample to -1 - 1
+        final float scale;
+        long dataOffset;
+        long dataSize;
+
+        Format(ByteBuffer fmt, int length) throws IOException {
+            if (length < 16) {
+                throw new IOException("invalid fmt chunk");
+            }
+            int tag = fmt.getShort(0) & 0xFFFF;
+            channels = fmt.getShort(2) & 0xFFFF;
+            sampleRate = fmt.getInt(4);
+            int bits = fmt.getShort(14) & 0xFFFF;
+            if (tag == FORMAT_EXTENSIBLE && length >= 26) {
+                tag = fmt.getShort(24) & 0xFFFF; // first bytes of the sub format GUID
+            }
+            if (channels < 1 || sampleRate < 1 || bits < 8 || bits % 8 != 0) {
+                throw new IOException("invalid fmt chunk");
+            }
+
+            bytesPerSample = bits / 8;
+            frameSize = bytesPerSample * channels;
+            isFloat = tag == FORMAT_FLOAT;
+            if (isFloat ? bits != 32 && bits != 64 : tag != FORMAT_PCM || bits > 32) {
+                throw new IOException("unsupported WAV format " + tag + ", " + bits + " bits");
+            }
+            scale = isFloat ? 1f : 1f / (1L << (bits - 1));
+        }
+    }
+}
@@ -23,92 +23,304 @@ import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+import com.aghajari.waveanimation.core.AXBlobShape;
+import com.aghajari.waveanimation.core.AXSpectrumBands;
+import com.aghajari.waveanimation.core.AXTrigTable;
+import com.aghajari.waveanimation.core.AXWaveShape;
+
 import java.util.Random;
 
+/**
+ * Draws an {@link AXBlobShape}, the shape math lives in the core module
+ * and the drawable copies its points into a {@link Path}.
+ */
 public class AXWaveDrawable {
 
-    protected float maxSpeed = 8.2f;
-    protected float minSpeed = 0.8f;
+    /**
+     * @deprecated mirrors of the shape, kept for subclasses written against the old drawable,
+     * use {@link #getShape()}
+     */
+    @Deprecated
+    protected float maxSpeed = 8.2f, minSpeed = 0.8f, minRadius = -1f, maxRadius = -1f;
+
+    /**
+     * @deprecated mirror of {@link AXWaveShape#getBlobCount()}
+     */
+    @Deprecated
+    protected int N;
+
+    /**
+     * @deprecated bezier handle length factor of the shape
+     */
+    @Deprecated
+    protected float L;
+
+    /**
+     * @deprecated per point state of the shape, kept for subclasses that override
+     * {@link #generateBlob(float[], float[], int)}
+     */
+    @Deprecated
+    protected float[] radius, angle, radiusNext, angleNext, progress, speed;
+
+    /**
+     * @deprecated rotates the points of the exact mode (a null trig table), don't change it.
+     * the points are rotated by the shape otherwise
+     */
+    @Deprecated
+    protected final Matrix m = new Matrix();
+    private final float[] pointStart = new float[4];
+    private final float[] pointEnd = new float[4];
+
+    // true if a subclass overrides generateBlob(float[], float[], int)
+    private final boolean legacyGenerator;
+    // true if a subclass overrides update(), the deprecated fields are synced around it
+    private final boolean legacyHook;
+    // false if a subclass overrides the update or the points, a batch would skip them
+    private final boolean batchable;
 
-    protected float minRadius = -1f;
-    protected float maxRadius = -1f;
     protected boolean autoMin = true;
     protected boolean autoMax = true;
     protected boolean firstDraw = true;
 
     protected Path path = new Path();
+    protected final AXWaveShape shape;
+    private final int baseBlobCount;
 
-    protected float[] radius;
-    protected float[] angle;
-    protected float[] radiusNext;
-    protected float[] angleNext;
-    protected float[] progress;
-    protected float[] speed;
-
-    private float[] pointStart = new float[4];
-    private float[] pointEnd = new float[4];
+    /**
+     * path points, see {@link AXWaveShape#getPointCount()}
+     */
+    protected float[] points;
 
-    final Random random = new Random();
+    private AXTrigTable trigTable = AXTrigTable.getDefault();
+    private AXSpectrumBands spectrumBands;
 
-    protected int N;
-    protected float L;
-
-    protected final Matrix m = new Matrix();
+    /**
+     * notified when a radius changes, the view caches values derived from the radii
+     */
+    Runnable radiusListener;
 
     public AXWaveDrawable(int n) {
-        init(n);
+        baseBlobCount = n;
+        legacyGenerator = overrides(getClass(), AXWaveDrawable.class, "generateBlob", float[].class, float[].class, int.class);
+        legacyHook = overrides(getClass(), AXWaveDrawable.class, "update");
+        batchable = !overrides(getClass(), AXWaveDrawable.class, "update", float.class, float.class, float.class)
+                && !overrides(getClass(), AXWaveDrawable.class, "computePoints", float.class, float.class);
+        shape = createShape(n);
+        points = new float[shape.getPointCapacity()];
+        mirrorShape();
+    }
+
+    protected AXWaveShape createShape(int n) {
+        return new AXBlobShape(n) {
+            @Override
+            protected void generateBlob(int i, int target) {
+                if (isLegacyGenerator()) {
+                    generateLegacyBlob(this, i, target);
+                } else {
+                    super.generateBlob(i, target);
+                }
+            }
+        };
     }
 
+    /**
+     * @deprecated regenerates the blob with the giving count, use {@link #setBlobCount(int)}
+     */
+    @Deprecated
     void init(int n) {
-        N = n;
-        L = (float) ((4.0 / 3.0) * Math.tan(Math.PI / (2 * N)));
-        radius = new float[n];
-        angle = new float[n];
-
-        radiusNext = new float[n];
-        angleNext = new float[n];
-        progress = new float[n];
-        speed = new float[n];
-
-        for (int i = 0; i < N; i++) {
-            generateBlob(radius, angle, i);
-            generateBlob(radiusNext, angleNext, i);
-            progress[i] = 0;
-        }
+        setBlobCount(n);
+        generateBlob();
     }
 
+    /**
+     * @deprecated override {@link AXWaveShape#generateBlob(int, int)} of the shape instead.
+     * writes a random target of the point into radius[i], angle[i] and {@link #speed}[i],
+     * subclasses that override it still generate the targets of the shape
+     */
+    @Deprecated
     protected void generateBlob(float[] radius, float[] angle, int i) {
+        Random random = (shape != null ? shape : generatingShape).getRandom();
         float angleDif = 360f / N * 0.05f;
         float radDif = maxRadius - minRadius;
         radius[i] = minRadius + Math.abs(((random.nextInt() % 100f) / 100f)) * radDif;
-        angle[i] = 360f / N * i + ((random.nextInt() % 100f) / 100f) * angleDif;
+        if (angle != null) angle[i] = 360f / N * i + ((random.nextInt() % 100f) / 100f) * angleDif;
         speed[i] = (float) (0.017 + 0.003 * (Math.abs(random.nextInt() % 100f) / 100f));
     }
 
-    public void update(float amplitude, float speedScale) {
-        for (int i = 0; i < N; i++) {
-            progress[i] += (speed[i] * minSpeed) + amplitude * speed[i] * maxSpeed * speedScale;
-            if (progress[i] >= 1f) {
-                progress[i] = 0;
-                radius[i] = radiusNext[i];
-                angle[i] = angleNext[i];
-                generateBlob(radiusNext, angleNext, i);
+    // the legacy generator also runs while the shape is created, before the shape field is assigned
+    private AXWaveShape generatingShape;
+
+    /**
+     * generate a target of the shape by {@link #generateBlob(float[], float[], int)}
+     */
+    @SuppressWarnings("deprecation")
+    void generateLegacyBlob(AXWaveShape shape, int i, int target) {
+        generatingShape = shape;
+        mirrorShape(shape);
+        ensureLegacyArrays(shape.getStateCount());
+
+        boolean next = target == AXWaveShape.RADIUS_NEXT;
+        float[] r = next ? radiusNext : radius;
+        float[] a = next ? angleNext : angle;
+        generateBlob(r, a, i);
+
+        float[] state = shape.getState();
+        int o = i * AXWaveShape.STRIDE;
+        state[o + target] = r[i];
+        state[o + target + 1] = a[i];
+        state[o + AXWaveShape.SPEED] = speed[i];
+    }
+
+    boolean isLegacyGenerator() {
+        return legacyGenerator;
+    }
+
+    /**
+     * @return true if the batch can update the shape and compute its points like this drawable does
+     */
+    boolean isBatchable(AXBatchSimulation batch) {
+        return batchable && trigTable != null && batch.getTrigTable() == trigTable;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void ensureLegacyArrays(int count) {
+        if (radius == null || radius.length < count) {
+            radius = new float[count];
+            angle = new float[count];
+            radiusNext = new float[count];
+            angleNext = new float[count];
+            progress = new float[count];
+            speed = new float[count];
+        }
+    }
+
+    /**
+     * call the {@link #update()} hook, a subclass that overrides it reads and writes
+     * the deprecated fields, so they are copied from the shape before and written back after it
+     */
+    @SuppressWarnings("deprecation")
+    void dispatchUpdate() {
+        onUpdate();
+        if (!legacyHook) return;
+
+        mirrorShape();
+        final int count = shape.getStateCount();
+        ensureLegacyArrays(count);
+        float[] state = shape.getState();
+        for (int i = 0, o = 0; i < count; i++, o += AXWaveShape.STRIDE) {
+            radius[i] = state[o + AXWaveShape.RADIUS];
+            angle[i] = state[o + AXWaveShape.ANGLE];
+            radiusNext[i] = state[o + AXWaveShape.RADIUS_NEXT];
+            angleNext[i] = state[o + AXWaveShape.ANGLE_NEXT];
+            progress[i] = state[o + AXWaveShape.PROGRESS];
+            speed[i] = state[o + AXWaveShape.SPEED];
+        }
+
+        update();
+
+        // the hook changed the number of points through the API, the arrays are stale
+        if (shape.getStateCount() != count) return;
+        state = shape.getState();
+        for (int i = 0, o = 0; i < count; i++, o += AXWaveShape.STRIDE) {
+            state[o + AXWaveShape.RADIUS] = radius[i];
+            state[o + AXWaveShape.ANGLE] = angle[i];
+            state[o + AXWaveShape.RADIUS_NEXT] = radiusNext[i];
+            state[o + AXWaveShape.ANGLE_NEXT] = angleNext[i];
+            state[o + AXWaveShape.PROGRESS] = progress[i];
+            state[o + AXWaveShape.SPEED] = speed[i];
+        }
+        shape.setMinSpeed(minSpeed);
+        shape.setMaxSpeed(maxSpeed);
+        setMinRadius(minRadius, autoMin);
+        setMaxRadius(maxRadius, autoMax);
+    }
+
+    void mirrorShape() {
+        mirrorShape(shape);
+    }
+
+    /**
+     * copy the values of the shape into the deprecated fields
+     */
+    @SuppressWarnings("deprecation")
+    private void mirrorShape(AXWaveShape shape) {
+        N = shape.getBlobCount();
+        L = (float) ((4.0 / 3.0) * Math.tan(Math.PI / (2 * N)));
+        minRadius = shape.getMinRadius();
+        maxRadius = shape.getMaxRadius();
+        minSpeed = shape.getMinSpeed();
+        maxSpeed = shape.getMaxSpeed();
+    }
+
+    /**
+     * @return true if the class overrides the method of the giving base class
+     */
+    static boolean overrides(Class<?> c, Class<?> base, String name, Class<?>... parameters) {
+        for (; c != null && c != base; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameters);
+                return true;
+            } catch (NoSuchMethodException ignored) {
             }
         }
+        return false;
+    }
+
+    public AXWaveShape getShape() {
+        return shape;
+    }
+
+    public void update(float amplitude, float speedScale) {
+        update(amplitude, speedScale, AXFrameClock.DEFAULT_FRAME_TIME);
+    }
+
+    /**
+     * @param dt elapsed time since the previous frame (ms)
+     */
+    public void update(float amplitude, float speedScale, float dt) {
+        shape.update(amplitude, speedScale, dt);
     }
 
     public void draw(float cX, float cY, Canvas canvas, Paint paint) {
-        path.reset();
+        buildPath(cX, cY);
+        drawPath(canvas, paint);
+    }
+
+    /**
+     * build the wave path around the center,
+     * the same path can be drawn several times by {@link #drawPath(Canvas, Paint)}
+     */
+    public void buildPath(float cX, float cY) {
+        computePoints(cX, cY);
+        emitPath(points);
+    }
+
+    /**
+     * compute the path points around the center into {@link #points},
+     * doesn't touch the path so it can run on a background thread
+     */
+    public void computePoints(float cX, float cY) {
         firstDraw = false;
+        if (trigTable == null) {
+            computePointsExact(cX, cY);
+        } else {
+            shape.computePoints(cX, cY, cX, cY, points, trigTable);
+        }
+    }
 
-        for (int i = 0; i < N; i++) {
-            float progress = this.progress[i];
-            int nextIndex = i + 1 < N ? i + 1 : 0;
-            float progressNext = this.progress[nextIndex];
-            float r1 = radius[i] * (1f - progress) + radiusNext[i] * progress;
-            float r2 = radius[nextIndex] * (1f - progressNext) + radiusNext[nextIndex] * progressNext;
-            float angle1 = angle[i] * (1f - progress) + angleNext[i] * progress;
-            float angle2 = angle[nextIndex] * (1f - progressNext) + angleNext[nextIndex] * progressNext;
+    /**
+     * rotate the blob points using {@link Matrix}, same output as the original implementation
+     */
+    @SuppressWarnings("deprecation")
+    private void computePointsExact(float cX, float cY) {
+        final int n = shape.getBlobCount();
+        for (int i = 0, p = 2; i < n; i++, p += 6) {
+            int nextIndex = i + 1 < n ? i + 1 : 0;
+            float r1 = shape.radius(i);
+            float r2 = shape.radius(nextIndex);
+            float angle1 = shape.angle(i);
+            float angle2 = shape.angle(nextIndex);
 
             float l = L * (Math.min(r1, r2) + (Math.max(r1, r2) - Math.min(r1, r2)) / 2f);
             m.reset();
@@ -132,80 +344,198 @@ public class AXWaveDrawable {
             m.mapPoints(pointEnd);
 
             if (i == 0) {
-                path.moveTo(pointStart[0], pointStart[1]);
+                points[0] = pointStart[0];
+                points[1] = pointStart[1];
             }
 
+            points[p] = pointStart[2];
+            points[p + 1] = pointStart[3];
+            points[p + 2] = pointEnd[2];
+            points[p + 3] = pointEnd[3];
+            points[p + 4] = pointEnd[0];
+            points[p + 5] = pointEnd[1];
+        }
+    }
+
+    /**
+     * build the path from the giving points (same layout as {@link #points})
+     */
+    public void emitPath(float[] points) {
+        emitPath(points, shape.getBlobCount());
+    }
+
+    /**
+     * build the path from points computed with the giving blob count
+     */
+    public void emitPath(float[] points, int count) {
+        path.reset();
+        path.moveTo(points[0], points[1]);
+        for (int i = 0, p = 2; i < count; i++, p += 6) {
             path.cubicTo(
-                    pointStart[2], pointStart[3],
-                    pointEnd[2], pointEnd[3],
-                    pointEnd[0], pointEnd[1]
+                    points[p], points[p + 1],
+                    points[p + 2], points[p + 3],
+                    points[p + 4], points[p + 5]
             );
         }
+    }
 
+    /**
+     * draw the path built by the last {@link #buildPath(float, float)}
+     */
+    public void drawPath(Canvas canvas, Paint paint) {
         canvas.save();
         canvas.drawPath(path, paint);
         canvas.restore();
     }
 
     public void generateBlob() {
-        for (int i = 0; i < N; i++) {
-            generateBlob(radius, angle, i);
-            generateBlob(radiusNext, angleNext, i);
-            progress[i] = 0;
-        }
+        shape.generateBlob();
+    }
+
+    /**
+     * seed the random generator and regenerate the blob,
+     * drawables with the same seed and the same updates draw the same frames
+     */
+    public void setSeed(long seed) {
+        shape.setSeed(seed);
+    }
+
+    public long getSeed() {
+        return shape.getSeed();
     }
 
+    /**
+     * called once per frame before the path is built,
+     * the deprecated fields can be changed here, see {@link #dispatchUpdate()}
+     */
     protected void update() {};
 
+    /**
+     * per-frame hook of the views, works on the shape directly without syncing the deprecated fields
+     */
+    void onUpdate() {
+    }
+
     public float getMaxRadius() {
-        return maxRadius;
+        return shape.getMaxRadius();
     }
 
     public void setMaxRadius(float maxRadius) {
-        this.maxRadius = maxRadius;
-        autoMax = maxRadius<0;
+        setMaxRadius(maxRadius, maxRadius<0);
     }
 
     void setMaxRadius(float maxRadius,boolean auto) {
-        this.maxRadius = maxRadius;
         autoMax = auto;
+        if (maxRadius == shape.getMaxRadius()) return;
+        shape.setMaxRadius(maxRadius);
+        mirrorShape();
+        if (radiusListener != null) radiusListener.run();
     }
 
     public float getMinRadius() {
-        return minRadius;
+        return shape.getMinRadius();
     }
 
     public void setMinRadius(float minRadius) {
-        this.minRadius = minRadius;
-        autoMin = minRadius<0;
+        setMinRadius(minRadius, minRadius<0);
     }
 
     void setMinRadius(float minRadius,boolean auto) {
-        this.minRadius = minRadius;
         autoMin = auto;
+        if (minRadius == shape.getMinRadius()) return;
+        shape.setMinRadius(minRadius);
+        mirrorShape();
+        if (radiusListener != null) radiusListener.run();
     }
 
     public float getMaxSpeed() {
-        return maxSpeed;
+        return shape.getMaxSpeed();
     }
 
     public void setMaxSpeed(float maxSpeed) {
-        this.maxSpeed = maxSpeed;
+        shape.setMaxSpeed(maxSpeed);
+        mirrorShape();
     }
 
     public float getMinSpeed() {
-        return minSpeed;
+        return shape.getMinSpeed();
     }
 
     public void setMinSpeed(float minSpeed) {
-        this.minSpeed = minSpeed;
+        shape.setMinSpeed(minSpeed);
+        mirrorShape();
+    }
+
+    public AXTrigTable getTrigTable() {
+        return trigTable;
+    }
+
+    /**
+     * rotate the blob points using the giving table,
+     * null for the exact {@link Matrix} rotation of the original implementation.
+     * the views don't batch the drawables in the exact mode
+     */
+    public void setTrigTable(AXTrigTable trigTable) {
+        this.trigTable = trigTable;
+    }
+
+    /**
+     * @return points of the last built path
+     */
+    public float[] getPoints() {
+        return points;
     }
 
     public int getBlobCount() {
-        return N;
+        return shape.getBlobCount();
+    }
+
+    /**
+     * @return blob count the drawable was created with, the level of detail scales it
+     */
+    public int getBaseBlobCount() {
+        return baseBlobCount;
+    }
+
+    /**
+     * change the number of blob points, the shape continues from its current outline
+     */
+    public void setBlobCount(int count) {
+        shape.setBlobCount(count);
+        mirrorShape();
+        if (points.length < shape.getPointCapacity()) {
+            points = new float[shape.getPointCapacity()];
+        }
+    }
+
+    /**
+     * preallocate the state for the giving blob count
+     */
+    public void ensureCapacity(int count) {
+        shape.ensureCapacity(count);
+        if (points.length < shape.getPointCapacity()) {
+            points = new float[shape.getPointCapacity()];
+        }
+    }
+
+    public AXSpectrumBands getSpectrumBands() {
+        return spectrumBands;
+    }
+
+    /**
+     * drive the points by the levels of the bands instead of random targets,
+     * null to go back to the random waves
+     */
+    public void setSpectrumBands(AXSpectrumBands spectrumBands) {
+        this.spectrumBands = spectrumBands;
+        shape.setSpectrum(spectrumBands != null ? spectrumBands.getLevels() : null);
     }
 
+    /**
+     * @deprecated use {@link #setBlobCount(int)}
+     */
+    @Deprecated
     public void getBlobCount(int count) {
-        init(count);
+        setBlobCount(count);
     }
 }
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.os.Build;
+import android.view.Choreographer;
+
+import androidx.annotation.RequiresApi;
+
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide vsync source of the wave views.
+ * Every {@link AXFrameClock} that requested a frame is dispatched in one loop of a single
+ * Choreographer callback, instead of one callback per view. Idle and invisible views don't request
+ * frames, so only views whose output changes get invalidated.
+ * With the shared step enabled the views don't simulate in their onDraw, the ticker advances
+ * the waves and states of every animating view in one loop at the start of the vsync
+ * and the views only draw the results. With a {@link AXBatchSimulation} the shapes of that step
+ * are updated in one batch on the pool of the batch.
+ * With a budget, clocks are dispatched until the sum of their last frame costs reaches it and
+ * the rest are deferred to the next vsync (first in line), their next delta covers the skipped time.
+ * Clocks are removed when their frame is cancelled (e.g. the view gets detached or recycled).
+ * Use it on the UI thread only.
+ */
+public class AXWaveTicker implements Choreographer.FrameCallback {
+
+    private static AXWaveTicker instance;
+
+    public static AXWaveTicker getInstance() {
+        if (instance == null) instance = new AXWaveTicker();
+        return instance;
+    }
+
+    private ArrayList<AXFrameClock> pending = new ArrayList<>();
+    private ArrayList<AXFrameClock> dispatching = new ArrayList<>();
+    private ArrayList<Runnable> steps = new ArrayList<>();
+    private ArrayList<Runnable> stepping = new ArrayList<>();
+    private boolean sharedStep;
+    private AXBatchSimulation batch;
+    private boolean scheduled;
+    private long budget = 0;
+    private int deferredFrames;
+
+    AXWaveTicker() {
+    }
+
+    void post(AXFrameClock clock) {
+        if (!pending.contains(clock)) pending.add(clock);
+        schedule();
+    }
+
+    void remove(AXFrameClock clock) {
+        pending.remove(clock);
+        // cancelled during the dispatch (e.g. detached by an earlier callback), skip it
+        int index = dispatching.indexOf(clock);
+        if (index >= 0) dispatching.set(index, null);
+        if (pending.isEmpty() && steps.isEmpty() && scheduled) {
+            scheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    /**
+     * run the step of a view at the start of the next vsync
+     */
+    void requestStep(Runnable step) {
+        steps.add(step);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        if (!steps.isEmpty()) step();
+
+        // clocks posted while dispatching wait for the next vsync
+        ArrayList<AXFrameClock> clocks = pending;
+        pending = dispatching;
+        dispatching = clocks;
+
+        long cost = 0;
+        for (int i = 0; i < clocks.size(); i++) {
+            AXFrameClock clock = clocks.get(i);
+            if (clock == null) continue;
+            if (budget > 0 && cost >= budget) {
+                deferredFrames++;
+                post(clock);
+                continue;
+            }
+            cost += clock.getFrameCost();
+            clock.doFrame(frameTimeNanos);
+        }
+        clocks.clear();
+    }
+
+    /**
+     * advance every requested simulation, the views draw the results in this vsync
+     */
+    private void step() {
+        ArrayList<Runnable> steps = this.steps;
+        this.steps = stepping;
+        stepping = steps;
+
+        AXBatchSimulation batch = this.batch;
+        if (batch == null) {
+            for (int i = 0; i < steps.size(); i++) {
+                steps.get(i).run();
+            }
+        } else {
+            batch.clear();
+            for (int i = 0; i < steps.size(); i++) {
+                Runnable step = steps.get(i);
+                if (step instanceof BatchStep) ((BatchStep) step).beginBatch(batch);
+            }
+            // every instance has its own elapsed time
+            batch.step(0);
+            for (int i = 0; i < steps.size(); i++) {
+                Runnable step = steps.get(i);
+                if (step instanceof BatchStep) {
+                    ((BatchStep) step).endBatch(batch);
+                } else {
+                    step.run();
+                }
+            }
+            batch.clear();
+        }
+        steps.clear();
+    }
+
+    /**
+     * @return number of clocks waiting for the next vsync
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return number of frames deferred to a later vsync because of the budget
+     */
+    public int getDeferredFrames() {
+        return deferredFrames;
+    }
+
+    public boolean isSharedStepEnabled() {
+        return sharedStep;
+    }
+
+    /**
+     * advance the waves and states of every view in one loop of the ticker instead of in their onDraw,
+     * a view draws the results of the step that ran at the start of the vsync.
+     * views with background simulation keep simulating on the worker
+     */
+    public void setSharedStepEnabled(boolean enabled) {
+        sharedStep = enabled;
+    }
+
+    public AXBatchSimulation getBatchSimulation() {
+        return batch;
+    }
+
+    /**
+     * update the shapes of the shared step in one batch,
+     * the per-frame hooks of the drawables run before the batch. null to step every view by itself
+     */
+    @RequiresApi(api = Build.VERSION_CODES.LOLLIPOP)
+    public void setBatchSimulation(AXBatchSimulation batch) {
+        this.batch = batch;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget total frame cost of the views per vsync (ns), 0 to draw every view on every vsync
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * step of the shared step that adds its shapes to the batch simulation
+     */
+    interface BatchStep extends Runnable {
+
+        /**
+         * add the shapes of the step to the batch, called before the batch is stepped
+         */
+        void beginBatch(AXBatchSimulation batch);
+
+        /**
+         * finish the step with the points of the batch, called instead of {@link #run()}
+         */
+        void endBatch(AXBatchSimulation batch);
+    }
+}
@@ -19,6 +19,7 @@
 package com.aghajari.waveanimation;
 
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -29,6 +30,7 @@ import android.graphics.RadialGradient;
 import android.graphics.Shader;
 import android.os.Build;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.util.TypedValue;
 import android.view.View;
 import android.view.animation.Interpolator;
@@ -38,23 +40,29 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+import com.aghajari.waveanimation.core.AXEnvelopeFollower;
+import com.aghajari.waveanimation.core.AXLevelOfDetail;
+import com.aghajari.waveanimation.core.AXSpectrum;
+import com.aghajari.waveanimation.core.AXSpectrumBands;
+
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Amir Hossein Aghajari
  * @version 1.0.0
  */
-public class AXWaveView extends View {
+public class AXWaveView extends View implements AXAmplitudeReceiver {
 
     Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     float amplitude;
-    float animateToAmplitude;
-    float animateAmplitudeDiff;
+    final AXEnvelopeFollower amplitudeFollower = new AXEnvelopeFollower();
     float amplitudeSpeed = 0.33f;
 
     private boolean stub;
@@ -67,6 +75,7 @@ public class AXWaveView extends View {
     boolean prepareToRemove;
     float progressToPrepareRemove = 0;
     private Shader prepareToRemoveShader;
+    private boolean removeShaderReleased;
     Matrix matrix = new Matrix();
     int removeColor = Color.RED;
     float removeAngle;
@@ -75,6 +84,37 @@ public class AXWaveView extends View {
 
     float wavesEnter = 0f;
     Random random = new Random();
+    AXFrameClock clock = new AXFrameClock(new AXFrameClock.Callback() {
+        @Override
+        public void onFrame(AXFrameClock clock) {
+            invalidate();
+        }
+    });
+    AXVisibilityTracker visibility = new AXVisibilityTracker(this);
+    AXAmplitudeInput amplitudeInput = new AXAmplitudeInput();
+    final AtomicBoolean animating = new AtomicBoolean();
+    float idleThreshold = -1f;
+    AXBackgroundSimulation simulation;
+    boolean seeded;
+    long seed;
+    AXFrameMetrics metrics;
+    AXLevelOfDetail lod;
+    boolean lodDirty;
+    // shaders to release once the worker is idle
+    private final ArrayList<AXWeavingState> pendingReleases = new ArrayList<>();
+    private boolean pendingReleaseAll;
+    boolean backgroundSimulation;
+    private final Runnable simulationIdle = new Runnable() {
+        @Override
+        public void run() {
+            onSimulationIdle();
+        }
+    };
+    AXQualityGovernor governor;
+    int qualityTier = AXQualityGovernor.TIER_FULL;
+    AXSpectrum spectrum;
+    float[] spectrumPower;
+    AXTimelinePlayer timeline;
 
     boolean pressedState;
     float pressedProgress;
@@ -93,9 +133,30 @@ public class AXWaveView extends View {
     int shaderColor2;
 
     List<AXWaveDrawable> waveDrawables = new ArrayList<>();
-    Map<Integer,AXWeavingState> states = new HashMap<>();
+    SparseArray<AXWeavingState> states = new SparseArray<>();
+    private Map<Integer,AXWeavingState> stateMap;
     Interpolator interpolator = new OvershootInterpolator();
 
+    // derived geometry, refreshed on layout, configuration and radius changes instead of every frame
+    float density;
+    boolean geometryDirty = true;
+    boolean circleRadiusDirty = true;
+    float firstWaveMaxRadius;
+    float firstWaveMinRadius;
+    float secondWaveMaxRadius;
+    float secondWaveMinRadius;
+    float waveScaleRange;
+    float waveScaleDef;
+    float cachedCircleRadius;
+    // set by the drawables, also from the simulation thread, consumed by the next frame
+    final AtomicBoolean radiusChanged = new AtomicBoolean();
+    final Runnable radiusListener = new Runnable() {
+        @Override
+        public void run() {
+            radiusChanged.set(true);
+        }
+    };
+
     public AXWaveView(Context context) {
         super(context);
         init(null,0,0);
@@ -118,6 +179,7 @@ public class AXWaveView extends View {
     }
 
     private void init(@Nullable AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        density = getResources().getDisplayMetrics().density;
         if (attrs!=null) {
             final TypedArray a = getContext().obtainStyledAttributes(
                     attrs, R.styleable.AXWaveView, defStyleAttr, defStyleRes);
@@ -140,10 +202,10 @@ public class AXWaveView extends View {
 
             setAmplitude(a.getFloat(R.styleable.AXWaveView_amplitude, -1f));
 
-            prepareToRemoveShader = new LinearGradient(0, 0, dp(100 + 250), 0,
+            prepareToRemoveShader = AXShaderCache.getInstance().acquireLinear(dp(100 + 250),
                     new int[] {a.getColor(R.styleable.AXWaveView_shader_remove_color_1, getThemeColor(1)),
                             a.getColor(R.styleable.AXWaveView_shader_remove_color_2, getThemeColor(2)),
-                            Color.TRANSPARENT}, new float[] {0, 0.4f, 1f}, Shader.TileMode.CLAMP);
+                            Color.TRANSPARENT}, new float[] {0, 0.4f, 1f});
             a.recycle();
         }else {
             shaderColor1 = getThemeColor(1);
@@ -156,27 +218,31 @@ public class AXWaveView extends View {
         addWaveDrawable(new AXWaveDrawable(8){
 
             @Override
-            public void update() {
-                if (autoMax) setMaxRadius(AXWaveView.this.findSecondWaveMaxRadius(),true);
-                if (autoMin) setMinRadius(findSecondWaveMinRadius(),true);
+            void onUpdate() {
+                if (autoMax) setMaxRadius(secondWaveMaxRadius,true);
+                if (autoMin) setMinRadius(secondWaveMinRadius,true);
             }
         });
 
         addWaveDrawable(new AXWaveDrawable(9){
             @Override
-            public void update() {
-                if (autoMax) setMaxRadius(findSecondWaveMaxRadius() - dp(2),true);
-                if (autoMin) setMinRadius(findSecondWaveMinRadius() + dp(1),true);
+            void onUpdate() {
+                if (autoMax) setMaxRadius(secondWaveMaxRadius - dp(2),true);
+                if (autoMin) setMinRadius(secondWaveMinRadius + dp(1),true);
             }
         });
     }
 
+    /**
+     * @return shared shader of {@link AXShaderCache}, a subclass may return its own shader
+     */
     protected Shader createDefaultRemoveShader(){
-        return createLinearShader(dp(350),Color.GRAY,Color.GRAY,Color.TRANSPARENT);
+        return AXShaderCache.getInstance().acquireLinear(dp(350),
+                new int[]{Color.GRAY, Color.GRAY, Color.TRANSPARENT}, new float[]{0, 0.4f, 1f});
     }
 
     protected AXWeavingState createDefaultState(){
-        return AXWeavingState.create(-1,createRadialShader(200,shaderColor1,shaderColor2));
+        return AXWeavingState.createRadial(-1,200,shaderColor1,shaderColor2);
     }
 
     private int getThemeColor(int index) {
@@ -225,16 +291,18 @@ public class AXWaveView extends View {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        refreshGeometry();
         for (AXWaveDrawable waveDrawable : waveDrawables){
             if (waveDrawable.autoMax) {
-                waveDrawable.setMaxRadius(waveDrawable.firstDraw ? findFirstWaveMaxRadius() : findSecondWaveMaxRadius(),true);
+                waveDrawable.setMaxRadius(waveDrawable.firstDraw ? firstWaveMaxRadius : secondWaveMaxRadius,true);
             }
             if (waveDrawable.autoMin) {
-                waveDrawable.setMinRadius(waveDrawable.firstDraw ? findFirstWaveMinRadius() : findSecondWaveMinRadius(),true);
+                waveDrawable.setMinRadius(waveDrawable.firstDraw ? firstWaveMinRadius : secondWaveMinRadius,true);
             }
 
             if (waveDrawable.autoMax || waveDrawable.autoMin) waveDrawable.generateBlob();
         }
+        if (lod != null) lodDirty = true;
 
         if (currentState == null && previousState == null && isEnabled()) {
             setState(createDefaultState());
@@ -251,29 +319,32 @@ public class AXWaveView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (getAlpha() == 0) return;
+        if (getAlpha() == 0) {
+            pauseAnimation();
+            return;
+        }
 
         float cx = getMeasuredWidth() >> 1;
         float cy = getMeasuredHeight() >> 1;
 
         // DESIGNER
         if (isInEditMode()){
-            currentState.update(16, MAX_AMPLITUDE);
+            currentState.update(AXFrameClock.DEFAULT_FRAME_TIME, MAX_AMPLITUDE);
             currentState.loadMatrix();
             currentState.setToPaint(paint);
 
             for (int index = 0; index < waveDrawables.size(); index++) {
                 AXWaveDrawable waveDrawable = waveDrawables.get(index);
-                waveDrawable.update();
+                waveDrawable.dispatchUpdate();
 
                 float scale = findWaveScale(index);
                 scale = Math.min(scale, 1.3f);
                 canvas.save();
                 canvas.scale(scale, scale, cx, cy);
                 paint.setAlpha(maxAlpha*2);
-                canvas.drawCircle(cx,cy,waveDrawable.maxRadius,paint);
+                canvas.drawCircle(cx,cy,waveDrawable.getMaxRadius(),paint);
                 paint.setAlpha(maxAlpha);
-                canvas.drawCircle(cx,cy,waveDrawable.minRadius,paint);
+                canvas.drawCircle(cx,cy,waveDrawable.getMinRadius(),paint);
                 canvas.restore();
             }
 
@@ -288,13 +359,22 @@ public class AXWaveView extends View {
             return;
         }
 
+        if (metrics != null) metrics.beginFrame();
+        if (geometryDirty) refreshGeometry();
+        if (governor != null) {
+            governor.beginFrame();
+            if (governor.getTier() != qualityTier) applyQualityTier(governor.getTier());
+        }
+        final float dt = clock.tick();
+        if (amplitudeInput.drain()) applyAmplitude(amplitudeInput.getValue());
+
         if (pressedState && pressedProgress != 1f) {
-            pressedProgress += 16f / 150f;
+            pressedProgress += dt / 150f;
             if (pressedProgress > 1f) {
                 pressedProgress = 1f;
             }
         } else if (!pressedState && pressedProgress != 0) {
-            pressedProgress -= 16f / 150f;
+            pressedProgress -= dt / 150f;
             if (pressedProgress < 0f) {
                 pressedProgress = 0f;
             }
@@ -302,34 +382,25 @@ public class AXWaveView extends View {
 
         if (stub) loadStubWaves();
 
-        if (animateToAmplitude != amplitude) {
-            amplitude += animateAmplitudeDiff * 16;
-            if (animateAmplitudeDiff > 0) {
-                if (amplitude > animateToAmplitude) {
-                    amplitude = animateToAmplitude;
-                }
-            } else {
-                if (amplitude < animateToAmplitude) {
-                    amplitude = animateToAmplitude;
-                }
-            }
-        }
+        amplitude = amplitudeFollower.update(dt);
 
         if (previousState != null) {
-            progressToState += 16 / 250f;
+            progressToState += dt / 250f;
             if (progressToState > 1f) {
                 progressToState = 1f;
+                AXWeavingState dropped = previousState;
                 previousState = null;
+                releaseShader(dropped);
             }
         }
 
         if (prepareToRemove && progressToPrepareRemove != 1f) {
-            progressToPrepareRemove += 16f / 350f;
+            progressToPrepareRemove += dt / 350f;
             if (progressToPrepareRemove > 1f) {
                 progressToPrepareRemove = 1f;
             }
         } else if (!prepareToRemove && progressToPrepareRemove != 0) {
-            progressToPrepareRemove -= 16f / 350f;
+            progressToPrepareRemove -= dt / 350f;
             if (progressToPrepareRemove < 0f) {
                 progressToPrepareRemove = 0f;
             }
@@ -337,12 +408,12 @@ public class AXWaveView extends View {
         boolean showWaves = currentState.supportWaves();
 
         if (showWaves && wavesEnter != 1f) {
-            wavesEnter += 16f / 350f;
+            wavesEnter += dt / 350f;
             if (wavesEnter > 1f) {
                 wavesEnter = 1f;
             }
         } else if (!showWaves && wavesEnter != 0f) {
-            wavesEnter -= 16f / 350f;
+            wavesEnter -= dt / 350f;
             if (wavesEnter < 0f) {
                 wavesEnter = 0f;
             }
@@ -350,13 +421,53 @@ public class AXWaveView extends View {
 
         float wavesEnter = 0.65f + 0.35f * interpolator.getInterpolation(this.wavesEnter);
 
-        for (AXWaveDrawable blobDrawable : waveDrawables){
-            blobDrawable.update(amplitude, stub ? 0.1f : getSpeedScale());
+        // blob counts change only while the worker isn't reading the drawables
+        if (lodDirty && (simulation == null || !simulation.isBusy())) applyLevelOfDetail();
+
+        // follows the shared step setting of the ticker
+        updateSimulation();
+        if (timeline != null) timeline.advance(dt);
+        AXBackgroundSimulation.Frame frame = timeline == null && simulation != null ? simulation.acquire() : null;
+        // simulate on this thread until the worker publishes its first frame
+        final boolean simulate = timeline != null || simulation == null || (frame == null && !simulation.isBusy());
+
+        final int waveCount = qualityTier >= AXQualityGovernor.TIER_PRIMARY_WAVES
+                ? Math.min(1, waveDrawables.size()) : waveDrawables.size();
+        final boolean crossFade = previousState != null && qualityTier < AXQualityGovernor.TIER_NO_CROSS_FADE;
+
+        if (spectrum != null) updateSpectrum(dt);
+
+        final long lodStart = lod != null && lod.getBudget() > 0 ? System.nanoTime() : 0;
+        if (simulate) {
+            for (int index = 0; index < waveCount; index++) {
+                AXWaveDrawable waveDrawable = waveDrawables.get(index);
+                if (timeline == null || !timeline.apply(index, waveDrawable)) {
+                    waveDrawable.update(amplitude, stub ? 0.1f : getSpeedScale(), dt);
+                }
+            }
         }
 
+        if (metrics != null) metrics.markUpdate();
+
+        // the geometry is the same in every pass, build it once and re-stroke it
+        if (this.wavesEnter != 0) {
+            for (int index = 0; index < waveCount; index++) {
+                AXWaveDrawable waveDrawable = waveDrawables.get(index);
+                if (simulate) {
+                    waveDrawable.dispatchUpdate();
+                    waveDrawable.buildPath(cx, cy);
+                } else if (frame != null) {
+                    frame.emitPath(waveDrawable);
+                }
+            }
+        }
+
+        if (metrics != null) metrics.markBuild();
+        if (lodStart != 0 && lod.onFrameCost(System.nanoTime() - lodStart)) lodDirty = true;
+
         for (int i = 0; i < 3; i++) {
             float alpha = 1f;
-            if (i == 0 && previousState == null) {
+            if (i == 0 && !crossFade) {
                 continue;
             }
 
@@ -365,19 +476,28 @@ public class AXWaveView extends View {
                     continue;
                 }
                 alpha = 1f - progressToState;
-                previousState.update(16, amplitude);
-                previousState.loadMatrix();
+                if (simulate) {
+                    if (timeline == null || !timeline.apply(previousState)) previousState.update(dt, amplitude);
+                    previousState.loadMatrix();
+                } else {
+                    simulation.loadMatrix(frame, previousState);
+                }
                 previousState.setToPaint(paint);
             } else if (i == 1) {
                 if (currentState == null) {
+                    pauseAnimation();
                     return;
                 }
                 if (progressToPrepareRemove == 1f) {
                     continue;
                 }
-                alpha = previousState != null ? progressToState : 1f;
-                currentState.update(16, amplitude);
-                currentState.loadMatrix();
+                alpha = crossFade ? progressToState : 1f;
+                if (simulate) {
+                    if (timeline == null || !timeline.apply(currentState)) currentState.update(dt, amplitude);
+                    currentState.loadMatrix();
+                } else {
+                    simulation.loadMatrix(frame, currentState);
+                }
                 currentState.setToPaint(paint);
             } else {
                 if (prepareToRemoveShader!=null) {
@@ -393,6 +513,7 @@ public class AXWaveView extends View {
                     paint.setShader(prepareToRemoveShader);
                 }
             }
+            if (metrics != null) metrics.pass();
 
             if (this.wavesEnter != 0) {
                 if (removeWave){
@@ -405,15 +526,12 @@ public class AXWaveView extends View {
                     }
                 }
 
-                for (int index = 0; index < waveDrawables.size(); index++) {
-                    AXWaveDrawable waveDrawable = waveDrawables.get(index);
-                    waveDrawable.update();
-
+                for (int index = 0; index < waveCount; index++) {
                     float scale = findWaveScale(index);
                     scale = Math.min(scale, 1.3f) * wavesEnter;
                     canvas.save();
                     canvas.scale(scale, scale, cx, cy);
-                    waveDrawable.draw(cx, cy, canvas, paint);
+                    waveDrawables.get(index).drawPath(canvas, paint);
                     canvas.restore();
                 }
             }
@@ -428,22 +546,185 @@ public class AXWaveView extends View {
                 }
                 canvas.save();
                 canvas.scale(1f + 0.1f * pressedProgress, 1f + 0.1f * pressedProgress, cx, cy);
-                canvas.drawCircle(cx, cy, circleRadius==-1 ? findCircleRadius() : circleRadius, paint);
+                canvas.drawCircle(cx, cy, circleRadius==-1 ? getCachedCircleRadius() : circleRadius, paint);
                 canvas.restore();
             }
         }
 
-        if (this.wavesEnter > 0)
-            invalidate();
+        // only step while the view keeps drawing frames, an idle or hidden view doesn't need new ones
+        if (timeline == null && isSimulationCurrent() && !isIdle() && visibility.isVisible()
+                && simulation.prepare(simulate ? 0 : dt)) {
+            simulation.amplitude = amplitude;
+            simulation.speedScale = stub ? 0.1f : getSpeedScale();
+            simulation.left = simulation.right = cx;
+            simulation.top = simulation.bottom = cy;
+            simulation.buildPaths = this.wavesEnter != 0;
+            simulation.setDrawables(waveDrawables, waveCount);
+            simulation.currentState = currentState;
+            simulation.previousState = previousState;
+            simulation.start();
+        }
+        if (metrics != null) metrics.endFrame(isIdle());
+        if (governor != null) governor.endFrame();
+        clock.endFrame();
+        scheduleNextFrame();
+    }
+
+    private void applyQualityTier(int tier) {
+        qualityTier = tier;
+        paint.setAntiAlias(tier < AXQualityGovernor.TIER_NO_ANTI_ALIAS);
+        clock.setFrameInterval(tier >= AXQualityGovernor.TIER_HALF_RATE ? 2 : 1);
+    }
+
+    private void applyLevelOfDetail() {
+        if (getWidth() == 0 || getHeight() == 0) return;
+        lodDirty = false;
+        float sizeRatio = Math.min(getWidth(), getHeight()) / (float) dp(LOD_REFERENCE_SIZE);
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            AXWaveDrawable waveDrawable = waveDrawables.get(index);
+            int base = waveDrawable.getBaseBlobCount();
+            waveDrawable.setBlobCount(lod != null ? lod.getCount(base, sizeRatio) : base);
+        }
+    }
+
+    private AXBackgroundSimulation createSimulation(AXWaveTicker ticker) {
+        return new AXBackgroundSimulation(this, animating, ticker) {
+            @Override
+            protected void step(Frame frame) {
+                for (int index = 0; index < drawableCount; index++) {
+                    step(frame, (AXWaveDrawable) drawables[index]);
+                }
+                stepStates(frame);
+            }
+
+            @Override
+            protected void addShapes(AXBatchSimulation batch) {
+                // the paths aren't drawn, the drawables only update
+                if (!buildPaths) return;
+                for (int index = 0; index < drawableCount; index++) {
+                    AXWaveDrawable waveDrawable = (AXWaveDrawable) drawables[index];
+                    if (!waveDrawable.isBatchable(batch)) continue;
+                    waveDrawable.dispatchUpdate();
+                    int i = batch.add(waveDrawable.getShape());
+                    batch.setInput(i, amplitude, speedScale, dt);
+                    batch.setCenter(i, left, top);
+                }
+            }
+
+            @Override
+            protected void finishStep(Frame frame, AXBatchSimulation batch, int start) {
+                for (int index = 0, i = start; index < drawableCount; index++) {
+                    AXWaveDrawable waveDrawable = (AXWaveDrawable) drawables[index];
+                    if (i < batch.size() && batch.getShape(i) == waveDrawable.getShape()) {
+                        waveDrawable.firstDraw = false;
+                        frame.addPoints(waveDrawable, batch.getPoints(i++));
+                    } else {
+                        step(frame, waveDrawable);
+                    }
+                }
+                stepStates(frame);
+            }
+
+            private void step(Frame frame, AXWaveDrawable waveDrawable) {
+                waveDrawable.update(amplitude, speedScale, dt);
+                if (buildPaths) {
+                    waveDrawable.dispatchUpdate();
+                    waveDrawable.computePoints(left, top);
+                    frame.addPoints(waveDrawable);
+                }
+            }
+
+            private void stepStates(Frame frame) {
+                if (previousState != null) {
+                    previousState.update(dt, amplitude);
+                    frame.addState(previousState);
+                }
+                if (currentState != null) {
+                    currentState.update(dt, amplitude);
+                    frame.addState(currentState);
+                }
+            }
+        };
+    }
+
+    private void scheduleNextFrame() {
+        if (!isIdle() && visibility.isVisible()) {
+            animating.set(true);
+            clock.scheduleFrame();
+            return;
+        }
+
+        animating.set(false);
+        // a reading published after the drain would be missed otherwise
+        if (amplitudeInput.hasPending() && animating.compareAndSet(false, true)) {
+            clock.scheduleFrame();
+        } else {
+            clock.reset();
+        }
+    }
+
+    /**
+     * @return true if the next frames would look the same as the current one,
+     * the view stops drawing new frames until something changes
+     */
+    public boolean isIdle() {
+        if (previousState != null || timeline != null) return false;
+        if (pressedProgress != (pressedState ? 1f : 0f)) return false;
+        if (progressToPrepareRemove != (prepareToRemove ? 1f : 0f)) return false;
+        boolean showWaves = currentState != null && currentState.supportWaves();
+        if (wavesEnter != (showWaves ? 1f : 0f)) return false;
+        if (wavesEnter == 0 && currentState == null) return true;
+        return !stub && idleThreshold >= 0 && amplitudeFollower.isSettled() && amplitude <= idleThreshold;
+    }
+
+    /**
+     * recompute the values derived from the size, the density and the find methods,
+     * the frames only read the cached values
+     */
+    private void refreshGeometry() {
+        geometryDirty = false;
+        circleRadiusDirty = true;
+        firstWaveMaxRadius = findFirstWaveMaxRadius();
+        firstWaveMinRadius = findFirstWaveMinRadius();
+        secondWaveMaxRadius = findSecondWaveMaxRadius();
+        secondWaveMinRadius = findSecondWaveMinRadius();
+        waveScaleRange = findWaveScaleRange();
+        waveScaleDef = findWaveScaleDef();
+    }
+
+    private float getCachedCircleRadius() {
+        if (radiusChanged.getAndSet(false)) circleRadiusDirty = true;
+        if (circleRadiusDirty) {
+            circleRadiusDirty = false;
+            cachedCircleRadius = findCircleRadius();
+        }
+        return cachedCircleRadius;
+    }
+
+    /**
+     * recompute the cached geometry on the next frame,
+     * call it if an overridden find method starts returning other values
+     */
+    public void invalidateGeometry() {
+        geometryDirty = true;
+        invalidate();
+    }
+
+    @Override
+    protected void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        density = getResources().getDisplayMetrics().density;
+        geometryDirty = true;
     }
 
     protected float findCircleRadius(){
         float rad = 0;
-        for (AXWaveDrawable waveDrawable : waveDrawables){
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            AXWaveDrawable waveDrawable = waveDrawables.get(index);
             if (rad == 0) {
-                rad = waveDrawable.minRadius;
+                rad = waveDrawable.getMinRadius();
             }else{
-                rad = Math.min(rad,waveDrawable.maxRadius);
+                rad = Math.min(rad,waveDrawable.getMaxRadius());
             }
         }
         return Math.max(rad,dp(32));
@@ -453,11 +734,11 @@ public class AXWaveView extends View {
      * load the default animation
      */
     protected void loadStubWaves(){
-        long currentTime = System.currentTimeMillis();
+        long currentTime = clock.getTimeMillis();
         if (currentTime - lastStubUpdateAmplitude > 1000) {
             lastStubUpdateAmplitude = currentTime;
-            animateToAmplitude = 0.5f + 0.5f * Math.abs(random.nextInt() % 100) / 100f;
-            animateAmplitudeDiff = (animateToAmplitude - amplitude) / (100 + 1500.0f * getAmplitudeSpeed());
+            float target = 0.5f + 0.5f * Math.abs(random.nextInt() % 100) / 100f;
+            amplitudeFollower.glideTo(target, 100 + 1500.0f * getAmplitudeSpeed());
         }
     }
 
@@ -465,7 +746,7 @@ public class AXWaveView extends View {
      * calculate wave drawable scale for the giving index
      */
     protected float findWaveScale(int index) {
-        return (1f + (findWaveScaleRange() - (index* findWaveScaleDef())) * amplitude + 0.1f * pressedProgress) * (1f - pinnedProgress);
+        return (1f + (waveScaleRange - (index* waveScaleDef)) * amplitude + 0.1f * pressedProgress) * (1f - pinnedProgress);
     }
 
     protected float findWaveScaleDef(){
@@ -508,12 +789,78 @@ public class AXWaveView extends View {
         return getWidth() / 2f / 1.5f;
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        visibility.onAttached();
+        if (metrics != null) AXMetricsRegistry.register(metrics);
+        // attached again before the worker went idle
+        pendingReleaseAll = false;
+        if (removeShaderReleased) {
+            AXShaderCache.getInstance().retain(prepareToRemoveShader);
+            removeShaderReleased = false;
+        }
+        // released on detach, acquire them here instead of the first frame
+        if (currentState != null) currentState.acquireShader();
+        if (previousState != null) previousState.acquireShader();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        visibility.onDetached();
+        if (metrics != null) AXMetricsRegistry.unregister(metrics);
+        pauseAnimation();
+        releaseShaders();
+    }
+
+    @Override
+    public void onVisibilityAggregated(boolean isVisible) {
+        super.onVisibilityAggregated(isVisible);
+        visibility.setAggregatedVisible(isVisible);
+        if (!isVisible) pauseAnimation();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        this.visibility.setWindowVisible(visibility == VISIBLE);
+        if (visibility != VISIBLE) pauseAnimation();
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        visibility.setWindowFocused(hasWindowFocus);
+        if (!visibility.isVisible()) pauseAnimation();
+    }
+
+    /**
+     * stop drawing new frames, the view resumes on the next invalidate
+     */
+    protected void pauseAnimation() {
+        clock.cancelFrame();
+        clock.reset();
+        animating.set(false);
+    }
+
+    /**
+     * restart the frame loop if it's stopped (idle or hidden)
+     */
+    protected void resumeAnimation() {
+        if (animating.compareAndSet(false, true)) postInvalidateOnAnimation();
+    }
+
     public void setPressedState(boolean pressedState) {
+        if (this.pressedState != pressedState) {
+            invalidate();
+        }
         this.pressedState = pressedState;
     }
 
     public void setPinnedProgress(float pinnedProgress) {
         this.pinnedProgress = pinnedProgress;
+        invalidate();
     }
 
     /**
@@ -522,12 +869,23 @@ public class AXWaveView extends View {
     public void addWaveDrawable(@NonNull AXWaveDrawable waveDrawable){
         if (waveDrawables.contains(waveDrawable)) return;
         waveDrawables.add(waveDrawable);
+        waveDrawable.radiusListener = radiusListener;
+        circleRadiusDirty = true;
 
         if (waveDrawable.getMaxRadius() < 0)
             waveDrawable.setMaxRadius(findFirstWaveMaxRadius(),true);
         if (waveDrawable.getMinRadius() < 0)
             waveDrawable.setMinRadius(findFirstWaveMinRadius(),true);
-        waveDrawable.generateBlob();
+        if (seeded) {
+            waveDrawable.setSeed(seedFor(waveDrawables.size()));
+        } else {
+            waveDrawable.generateBlob();
+        }
+        if (lod != null) {
+            waveDrawable.ensureCapacity(lod.getMaxCount(waveDrawable.getBaseBlobCount()));
+            lodDirty = true;
+        }
+        if (spectrum != null) attachSpectrum(waveDrawable);
 
         invalidate();
     }
@@ -536,7 +894,8 @@ public class AXWaveView extends View {
      * remove wave drawable
      */
     public void removeWaveDrawable(AXWaveDrawable blobDrawable){
-        waveDrawables.remove(blobDrawable);
+        if (waveDrawables.remove(blobDrawable)) blobDrawable.radiusListener = null;
+        circleRadiusDirty = true;
         invalidate();
     }
 
@@ -544,7 +903,8 @@ public class AXWaveView extends View {
      * remove wave drawable
      */
     public void removeWaveDrawable(int index){
-        waveDrawables.remove(index);
+        waveDrawables.remove(index).radiusListener = null;
+        circleRadiusDirty = true;
         invalidate();
     }
 
@@ -566,16 +926,40 @@ public class AXWaveView extends View {
      * remove an saved state
      */
     public void removeState(int key){
+        AXWeavingState state = states.get(key);
         states.remove(key);
+        if (state != null) releaseShader(state);
     }
 
     /**
      * @return all saved states
      */
-    public Map<Integer,AXWeavingState> getAllWeavingStates(){
+    public SparseArray<AXWeavingState> getWeavingStates(){
         return states;
     }
 
+    /**
+     * @return live map of the saved states, writes go through {@link #addState(int, AXWeavingState)} and {@link #removeState(int)}
+     * @deprecated boxes the keys, use {@link #getWeavingStates()}
+     */
+    @Deprecated
+    public Map<Integer,AXWeavingState> getAllWeavingStates(){
+        if (stateMap == null) {
+            stateMap = new AXStateMap<AXWeavingState>(states) {
+                @Override
+                void addState(int key, AXWeavingState state) {
+                    AXWaveView.this.addState(key, state);
+                }
+
+                @Override
+                void removeState(int key) {
+                    AXWaveView.this.removeState(key);
+                }
+            };
+        }
+        return stateMap;
+    }
+
     public AXWeavingState getState(int key){
         return states.get(key);
     }
@@ -586,14 +970,36 @@ public class AXWaveView extends View {
 
     public final static float MAX_AMPLITUDE = 8_500f;
 
+    /**
+     * view size (dp) the base blob counts are tuned for
+     */
+    public final static int LOD_REFERENCE_SIZE = 150;
+
+    /**
+     * set the amplitude of the voice, safe to call from any thread (e.g. an AudioRecord thread).
+     * readings are conflated once per frame, see {@link AXAmplitudeInput#setPolicy(int)}
+     * @param value amplitude (0 - {@link #MAX_AMPLITUDE}), negative for the stub animation
+     */
+    @Override
     public void setAmplitude(float value) {
+        if (amplitudeInput.offer(value)) resumeAnimation();
+    }
+
+    /**
+     * apply the conflated amplitude of the current frame
+     */
+    protected void applyAmplitude(float value) {
         if (value < 0) {
             stub = true;
             return;
         }
         stub = false;
-        animateToAmplitude = (float) (Math.min(MAX_AMPLITUDE, value) / MAX_AMPLITUDE);
-        animateAmplitudeDiff = (animateToAmplitude - amplitude) / (100 + 500.0f * getAmplitudeSpeed());
+        float target = (float) (Math.min(MAX_AMPLITUDE, value) / MAX_AMPLITUDE);
+        if (amplitudeFollower.getMode() == AXEnvelopeFollower.MODE_LINEAR) {
+            amplitudeFollower.glideTo(target, 100 + 500.0f * getAmplitudeSpeed());
+        } else {
+            amplitudeFollower.setTarget(target);
+        }
     }
 
     public float getAmplitude() {
@@ -613,15 +1019,17 @@ public class AXWaveView extends View {
             return;
         }
 
-        if (state.width == 0 || state.height == 0) {
-            if (state.width == 0) state.width = currentState!=null ? currentState.width : findShaderSize();
-            if (state.height == 0) state.height = currentState!=null ? currentState.height : findShaderSize();
-        }
+        sizeState(state);
+        state.acquireShader();
 
+        if (seeded) state.setSeed(seedFor(state));
+        AXWeavingState dropped = previousState;
         previousState = currentState;
         currentState = state;
+        if (dropped != null) releaseShader(dropped);
         if (previousState != null) {
             progressToState = 0;
+            if (metrics != null) metrics.stateTransition();
         } else {
             progressToState = 1;
             wavesEnter = state.supportWaves() ? 1f : 0f;
@@ -629,6 +1037,38 @@ public class AXWaveView extends View {
         invalidate();
     }
 
+    private void sizeState(AXWeavingState state) {
+        if (state.width == 0 || state.height == 0) {
+            if (state.width == 0) state.width = currentState!=null ? currentState.width : findShaderSize();
+            if (state.height == 0) state.height = currentState!=null ? currentState.height : findShaderSize();
+        }
+    }
+
+    /**
+     * create the shaders and the first transforms of the saved states ahead of their first frame,
+     * call it after adding the states so {@link #setState(int)} doesn't hitch
+     */
+    public void preloadStates() {
+        preloadStates(false);
+    }
+
+    /**
+     * @param background create the shaders on the simulation thread,
+     *                   the states are sized and their matrices loaded on the UI thread afterwards
+     */
+    public void preloadStates(boolean background) {
+        AXWeavingState[] preload = new AXWeavingState[states.size()];
+        int count = 0;
+        for (int i = 0; i < states.size(); i++) {
+            AXWeavingState state = states.valueAt(i);
+            // the current states are updated by the frames
+            if (state == currentState || state == previousState) continue;
+            sizeState(state);
+            preload[count++] = state;
+        }
+        AXStatePreloader.preload(this, Arrays.copyOf(preload, count), background);
+    }
+
     public void prepareToRemove(boolean prepare) {
         if (this.prepareToRemove != prepare) {
             invalidate();
@@ -642,12 +1082,17 @@ public class AXWaveView extends View {
 
     public void setMaxAlpha(int maxAlpha) {
         this.maxAlpha = maxAlpha;
+        invalidate();
     }
 
     public float getAmplitudeSpeed() {
         return amplitudeSpeed;
     }
 
+    /**
+     * speed of the stub animation, and of the readings in {@link AXEnvelopeFollower#MODE_LINEAR},
+     * see {@link #getAmplitudeFollower()} for the other modes
+     */
     public void setAmplitudeSpeed(float amplitudeSpeed) {
         this.amplitudeSpeed = amplitudeSpeed;
     }
@@ -660,6 +1105,309 @@ public class AXWaveView extends View {
         this.speedScale = speedScale;
     }
 
+    public AXAmplitudeInput getAmplitudeInput() {
+        return amplitudeInput;
+    }
+
+    /**
+     * smooths the amplitude between the readings, set its mode and attack/release times,
+     * {@link AXEnvelopeFollower#MODE_LINEAR} restores the old per-reading slope of {@link #getAmplitudeSpeed()}
+     */
+    public AXEnvelopeFollower getAmplitudeFollower() {
+        return amplitudeFollower;
+    }
+
+    public AXFrameClock getFrameClock() {
+        return clock;
+    }
+
+    public float getIdleThreshold() {
+        return idleThreshold;
+    }
+
+    /**
+     * the view stops drawing new frames once the amplitude settles at or below this value,
+     * -1 (default) to keep animating forever.
+     * the blobs and the gradient still move at a silent amplitude, they freeze while the view is idle
+     */
+    public void setIdleThreshold(float idleThreshold) {
+        this.idleThreshold = idleThreshold;
+        resumeAnimation();
+    }
+
+    /**
+     * seed the view, its drawables and states (including the ones added later).
+     * with the same seed, the same amplitudes and a fixed frame time
+     * ({@link AXFrameClock#setFixedFrameTime(float)}) the view draws the same frames on every run,
+     * doesn't apply to the background simulation
+     */
+    public void setRandomSeed(long seed) {
+        this.seed = seed;
+        seeded = true;
+        random.setSeed(seed);
+        lastStubUpdateAmplitude = 0;
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            waveDrawables.get(index).setSeed(seedFor(index + 1));
+        }
+        if (previousState != null) previousState.setSeed(seedFor(previousState));
+        if (currentState != null) currentState.setSeed(seedFor(currentState));
+        invalidate();
+    }
+
+    public long getRandomSeed() {
+        return seed;
+    }
+
+    private long seedFor(long salt) {
+        return seed + 0x9E3779B97F4A7C15L * salt;
+    }
+
+    private long seedFor(AXWeavingState state) {
+        // far from the small salts of the drawables
+        return seedFor(((long) state.getState() << 32) - 1);
+    }
+
+    public boolean isBackgroundSimulationEnabled() {
+        return backgroundSimulation;
+    }
+
+    /**
+     * advance the waves and the weaving states on a worker thread,
+     * onDraw only emits the paths of the latest simulated frame.
+     * call it from the UI thread, drawables and states shouldn't be reconfigured while it's enabled.
+     * disabling it waits for a running step, the view keeps drawing its frames until then
+     */
+    public void setBackgroundSimulationEnabled(boolean enabled) {
+        backgroundSimulation = enabled;
+        updateSimulation();
+    }
+
+    /**
+     * @return ticker that should run the steps, null for the worker or if the view simulates in onDraw
+     */
+    private AXWaveTicker getSharedTicker() {
+        AXWaveTicker ticker = clock.getTicker();
+        return !backgroundSimulation && ticker != null && ticker.isSharedStepEnabled() ? ticker : null;
+    }
+
+    /**
+     * @return true if the simulation runs where it's requested now and can start new steps
+     */
+    private boolean isSimulationCurrent() {
+        return simulation != null && (backgroundSimulation || simulation.getTicker() == getSharedTicker());
+    }
+
+    /**
+     * move the simulation to the worker or the shared step of the ticker, or drop it.
+     * a running step is finished first, the view keeps drawing its frames until then
+     */
+    private void updateSimulation() {
+        AXWaveTicker ticker = getSharedTicker();
+        boolean enabled = backgroundSimulation || ticker != null;
+        if (enabled ? isSimulationCurrent() : simulation == null) return;
+        if (simulation != null && simulation.isBusy()) {
+            // the step is still writing the drawables
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        simulation = enabled ? createSimulation(ticker) : null;
+        invalidate();
+    }
+
+    /**
+     * record the frame costs of this view into {@link #getMetrics()},
+     * registered in {@link AXMetricsRegistry} while the view is attached
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (metrics != null)) return;
+        if (enabled) {
+            metrics = new AXFrameMetrics(getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this)));
+            if (getWindowToken() != null) AXMetricsRegistry.register(metrics);
+        } else {
+            AXMetricsRegistry.unregister(metrics);
+            metrics = null;
+        }
+    }
+
+    /**
+     * scale the blob counts of the drawables by the view size
+     * (the base counts fit a {@value #LOD_REFERENCE_SIZE}dp view) and the budget of the policy,
+     * null to restore the base counts
+     */
+    public void setLevelOfDetail(AXLevelOfDetail lod) {
+        if (lod == this.lod) return;
+        this.lod = lod;
+        if (lod != null) {
+            for (AXWaveDrawable waveDrawable : waveDrawables) {
+                waveDrawable.ensureCapacity(lod.getMaxCount(waveDrawable.getBaseBlobCount()));
+            }
+        }
+        lodDirty = true;
+        invalidate();
+    }
+
+    /**
+     * give the shader of a state that isn't drawn or saved anymore back to {@link AXShaderCache}
+     */
+    private void releaseShader(AXWeavingState state) {
+        if (state == currentState || state == previousState || states.indexOfValue(state) >= 0) return;
+        // the worker may be updating the state
+        if (simulation != null && simulation.isBusy()) {
+            if (!pendingReleases.contains(state)) pendingReleases.add(state);
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        state.releaseShader();
+    }
+
+    /**
+     * give the shaders of a detached view back to {@link AXShaderCache}, states acquire them again when they are drawn
+     */
+    private void releaseShaders() {
+        if (simulation != null && simulation.isBusy()) {
+            pendingReleaseAll = true;
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        for (int i = 0; i < states.size(); i++) {
+            states.valueAt(i).releaseShader();
+        }
+        if (currentState != null) currentState.releaseShader();
+        if (previousState != null) previousState.releaseShader();
+        removeShaderReleased = AXShaderCache.getInstance().release(prepareToRemoveShader);
+    }
+
+    /**
+     * switch the simulation and run the queued releases once the worker is idle, main thread only
+     */
+    private void onSimulationIdle() {
+        if (simulation != null && simulation.isBusy()) {
+            simulation.runWhenIdle(simulationIdle);
+            return;
+        }
+        updateSimulation();
+        flushReleases();
+    }
+
+    /**
+     * run the releases that were queued while the worker was busy, main thread only
+     */
+    private void flushReleases() {
+        if (pendingReleaseAll) {
+            pendingReleaseAll = false;
+            releaseShaders();
+        }
+        // skips the states that were drawn or saved again meanwhile
+        for (int i = 0; i < pendingReleases.size(); i++) {
+            releaseShader(pendingReleases.get(i));
+        }
+        pendingReleases.clear();
+    }
+
+    public AXTimelinePlayer getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * replay a baked timeline instead of simulating the waves and states, the background simulation
+     * is skipped meanwhile. the drawables are the baked drawables of the same index,
+     * states that aren't baked keep moving live, null to go back to the live simulation
+     */
+    public void setTimeline(AXTimelinePlayer timeline) {
+        this.timeline = timeline;
+        resumeAnimation();
+        invalidate();
+    }
+
+    public AXSpectrum getSpectrum() {
+        return spectrum;
+    }
+
+    /**
+     * drive the points of the waves by the frequency bands of the spectrum instead of random targets,
+     * every drawable gets its own {@link AXSpectrumBands} with one band per point
+     * (see {@link AXWaveDrawable#getSpectrumBands()}). feed the spectrum with
+     * {@link AXPcmInput#setSpectrum(AXSpectrum)}, null to go back to the random waves
+     */
+    public void setSpectrum(AXSpectrum spectrum) {
+        if (spectrum == this.spectrum) return;
+        this.spectrum = spectrum;
+        spectrumPower = spectrum != null ? new float[spectrum.getBinCount()] : null;
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            attachSpectrum(waveDrawables.get(index));
+        }
+        invalidate();
+    }
+
+    private void attachSpectrum(AXWaveDrawable waveDrawable) {
+        if (spectrum == null) {
+            waveDrawable.setSpectrumBands(null);
+        } else if (waveDrawable.getSpectrumBands() == null) {
+            waveDrawable.setSpectrumBands(new AXSpectrumBands(waveDrawable.getShape().getSpectrumSize()));
+        }
+    }
+
+    /**
+     * aggregate the latest spectrum into the bands of the drawables,
+     * the worker may read the levels meanwhile, a torn frame only mixes two spectra
+     */
+    private void updateSpectrum(float dt) {
+        spectrum.copyPower(spectrumPower);
+        for (int index = 0; index < waveDrawables.size(); index++) {
+            updateSpectrum(waveDrawables.get(index), dt);
+        }
+    }
+
+    private void updateSpectrum(AXWaveDrawable waveDrawable, float dt) {
+        AXSpectrumBands bands = waveDrawable.getSpectrumBands();
+        if (bands != null) bands.update(spectrum, spectrumPower, dt);
+    }
+
+    public AXLevelOfDetail getLevelOfDetail() {
+        return lod;
+    }
+
+    /**
+     * degrade the drawing while frames are over the budget of the governor,
+     * null to always draw at full quality
+     */
+    public void setQualityGovernor(AXQualityGovernor governor) {
+        this.governor = governor;
+        applyQualityTier(governor != null ? governor.getTier() : AXQualityGovernor.TIER_FULL);
+        invalidate();
+    }
+
+    public AXQualityGovernor getQualityGovernor() {
+        return governor;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    /**
+     * @return frame metrics, null if they are not enabled
+     */
+    public AXFrameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isPauseOnWindowFocusLoss() {
+        return visibility.pauseOnFocusLoss;
+    }
+
+    /**
+     * pause the animation while the window doesn't have focus
+     */
+    public void setPauseOnWindowFocusLoss(boolean pauseOnFocusLoss) {
+        visibility.pauseOnFocusLoss = pauseOnFocusLoss;
+        if (visibility.isVisible()) {
+            resumeAnimation();
+        } else {
+            pauseAnimation();
+        }
+    }
+
     public Interpolator getInterpolator() {
         return interpolator;
     }
@@ -674,6 +1422,7 @@ public class AXWaveView extends View {
 
     public void setCircleEnabled(boolean circleEnabled) {
         this.circleEnabled = circleEnabled;
+        invalidate();
     }
 
     public float getCircleRadius() {
@@ -682,6 +1431,7 @@ public class AXWaveView extends View {
 
     public void setCircleRadius(float circleRadius) {
         this.circleRadius = circleRadius;
+        invalidate();
     }
 
     public int getPrepareToRemoveColor() {
@@ -713,6 +1463,8 @@ public class AXWaveView extends View {
     }
 
     public void setPrepareToRemoveShader(Shader prepareToRemoveShader) {
+        if (!removeShaderReleased) AXShaderCache.getInstance().release(this.prepareToRemoveShader);
+        removeShaderReleased = false;
         this.prepareToRemoveShader = prepareToRemoveShader;
     }
 
@@ -735,7 +1487,7 @@ public class AXWaveView extends View {
     }
 
     private int dp(int value){
-        return (int) (getContext().getResources().getDisplayMetrics().density * value);
+        return (int) (density * value);
     }
 
 }
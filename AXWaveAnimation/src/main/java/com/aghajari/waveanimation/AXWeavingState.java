@@ -53,14 +53,19 @@ public abstract class AXWeavingState {
     public float speedMin = 0.5f;
     public float speedMax = 0.01f;
     public Interpolator interpolator;
+    private long seed;
+    // a subclass overrides the old update(long, float), the frames are routed through it
+    private final boolean legacyUpdate;
+    private float legacyTime;
 
     public AXWeavingState(int state){
         this.state = state;
+        legacyUpdate = overridesLegacyUpdate(getClass());
         init();
     }
 
     protected void init(){
-        interpolator = new CubicBezierInterpolator(0, 0, .58, 1);
+        interpolator = CubicBezierTableInterpolator.obtain(0, 0, .58, 1);
     }
 
     /**
@@ -70,9 +75,32 @@ public abstract class AXWeavingState {
 
     /**
      * update shader
+     * @param dt elapsed time since the previous frame (ms)
      */
+    public void update(float dt, float amplitude) {
+        if (legacyUpdate) {
+            // whole milliseconds, the rest is carried to the next frame
+            legacyTime += dt;
+            long ms = (long) legacyTime;
+            legacyTime -= ms;
+            update(ms, amplitude);
+            return;
+        }
+        step(dt, amplitude);
+    }
+
+    /**
+     * update shader
+     * @deprecated the elapsed time is passed in fractional milliseconds now,
+     * override {@link #update(float, float)} instead
+     */
+    @Deprecated
     public void update(long dt, float amplitude) {
-        if (shader==null) shader = createShader();
+        step(dt, amplitude);
+    }
+
+    private void step(float dt, float amplitude) {
+        if (shader==null) acquireShader();
         if (shader == null) return;
 
         if (duration == 0 || time >= duration) {
@@ -101,6 +129,47 @@ public abstract class AXWeavingState {
         updateTranslate();
     }
 
+    /**
+     * create the shader and load the first transform ahead of the first frame,
+     * so switching to this state doesn't allocate in onDraw
+     */
+    public void preload() {
+        acquireShader();
+        if (duration == 0) update(0f, 0);
+        loadMatrix();
+    }
+
+    private static boolean overridesLegacyUpdate(Class<?> c) {
+        for (; c != null && c != AXWeavingState.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("update", long.class, float.class);
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
+
+    /**
+     * create the shader if it's not created yet, the views call it when a state is set
+     * so the first frame of the state doesn't allocate
+     */
+    void acquireShader() {
+        if (shader == null) shader = createShader();
+    }
+
+    /**
+     * place the state at the giving fractions of its size without random targets,
+     * e.g. the positions of a baked {@link AXTimeline}
+     */
+    public void moveTo(float fractionX, float fractionY) {
+        startX = targetX = fractionX;
+        startY = targetY = fractionY;
+        interpolation = 1f;
+        updateScale();
+        updateTranslate();
+    }
+
     /**
      * calculate targets
      */
@@ -128,6 +197,13 @@ public abstract class AXWeavingState {
      * apply changes and updated values
      */
     protected void loadMatrix(){
+        loadMatrix(x, y, scale);
+    }
+
+    /**
+     * apply the giving values (e.g. a snapshot of the background simulation)
+     */
+    protected void loadMatrix(float x, float y, float scale){
         matrix.reset();
         matrix.postTranslate(x, y);
         matrix.postScale(scale, scale, x + 200, y + 200);
@@ -149,6 +225,23 @@ public abstract class AXWeavingState {
         return supportWaves;
     }
 
+    /**
+     * seed the random generator and restart the movement,
+     * states with the same seed and the same updates have the same transforms
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        duration = 0;
+        time = 0;
+        targetX = -1f;
+        targetY = -1f;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
     /**
      * @return state id
      */
@@ -156,6 +249,28 @@ public abstract class AXWeavingState {
         return state;
     }
 
+    /**
+     * give a shader of {@link AXShaderCache} back, the next update acquires it again.
+     * shaders that don't come from the cache are kept
+     */
+    public void releaseShader() {
+        if (AXShaderCache.getInstance().release(shader)) shader = null;
+    }
+
+    /**
+     * state with a shared radial gradient of {@link AXShaderCache}
+     */
+    public static AXWeavingState createRadial(final int state, final float size, final int color1, final int color2){
+        final int[] colors = {color1, color2};
+        return new AXWeavingState(state) {
+
+            @Override
+            public Shader createShader() {
+                return AXShaderCache.getInstance().acquireRadial(size, colors, null);
+            }
+        };
+    }
+
     public static AXWeavingState create(final int state,final Shader weavingShader,final float weavingScale){
         return new AXWeavingState(state) {
 
@@ -21,27 +21,41 @@ package com.aghajari.waveanimation;
 import android.graphics.PointF;
 import android.view.animation.Interpolator;
 
+/**
+ * Cubic bezier easing, solves x(t) with Newton's method on every call.
+ * The coefficients are computed once so an instance can be shared between threads,
+ * see {@link CubicBezierTableInterpolator} for the precomputed variant.
+ */
 class CubicBezierInterpolator implements Interpolator {
 
-    protected PointF start;
-    protected PointF end;
-    protected PointF a = new PointF();
-    protected PointF b = new PointF();
-    protected PointF c = new PointF();
+    protected final float startX, startY;
+    protected final float endX, endY;
+
+    private final float ax, bx, cx;
+    private final float ay, by, cy;
 
     public CubicBezierInterpolator(PointF start, PointF end) throws IllegalArgumentException {
-        if (start.x < 0 || start.x > 1) {
+        this(start.x, start.y, end.x, end.y);
+    }
+
+    public CubicBezierInterpolator(float startX, float startY, float endX, float endY) throws IllegalArgumentException {
+        if (startX < 0 || startX > 1) {
             throw new IllegalArgumentException("startX value must be in the range [0, 1]");
         }
-        if (end.x < 0 || end.x > 1) {
+        if (endX < 0 || endX > 1) {
             throw new IllegalArgumentException("endX value must be in the range [0, 1]");
         }
-        this.start = start;
-        this.end = end;
-    }
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
 
-    public CubicBezierInterpolator(float startX, float startY, float endX, float endY) {
-        this(new PointF(startX, startY), new PointF(endX, endY));
+        cx = 3 * startX;
+        bx = 3 * (endX - startX) - cx;
+        ax = 1 - cx - bx;
+        cy = 3 * startY;
+        by = 3 * (endY - startY) - cy;
+        ay = 1 - cy - by;
     }
 
     public CubicBezierInterpolator(double startX, double startY, double endX, double endY) {
@@ -54,10 +68,7 @@ class CubicBezierInterpolator implements Interpolator {
     }
 
     protected float getBezierCoordinateY(float time) {
-        c.y = 3 * start.y;
-        b.y = 3 * (end.y - start.y) - c.y;
-        a.y = 1 - c.y - b.y;
-        return time * (c.y + time * (b.y + time * a.y));
+        return time * (cy + time * (by + time * ay));
     }
 
     protected float getXForTime(float time) {
@@ -73,14 +84,11 @@ class CubicBezierInterpolator implements Interpolator {
         return x;
     }
 
-    private float getXDerivate(float t) {
-        return c.x + t * (2 * b.x + 3 * a.x * t);
+    protected float getXDerivate(float t) {
+        return cx + t * (2 * bx + 3 * ax * t);
     }
 
-    private float getBezierCoordinateX(float time) {
-        c.x = 3 * start.x;
-        b.x = 3 * (end.x - start.x) - c.x;
-        a.x = 1 - c.x - b.x;
-        return time * (c.x + time * (b.x + time * a.x));
+    protected float getBezierCoordinateX(float time) {
+        return time * (cx + time * (bx + time * ax));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.view.animation.Interpolator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cubic bezier easing sampled once into a table,
+ * every call is a cubic hermite spline lookup instead of Newton iterations.
+ * Immutable, instances are shared through {@link #obtain(float, float, float, float)}.
+ */
+class CubicBezierTableInterpolator implements Interpolator {
+
+    public final static int DEFAULT_SAMPLE_COUNT = 64;
+    public final static float MAX_ERROR = 1e-4f;
+    private final static int CACHE_SIZE = 16;
+
+    private final static Map<Key, CubicBezierTableInterpolator> cache =
+            new LinkedHashMap<Key, CubicBezierTableInterpolator>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CubicBezierTableInterpolator> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private final int intervals;
+    private final float[] values;
+    private final float[] slopes;
+    // intervals the spline can't follow (near vertical tangents), solved on every call
+    private final boolean[] solve;
+
+    private final double ax, bx, cx;
+    private final double ay, by, cy;
+
+    public CubicBezierTableInterpolator(float startX, float startY, float endX, float endY) {
+        this(startX, startY, endX, endY, DEFAULT_SAMPLE_COUNT);
+    }
+
+    public CubicBezierTableInterpolator(float startX, float startY, float endX, float endY, int sampleCount) {
+        if (startX < 0 || startX > 1) {
+            throw new IllegalArgumentException("startX value must be in the range [0, 1]");
+        }
+        if (endX < 0 || endX > 1) {
+            throw new IllegalArgumentException("endX value must be in the range [0, 1]");
+        }
+        if (sampleCount < 2) {
+            throw new IllegalArgumentException("sampleCount must be at least 2");
+        }
+
+        intervals = sampleCount;
+        values = new float[sampleCount + 1];
+        slopes = new float[sampleCount + 1];
+        solve = new boolean[sampleCount];
+
+        cx = 3.0 * startX;
+        bx = 3.0 * (endX - startX) - cx;
+        ax = 1.0 - cx - bx;
+        cy = 3.0 * startY;
+        by = 3.0 * (endY - startY) - cy;
+        ay = 1.0 - cy - by;
+
+        for (int i = 0; i <= sampleCount; i++) {
+            values[i] = (float) solve((double) i / sampleCount);
+        }
+
+        for (int i = 0; i <= sampleCount; i++) {
+            if (i == 0) {
+                slopes[i] = values[1] - values[0];
+            } else if (i == sampleCount) {
+                slopes[i] = values[i] - values[i - 1];
+            } else {
+                slopes[i] = (values[i + 1] - values[i - 1]) / 2f;
+            }
+        }
+
+        for (int i = 0; i < sampleCount; i++) {
+            for (int j = 1; j < 4 && !solve[i]; j++) {
+                double x = (i + j / 4.0) / sampleCount;
+                solve[i] = Math.abs(spline(i, j / 4f) - solve(x)) > MAX_ERROR;
+            }
+        }
+    }
+
+    /**
+     * y for the giving x, x(t) is monotonic for control points in [0, 1] so bisection always converges
+     */
+    private double solve(double x) {
+        double lo = 0, hi = 1, t = x;
+        for (int j = 0; j < 48; j++) {
+            t = (lo + hi) / 2;
+            if (t * (cx + t * (bx + t * ax)) < x) {
+                lo = t;
+            } else {
+                hi = t;
+            }
+        }
+        return t * (cy + t * (by + t * ay));
+    }
+
+    private float spline(int i, float t) {
+        float t2 = t * t;
+        float t3 = t2 * t;
+
+        return (2 * t3 - 3 * t2 + 1) * values[i]
+                + (t3 - 2 * t2 + t) * slopes[i]
+                + (-2 * t3 + 3 * t2) * values[i + 1]
+                + (t3 - t2) * slopes[i + 1];
+    }
+
+    /**
+     * @return shared table for the giving control points
+     */
+    public static CubicBezierTableInterpolator obtain(float startX, float startY, float endX, float endY) {
+        Key key = new Key(startX, startY, endX, endY);
+        synchronized (cache) {
+            CubicBezierTableInterpolator interpolator = cache.get(key);
+            if (interpolator == null) {
+                interpolator = new CubicBezierTableInterpolator(startX, startY, endX, endY);
+                cache.put(key, interpolator);
+            }
+            return interpolator;
+        }
+    }
+
+    public static CubicBezierTableInterpolator obtain(double startX, double startY, double endX, double endY) {
+        return obtain((float) startX, (float) startY, (float) endX, (float) endY);
+    }
+
+    @Override
+    public float getInterpolation(float time) {
+        if (time <= 0) return values[0];
+        if (time >= 1) return values[intervals];
+
+        float index = time * intervals;
+        int i = Math.min((int) index, intervals - 1);
+        if (solve[i]) return (float) solve(time);
+        return spline(i, index - i);
+    }
+
+    private final static class Key {
+        final float startX, startY, endX, endY;
+
+        Key(float startX, float startY, float endX, float endY) {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Float.compare(key.startX, startX) == 0
+                    && Float.compare(key.startY, startY) == 0
+                    && Float.compare(key.endX, endX) == 0
+                    && Float.compare(key.endY, endY) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.floatToIntBits(startX);
+            result = 31 * result + Float.floatToIntBits(startY);
+            result = 31 * result + Float.floatToIntBits(endX);
+            result = 31 * result + Float.floatToIntBits(endY);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AXAmplitudeInputTest {
+
+    @Test
+    public void conflatesReadingsOfAFrame() {
+        AXAmplitudeInput input = new AXAmplitudeInput();
+        assertFalse(input.drain());
+
+        input.offer(100);
+        input.offer(400);
+        input.offer(100);
+        assertTrue(input.hasPending());
+        assertTrue(input.drain());
+        assertFalse(input.hasPending());
+
+        assertEquals(100f, input.getValue(), 0f);
+        assertEquals(400f, input.getPeak(), 0f);
+        assertEquals(200f, input.getMean(), 1e-4f);
+        assertEquals(3, input.getCount());
+        assertFalse(input.drain());
+    }
+
+    @Test
+    public void appliesPolicy() {
+        AXAmplitudeInput input = new AXAmplitudeInput();
+        input.setPolicy(AXAmplitudeInput.CONFLATE_PEAK);
+        input.offer(300);
+        input.offer(50);
+        input.drain();
+        assertEquals(300f, input.getValue(), 0f);
+
+        input.setPolicy(AXAmplitudeInput.CONFLATE_MEAN);
+        input.offer(300);
+        input.offer(100);
+        input.drain();
+        assertEquals(200f, input.getValue(), 1e-4f);
+    }
+
+    @Test
+    public void passesStubReadingsThrough() {
+        AXAmplitudeInput input = new AXAmplitudeInput();
+        input.setPolicy(AXAmplitudeInput.CONFLATE_PEAK);
+        input.offer(500);
+        input.offer(-1);
+        input.drain();
+        assertEquals(-1f, input.getValue(), 0f);
+    }
+
+    @Test
+    public void keepsEveryReadingOfConcurrentWriters() throws InterruptedException {
+        final AXAmplitudeInput input = new AXAmplitudeInput();
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10_000; j++) input.offer(1);
+                }
+            });
+            writers[i].start();
+        }
+
+        int count = 0;
+        boolean running = true;
+        while (running) {
+            running = false;
+            for (Thread writer : writers) running |= writer.isAlive();
+            if (input.drain()) count += input.getCount();
+        }
+        if (input.drain()) count += input.getCount();
+        assertEquals(40_000, count);
+    }
+
+    @Test
+    public void reportsAChangeOnceAcrossWriters() throws InterruptedException {
+        final AXAmplitudeInput input = new AXAmplitudeInput();
+        final AtomicInteger changes = new AtomicInteger();
+        final AtomicInteger arrived = new AtomicInteger();
+        final int rounds = 20_000;
+        final Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int round = 0; round < rounds; round++) {
+                        // spin until every writer is in the round, so their first offers race
+                        arrived.incrementAndGet();
+                        while (arrived.get() < writers.length * (round + 1)) Thread.yield();
+                        // every writer offers the reading of the round, only the first offer is a change
+                        for (int j = 0; j < 4; j++) {
+                            if (input.offer(round)) changes.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread writer : writers) writer.start();
+        for (Thread writer : writers) writer.join();
+
+        assertEquals(rounds, changes.get());
+        assertFalse(input.offer(rounds - 1));
+        assertTrue(input.offer(-1));
+    }
+}
@@ -0,0 +1,99 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXFrameMetricsTest {
+
+    private static class FakeMetrics extends AXFrameMetrics {
+        long now;
+
+        FakeMetrics() {
+            super("test");
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    }
+
+    private static void frame(FakeMetrics metrics, long update, long build, long draw, int passes, boolean idle) {
+        metrics.beginFrame();
+        metrics.now += update;
+        metrics.markUpdate();
+        metrics.now += build;
+        metrics.markBuild();
+        for (int i = 0; i < passes; i++) metrics.pass();
+        metrics.now += draw;
+        metrics.endFrame(idle);
+    }
+
+    @Test
+    public void recordsFrames() {
+        FakeMetrics metrics = new FakeMetrics();
+        final long[] streamed = new long[4];
+        metrics.setListener(new AXFrameMetrics.Listener() {
+            @Override
+            public void onFrame(AXFrameMetrics metrics, long updateTime, long buildTime, long drawTime, int passes) {
+                streamed[0] = updateTime;
+                streamed[1] = buildTime;
+                streamed[2] = drawTime;
+                streamed[3] = passes;
+            }
+        });
+
+        frame(metrics, 1_000_000, 2_000_000, 3_000_000, 2, false);
+        assertEquals(1_000_000, streamed[0]);
+        assertEquals(2_000_000, streamed[1]);
+        assertEquals(3_000_000, streamed[2]);
+        assertEquals(2, streamed[3]);
+
+        frame(metrics, 5_000_000, 5_000_000, 10_000_000, 3, true);
+        metrics.stateTransition();
+
+        assertEquals(2, metrics.getFrameCount());
+        assertEquals(5, metrics.getPassCount());
+        assertEquals(1, metrics.getIdleFrameCount());
+        assertEquals(1, metrics.getOverBudgetFrameCount());
+        assertEquals(1, metrics.getStateTransitionCount());
+        assertEquals(20_000_000, metrics.getFrameTime().getMax());
+        assertEquals(1_000_000, metrics.getUpdateTime().getMin());
+    }
+
+    @Test
+    public void snapshotIsDetached() {
+        FakeMetrics metrics = new FakeMetrics();
+        frame(metrics, 1000, 1000, 1000, 1, false);
+        AXFrameMetrics snapshot = metrics.snapshot();
+        metrics.reset();
+
+        assertEquals(0, metrics.getFrameCount());
+        assertEquals(0, metrics.getDrawTime().getCount());
+        assertEquals(1, snapshot.getFrameCount());
+        assertEquals(3000, snapshot.getFrameTime().getMax());
+        assertEquals("test", snapshot.getName());
+    }
+
+    @Test
+    public void registryTracksRegisteredMetrics() {
+        AXFrameMetrics first = new FakeMetrics();
+        FakeMetrics second = new FakeMetrics();
+        AXMetricsRegistry.register(first);
+        AXMetricsRegistry.register(second);
+        AXMetricsRegistry.register(second);
+        try {
+            frame(second, 10, 10, 10, 1, false);
+            assertEquals(2, AXMetricsRegistry.getAll().size());
+            assertEquals(1, AXMetricsRegistry.snapshot().get(1).getFrameCount());
+
+            AXMetricsRegistry.resetAll();
+            assertEquals(0, second.getFrameCount());
+        } finally {
+            AXMetricsRegistry.unregister(first);
+            AXMetricsRegistry.unregister(second);
+        }
+        assertEquals(0, AXMetricsRegistry.getAll().size());
+    }
+}
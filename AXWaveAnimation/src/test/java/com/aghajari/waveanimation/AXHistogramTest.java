@@ -0,0 +1,52 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXHistogramTest {
+
+    @Test
+    public void percentilesStayWithinBucketError() {
+        AXHistogram histogram = new AXHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean());
+
+        long[][] expected = {{50, 5_000_000}, {90, 9_000_000}, {99, 9_900_000}};
+        for (long[] pair : expected) {
+            long value = histogram.getPercentile(pair[0]);
+            assertTrue(value >= pair[1]);
+            assertTrue(value <= pair[1] * 1.25);
+        }
+        assertEquals(10_000_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        AXHistogram histogram = new AXHistogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(3, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void resetAndCopy() {
+        AXHistogram histogram = new AXHistogram();
+        histogram.record(42);
+        AXHistogram copy = new AXHistogram();
+        copy.set(histogram);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(1, copy.getCount());
+        assertEquals(42, copy.getMax());
+    }
+}
@@ -0,0 +1,101 @@
+package com.aghajari.waveanimation;
+
+import android.media.AudioFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class AXPcmAnalyzerTest {
+
+    private static final int FRAMES = 4800;
+
+    @Test
+    public void analyzesFloatSine() {
+        AXPcmAnalyzer analyzer = new AXPcmAnalyzer();
+        float[] pcm = sine(0.5f, 1);
+        analyzer.analyze(pcm, 0, pcm.length, 1);
+
+        assertEquals(FRAMES, analyzer.getFrames());
+        assertEquals(0.5f, analyzer.getPeak(), 1e-3f);
+        assertEquals(0.5f / (float) Math.sqrt(2), analyzer.getRms(), 1e-3f);
+        assertEquals(-9.03f, analyzer.getDbfs(), 0.01f);
+    }
+
+    @Test
+    public void downMixesInterleavedStereo() {
+        AXPcmAnalyzer analyzer = new AXPcmAnalyzer();
+        float[] pcm = sine(0.5f, 2);
+        analyzer.analyze(pcm, 0, pcm.length, 2);
+
+        assertEquals(FRAMES, analyzer.getFrames());
+        assertEquals(0.5f, analyzer.getPeak(), 1e-3f);
+    }
+
+    @Test
+    public void matchesAcrossFormats() {
+        float[] floats = sine(0.25f, 2);
+        short[] shorts = new short[floats.length];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(floats.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < floats.length; i++) {
+            shorts[i] = (short) (floats[i] * 32767);
+            buffer.putShort(i * 2, shorts[i]);
+        }
+
+        AXPcmAnalyzer a = new AXPcmAnalyzer();
+        AXPcmAnalyzer b = new AXPcmAnalyzer();
+        a.analyze(shorts, 0, shorts.length, 2);
+        b.analyze(buffer, 0, buffer.capacity(), 2, AudioFormat.ENCODING_PCM_16BIT);
+        assertEquals(a.getRms(), b.getRms(), 1e-6f);
+        assertEquals(a.getPeak(), b.getPeak(), 1e-6f);
+
+        AXPcmAnalyzer c = new AXPcmAnalyzer();
+        c.analyze(floats, 0, floats.length, 2);
+        assertEquals(c.getRms(), a.getRms(), 1e-3f);
+    }
+
+    @Test
+    public void reportsSilence() {
+        AXPcmAnalyzer analyzer = new AXPcmAnalyzer();
+        analyzer.analyze(new short[256], 0, 256, 1);
+        assertEquals(0f, analyzer.getRms(), 0f);
+        assertEquals(AXPcmAnalyzer.MIN_DBFS, analyzer.getDbfs(), 0f);
+    }
+
+    @Test
+    public void feedsReceiversFromSyntheticSource() {
+        final float[] received = {-1};
+        AXPcmInput input = new AXPcmInput(new AXAmplitudeReceiver() {
+            @Override
+            public void setAmplitude(float value) {
+                received[0] = value;
+            }
+        });
+        input.setLevel(AXPcmInput.LEVEL_PEAK);
+
+        AXAudioSource source = new AXAudioSource() {
+            final float[] pcm = sine(0.5f, 1);
+
+            @Override
+            public int read(AXPcmInput input) {
+                input.write(pcm, 0, pcm.length, 1);
+                return FRAMES;
+            }
+        };
+
+        assertEquals(FRAMES, input.pump(source));
+        assertEquals(0.5f * 32767f, received[0], 40f);
+    }
+
+    private static float[] sine(float amplitude, int channels) {
+        float[] pcm = new float[FRAMES * channels];
+        for (int i = 0; i < FRAMES; i++) {
+            float value = amplitude * (float) Math.sin(2 * Math.PI * 440 * i / 48000.0);
+            for (int c = 0; c < channels; c++) pcm[i * channels + c] = value;
+        }
+        return pcm;
+    }
+}
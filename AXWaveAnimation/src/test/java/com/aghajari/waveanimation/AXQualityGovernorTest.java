@@ -0,0 +1,81 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXQualityGovernorTest {
+
+    private static final long BUDGET = AXFrameMetrics.DEFAULT_BUDGET;
+
+    private static class Recorder implements AXQualityGovernor.Listener {
+        int changes;
+        int lastOld = -1;
+        int lastNew = -1;
+
+        @Override
+        public void onTierChanged(AXQualityGovernor governor, int oldTier, int newTier) {
+            changes++;
+            lastOld = oldTier;
+            lastNew = newTier;
+        }
+    }
+
+    private static void frames(AXQualityGovernor governor, int count, long cost) {
+        for (int i = 0; i < count; i++) governor.onFrameCost(cost);
+    }
+
+    @Test
+    public void stepsDownOneTierPerCooldown() {
+        AXQualityGovernor governor = new AXQualityGovernor();
+        Recorder recorder = new Recorder();
+        governor.setListener(recorder);
+
+        assertTrue(governor.onFrameCost(BUDGET * 2));
+        assertEquals(AXQualityGovernor.TIER_NO_ANTI_ALIAS, governor.getTier());
+        assertEquals(AXQualityGovernor.TIER_FULL, recorder.lastOld);
+        assertEquals(AXQualityGovernor.TIER_NO_ANTI_ALIAS, recorder.lastNew);
+
+        frames(governor, 30, BUDGET * 2);
+        assertEquals(AXQualityGovernor.TIER_NO_ANTI_ALIAS, governor.getTier());
+        frames(governor, 1000, BUDGET * 2);
+        assertEquals(AXQualityGovernor.TIER_HALF_RATE, governor.getTier());
+        assertEquals(4, recorder.changes);
+    }
+
+    @Test
+    public void hysteresis() {
+        AXQualityGovernor governor = new AXQualityGovernor();
+        frames(governor, 100, BUDGET * 2);
+        int tier = governor.getTier();
+        assertTrue(tier > AXQualityGovernor.TIER_FULL);
+
+        // under budget but without enough headroom, stay
+        frames(governor, 1000, (long) (BUDGET * 0.8f));
+        assertEquals(tier, governor.getTier());
+
+        // with headroom, one step after the upgrade frames
+        frames(governor, 100, BUDGET / 4);
+        assertEquals(tier, governor.getTier());
+        frames(governor, 100, BUDGET / 4);
+        assertEquals(tier - 1, governor.getTier());
+
+        frames(governor, 2000, BUDGET / 4);
+        assertEquals(AXQualityGovernor.TIER_FULL, governor.getTier());
+    }
+
+    @Test
+    public void maxTierAndReset() {
+        AXQualityGovernor governor = new AXQualityGovernor();
+        governor.setMaxTier(AXQualityGovernor.TIER_NO_CROSS_FADE);
+        frames(governor, 1000, BUDGET * 3);
+        assertEquals(AXQualityGovernor.TIER_NO_CROSS_FADE, governor.getTier());
+
+        Recorder recorder = new Recorder();
+        governor.setListener(recorder);
+        governor.reset();
+        assertEquals(AXQualityGovernor.TIER_FULL, governor.getTier());
+        assertEquals(1, recorder.changes);
+        assertFalse(governor.onFrameCost(BUDGET / 2));
+    }
+}
@@ -0,0 +1,96 @@
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class AXReproducibilityTest {
+
+    private static float[] run(AXWaveDrawable drawable, long seed) {
+        drawable.setMinRadius(100, true);
+        drawable.setMaxRadius(140, true);
+        drawable.setSeed(seed);
+        for (int frame = 0; frame < 500; frame++) {
+            drawable.update(0.5f + 0.5f * (frame % 7) / 7f, 0.8f, 16f);
+            drawable.computePoints(200, 200);
+        }
+        return drawable.getPoints().clone();
+    }
+
+    @Test
+    public void sameSeedDrawsSameBlob() {
+        float[] first = run(new AXWaveDrawable(8), 42);
+        float[] second = run(new AXWaveDrawable(8), 42);
+        assertTrue(Arrays.equals(first, second));
+
+        float[] other = run(new AXWaveDrawable(8), 43);
+        assertFalse(Arrays.equals(first, other));
+    }
+
+    @Test
+    public void reseedingRestartsTheBlob() {
+        AXWaveDrawable drawable = new AXWaveDrawable(9);
+        float[] first = run(drawable, 7);
+        float[] second = run(drawable, 7);
+        assertTrue(Arrays.equals(first, second));
+    }
+
+    @Test
+    public void sameSeedDrawsSameLine() {
+        float[][] points = new float[2][];
+        for (int i = 0; i < 2; i++) {
+            AXLineWaveDrawable drawable = new AXLineWaveDrawable(7, 0.7f);
+            drawable.setMaxRadius(30, true);
+            drawable.setSeed(1234);
+            for (int frame = 0; frame < 500; frame++) {
+                drawable.update(0.6f, -1, 16f);
+                drawable.computePoints(0, 0, 400, 100, 0.6f);
+            }
+            points[i] = drawable.getPoints().clone();
+        }
+        assertTrue(Arrays.equals(points[0], points[1]));
+    }
+
+    @Test
+    public void sameSeedMovesStateTheSameWay() {
+        float[][] transforms = new float[2][];
+        for (int i = 0; i < 2; i++) {
+            AXWeavingState state = AXWeavingState.create(1, new Shader());
+            state.width = state.height = 300;
+            state.setSeed(99);
+            for (int frame = 0; frame < 1000; frame++) {
+                state.update(16f, 0.3f);
+            }
+            transforms[i] = new float[]{state.x, state.y, state.scale};
+        }
+        assertTrue(Arrays.equals(transforms[0], transforms[1]));
+    }
+
+    @Test
+    public void fixedFrameTimeIgnoresRealTime() {
+        AXFrameClock clock = new AXFrameClock(null) {
+            long now = 0;
+
+            @Override
+            protected long nanoTime() {
+                return now += 7_000_000;
+            }
+        };
+        clock.setFixedFrameTime(20f);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(20f, clock.tick(), 0f);
+        }
+        assertEquals(100, clock.getTimeMillis());
+
+        clock.reset();
+        assertEquals(20f, clock.tick(), 0f);
+        assertEquals(120, clock.getTimeMillis());
+    }
+}
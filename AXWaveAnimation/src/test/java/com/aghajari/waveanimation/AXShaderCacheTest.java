@@ -0,0 +1,84 @@
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class AXShaderCacheTest {
+
+    private static class TestCache extends AXShaderCache {
+        int created;
+
+        @Override
+        protected Shader createShader(int type, float size, int[] colors, float[] stops) {
+            created++;
+            return new Shader();
+        }
+    }
+
+    private static final float[] STOPS = {0, 0.4f, 1f};
+
+    @Test
+    public void identicalGradientsAreShared() {
+        TestCache cache = new TestCache();
+        Shader a = cache.acquireLinear(100, new int[]{1, 2, 3}, STOPS);
+        Shader b = cache.acquireLinear(100, new int[]{1, 2, 3}, STOPS.clone());
+        assertSame(a, b);
+        assertNotSame(a, cache.acquireRadial(100, new int[]{1, 2, 3}, STOPS));
+        assertNotSame(a, cache.acquireLinear(101, new int[]{1, 2, 3}, STOPS));
+        assertNotSame(a, cache.acquireLinear(100, new int[]{1, 2, 4}, STOPS));
+        assertNotSame(a, cache.acquireLinear(100, new int[]{1, 2, 3}, null));
+        assertEquals(5, cache.created);
+        assertEquals(5, cache.size());
+    }
+
+    @Test
+    public void evictsReleasedShadersLeastRecentlyUsedFirst() {
+        TestCache cache = new TestCache();
+        cache.setMaxEntries(2);
+        Shader first = cache.acquireRadial(1, new int[]{1, 2}, null);
+        Shader second = cache.acquireRadial(2, new int[]{1, 2}, null);
+        Shader third = cache.acquireRadial(3, new int[]{1, 2}, null);
+        // all of them are still acquired
+        assertEquals(3, cache.size());
+
+        assertTrue(cache.release(second));
+        assertTrue(cache.release(first));
+        assertEquals(2, cache.size());
+        assertFalse(cache.contains(second));
+        assertTrue(cache.contains(first));
+
+        // released but cached, acquired again without creating
+        int created = cache.created;
+        assertSame(first, cache.acquireRadial(1, new int[]{1, 2}, null));
+        assertEquals(created, cache.created);
+
+        assertFalse(cache.release(new Shader()));
+        cache.release(first);
+        cache.release(third);
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void byteBudget() {
+        TestCache cache = new TestCache();
+        Shader shader = cache.acquireLinear(1, new int[]{1, 2}, null);
+        long bytes = cache.getBytes();
+        assertTrue(bytes > 0);
+        cache.setMaxBytes(bytes * 2);
+        for (int i = 2; i < 10; i++) {
+            cache.release(cache.acquireLinear(i, new int[]{1, 2}, null));
+        }
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains(shader));
+        assertTrue(cache.retain(shader));
+        assertTrue(cache.release(shader));
+    }
+}
@@ -0,0 +1,141 @@
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+public class AXTimelineTest {
+
+    private static final int FRAMES = 120;
+    private static final float FRAME_TIME = 16f;
+
+    private static AXWaveDrawable blob() {
+        AXWaveDrawable drawable = new AXWaveDrawable(8);
+        drawable.setMinRadius(100, true);
+        drawable.setMaxRadius(140, true);
+        drawable.setSeed(11);
+        return drawable;
+    }
+
+    private static AXLineWaveDrawable line() {
+        AXLineWaveDrawable drawable = new AXLineWaveDrawable(5, 0.7f);
+        drawable.setMinRadius(0, true);
+        drawable.setMaxRadius(30, true);
+        drawable.setSeed(12);
+        return drawable;
+    }
+
+    private static AXWeavingState state() {
+        AXWeavingState state = AXWeavingState.create(3, new Shader());
+        state.width = state.height = 400;
+        state.setSeed(13);
+        return state;
+    }
+
+    private static AXTimeline bake() throws IOException {
+        AXTimelineBaker baker = new AXTimelineBaker(FRAME_TIME);
+        baker.addDrawable(blob());
+        baker.addDrawable(line());
+        baker.addState(state());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        baker.bake(out, FRAMES, 0.6f, 0.8f);
+        return AXTimeline.wrap(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    @Test
+    public void playsTheBakedMotion() throws IOException {
+        AXTimeline timeline = bake();
+        assertEquals(FRAMES, timeline.getFrameCount());
+        assertEquals(2, timeline.getDrawableCount());
+        assertEquals(8, timeline.getPointCount(0));
+        assertEquals(6, timeline.getPointCount(1));
+        assertEquals(0, timeline.indexOfState(3));
+
+        AXWaveDrawable liveBlob = blob();
+        AXLineWaveDrawable liveLine = line();
+        AXWeavingState liveState = state();
+        AXWaveDrawable playedBlob = new AXWaveDrawable(8);
+        playedBlob.setMinRadius(100, true);
+        playedBlob.setMaxRadius(140, true);
+        AXLineWaveDrawable playedLine = line();
+        AXWeavingState playedState = AXWeavingState.create(3, new Shader());
+        playedState.width = playedState.height = 400;
+
+        AXTimelinePlayer player = new AXTimelinePlayer(timeline);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            liveBlob.update(0.6f, 0.8f, FRAME_TIME);
+            liveLine.update(0.6f, 0.8f, FRAME_TIME);
+            liveState.update(FRAME_TIME, 0.6f);
+
+            player.seek(frame * FRAME_TIME);
+            assertTrue(player.apply(0, playedBlob));
+            assertTrue(player.apply(1, playedLine));
+            assertTrue(player.apply(playedState));
+            for (int i = 0; i < 8; i++) {
+                assertEquals(liveBlob.getShape().radius(i), playedBlob.getShape().radius(i), 1e-2f);
+                assertEquals(liveBlob.getShape().angle(i), playedBlob.getShape().angle(i), 1e-2f);
+            }
+            for (int i = 0; i < 6; i++) {
+                assertEquals(liveLine.getShape().radius(i), playedLine.getShape().radius(i), 1e-2f);
+            }
+            assertEquals(liveState.x, playedState.x, 0.1f);
+            assertEquals(liveState.y, playedState.y, 0.1f);
+        }
+        assertFalse(player.apply(2, playedBlob));
+        assertFalse(player.apply(AXWeavingState.create(4, new Shader())));
+    }
+
+    @Test
+    public void phaseOffsetsShareOneTimeline() throws IOException {
+        AXTimeline timeline = bake();
+        AXTimelinePlayer a = new AXTimelinePlayer(timeline);
+        AXTimelinePlayer b = new AXTimelinePlayer(timeline);
+        b.setPhase(10 * FRAME_TIME);
+        AXWaveDrawable da = blob();
+        AXWaveDrawable db = blob();
+
+        a.seek(30 * FRAME_TIME);
+        b.seek(20 * FRAME_TIME);
+        a.apply(0, da);
+        b.apply(0, db);
+        assertEquals(da.getShape().radius(3), db.getShape().radius(3), 0);
+
+        // loops back to the first frame
+        b.advance(timeline.getDuration());
+        b.apply(0, db);
+        assertEquals(da.getShape().radius(3), db.getShape().radius(3), 0);
+        assertEquals(20 * FRAME_TIME, b.getTime(), 1e-2f);
+    }
+
+    @Test
+    public void mapsBakedFiles() throws IOException {
+        File file = File.createTempFile("timeline", ".axtl");
+        try {
+            AXTimelineBaker baker = new AXTimelineBaker(FRAME_TIME);
+            baker.addDrawable(blob());
+            baker.bake(file, 2, 0.5f, 0.8f);
+            AXTimeline timeline = AXTimeline.open(file);
+            assertEquals(125, timeline.getFrameCount());
+            assertEquals(2000, timeline.getDuration(), 1e-3f);
+            // header, one drawable and 8 radii + 8 angles per frame
+            assertEquals(20 + 20 + 125 * 32, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherFiles() {
+        AXTimeline.wrap(ByteBuffer.allocate(64));
+    }
+}
@@ -0,0 +1,172 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class AXWavEnvelopeTest {
+
+    private static final int SAMPLE_RATE = 8000;
+    private static final int FRAMES = 8000 * 3 + 123;
+
+    /**
+     * stereo sine that fades in, right channel at half level
+     */
+    private static float sample(int frame, int channel) {
+        float level = (float) frame / FRAMES;
+        float value = level * (float) Math.sin(frame * 0.05);
+        return channel == 0 ? value : value * 0.5f;
+    }
+
+    private static File write(int tag, int bits, int channels) throws IOException {
+        int bytes = bits / 8;
+        ByteBuffer data = ByteBuffer.allocate(FRAMES * channels * bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (int f = 0; f < FRAMES; f++) {
+            for (int c = 0; c < channels; c++) {
+                float s = sample(f, c);
+                if (tag == 3) {
+                    data.putFloat(s);
+                } else if (bits == 8) {
+                    data.put((byte) (Math.round(s * 127) + 128));
+                } else if (bits == 16) {
+                    data.putShort((short) Math.round(s * 32767));
+                } else {
+                    int v = Math.round(s * 8388607);
+                    data.put((byte) v).put((byte) (v >> 8)).put((byte) (v >> 16));
+                }
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952).putInt(48 + data.capacity()).putInt(0x45564157);
+        // an unknown chunk with an odd size before fmt
+        header.putInt(0x5453494C).putInt(3).put(new byte[4]);
+        header.putInt(0x20746D66).putInt(16).putShort((short) tag).putShort((short) channels)
+                .putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * channels * bytes)
+                .putShort((short) (channels * bytes)).putShort((short) bits);
+        header.putInt(0x61746164).putInt(data.capacity());
+
+        File file = File.createTempFile("envelope", ".wav");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            out.write(header.array());
+            out.write(data.array());
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void matchesTheAnalyzer() throws IOException {
+        AXWavEnvelopeExtractor extractor = new AXWavEnvelopeExtractor();
+        extractor.setWindowMillis(10);
+        AXWavEnvelope envelope = extractor.extract(write(1, 16, 2));
+
+        assertEquals(80, envelope.getWindowFrames());
+        assertEquals(FRAMES, envelope.getFrames());
+        assertEquals((FRAMES + 79) / 80, envelope.getWindowCount());
+        assertEquals(FRAMES * 1000L / SAMPLE_RATE, envelope.getDuration());
+
+        AXPcmAnalyzer analyzer = new AXPcmAnalyzer();
+        short[] pcm = new short[80 * 2];
+        for (int w = 0; w < envelope.getWindowCount(); w++) {
+            int frames = Math.min(80, FRAMES - w * 80);
+            for (int f = 0; f < frames; f++) {
+                for (int c = 0; c < 2; c++) {
+                    pcm[f * 2 + c] = (short) Math.round(sample(w * 80 + f, c) * 32767);
+                }
+            }
+            analyzer.analyze(pcm, 0, frames * 2, 2);
+            assertEquals("peak " + w, analyzer.getPeak(), envelope.getPeak(w), 1e-4f);
+            assertEquals("rms " + w, analyzer.getRms(), envelope.getRms(w), 1e-4f);
+        }
+    }
+
+    @Test
+    public void regionsAndThreadsDontChangeTheEnvelope() throws IOException {
+        File file = write(1, 16, 2);
+        AXWavEnvelope expected = new AXWavEnvelopeExtractor().extract(file);
+
+        AXWavEnvelopeExtractor extractor = new AXWavEnvelopeExtractor();
+        extractor.regionSize = 1000; // not a multiple of the window
+        extractor.setThreads(3);
+        AXWavEnvelope envelope = extractor.extract(file);
+
+        assertEquals(expected.getWindowCount(), envelope.getWindowCount());
+        for (int w = 0; w < envelope.getWindowCount(); w++) {
+            assertEquals(expected.peaks[w], envelope.peaks[w]);
+            assertEquals(expected.rms[w], envelope.rms[w]);
+        }
+    }
+
+    @Test
+    public void formatsAgree() throws IOException {
+        AXWavEnvelope expected = new AXWavEnvelopeExtractor().extract(write(3, 32, 1));
+        int[][] formats = {{1, 8}, {1, 16}, {1, 24}};
+        for (int[] format : formats) {
+            AXWavEnvelope envelope = new AXWavEnvelopeExtractor().extract(write(format[0], format[1], 1));
+            float tolerance = format[1] == 8 ? 0.02f : 1e-3f;
+            for (int w = 0; w < envelope.getWindowCount(); w++) {
+                assertEquals(format[1] + " bits", expected.getPeak(w), envelope.getPeak(w), tolerance);
+                assertEquals(format[1] + " bits", expected.getRms(w), envelope.getRms(w), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void feedsTheLevelAtTheGivingTime() throws IOException {
+        AXWavEnvelope envelope = new AXWavEnvelopeExtractor().extract(write(1, 16, 1));
+        final float[] amplitude = new float[1];
+        AXAmplitudeReceiver receiver = new AXAmplitudeReceiver() {
+            @Override
+            public void setAmplitude(float value) {
+                amplitude[0] = value;
+            }
+        };
+
+        envelope.feed(2000, AXPcmInput.LEVEL_RMS, receiver);
+        assertEquals(envelope.getRms(100) * 32767f, amplitude[0], 1e-3f);
+        envelope.feed(-5, AXPcmInput.LEVEL_PEAK, receiver);
+        assertEquals(envelope.getPeak(0) * 32767f, amplitude[0], 1e-3f);
+        assertEquals(envelope.getWindowCount() - 1, envelope.indexAt(Long.MAX_VALUE / SAMPLE_RATE));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = File.createTempFile("envelope", ".wav");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[64]);
+        out.close();
+        new AXWavEnvelopeExtractor().extract(file);
+    }
+
+    @Test
+    public void rejectsEmptySamples() throws IOException {
+        File file = write(1, 16, 1);
+        // bits per sample of the fmt chunk
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(46);
+            raf.writeShort(0);
+        } finally {
+            raf.close();
+        }
+        try {
+            new AXWavEnvelopeExtractor().extract(file);
+            fail();
+        } catch (IOException e) {
+            assertEquals("invalid fmt chunk", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.aghajari.waveanimation;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("deprecation")
+@RunWith(RobolectricTestRunner.class)
+public class AXWaveDrawableTest {
+
+    /**
+     * written against the old drawable, places every target on a fixed radius
+     */
+    private static class FixedDrawable extends AXWaveDrawable {
+
+        FixedDrawable(int n) {
+            super(n);
+        }
+
+        @Override
+        protected void generateBlob(float[] radius, float[] angle, int i) {
+            super.generateBlob(radius, angle, i);
+            radius[i] = 50 + i;
+        }
+    }
+
+    @Test
+    public void legacyGeneratorDrivesTheShape() {
+        FixedDrawable drawable = new FixedDrawable(6);
+        drawable.setMinRadius(100, true);
+        drawable.setMaxRadius(140, true);
+        drawable.generateBlob();
+        for (int step = 0; step < 200; step++) {
+            drawable.update(0.5f, 1f, 16f);
+            for (int i = 0; i < 6; i++) {
+                assertEquals(50 + i, drawable.getShape().radius(i), 1e-4f);
+            }
+        }
+
+        drawable.setBlobCount(9);
+        assertEquals(9, drawable.N);
+        drawable.generateBlob();
+        assertEquals(58, drawable.getShape().radius(8), 1e-4f);
+    }
+
+    @Test
+    public void updateHookWritesReachTheShape() {
+        AXWaveDrawable drawable = new AXWaveDrawable(8) {
+            @Override
+            protected void update() {
+                for (int i = 0; i < N; i++) {
+                    assertEquals(getShape().radius(i), radius[i] * (1f - progress[i]) + radiusNext[i] * progress[i], 1e-4f);
+                }
+                radius[2] = radiusNext[2] = 120;
+                minSpeed = 2f;
+            }
+        };
+        drawable.setMinRadius(100, true);
+        drawable.setMaxRadius(140, true);
+        drawable.update(0.5f, 0.8f, 100f);
+
+        drawable.dispatchUpdate();
+        assertEquals(120, drawable.getShape().radius(2), 1e-4f);
+        assertEquals(2f, drawable.getShape().getMinSpeed(), 0);
+    }
+
+    @Test
+    public void deprecatedFieldsMirrorTheShape() {
+        AXWaveDrawable drawable = new AXWaveDrawable(8);
+        drawable.setMinRadius(100);
+        drawable.setMaxRadius(140);
+        drawable.setMinSpeed(1f);
+        assertEquals(8, drawable.N);
+        assertEquals(100, drawable.minRadius, 0);
+        assertEquals(140, drawable.maxRadius, 0);
+        assertEquals(1f, drawable.minSpeed, 0);
+        assertEquals((float) (4.0 / 3.0 * Math.tan(Math.PI / 16)), drawable.L, 1e-6f);
+    }
+
+    @Test
+    public void overriddenLineDrawIsDetected() {
+        assertFalse(new AXLineWaveDrawable(5, 0.3f).isLegacyDraw());
+        AXLineWaveDrawable drawable = new AXLineWaveDrawable(5, 0.3f) {
+            @Override
+            public void draw(float left, float top, float right, float bottom, Canvas canvas, Paint paint, float amplitude) {
+                deltaTop = 6 * amplitude;
+                super.draw(left, top, right, bottom, canvas, paint, amplitude);
+            }
+        };
+        assertTrue(drawable.isLegacyDraw());
+    }
+
+    @Test
+    public void exactModeRotatesWithTheMatrix() {
+        AXWaveDrawable exact = new AXWaveDrawable(8);
+        AXWaveDrawable table = new AXWaveDrawable(8);
+        exact.setTrigTable(null);
+        for (AXWaveDrawable drawable : new AXWaveDrawable[]{exact, table}) {
+            drawable.setMinRadius(100, true);
+            drawable.setMaxRadius(140, true);
+            drawable.getShape().setSeed(3);
+        }
+        for (int step = 0; step < 50; step++) {
+            exact.update(0.5f, 1f, 16f);
+            table.update(0.5f, 1f, 16f);
+            exact.computePoints(200, 300);
+            table.computePoints(200, 300);
+            for (int i = 0; i < exact.getShape().getPointCount(); i++) {
+                assertEquals(table.getPoints()[i], exact.getPoints()[i], 1e-3f);
+            }
+        }
+    }
+}
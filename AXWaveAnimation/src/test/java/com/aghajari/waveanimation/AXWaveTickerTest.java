@@ -0,0 +1,122 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+// scheduling a frame posts a Choreographer callback
+@RunWith(RobolectricTestRunner.class)
+public class AXWaveTickerTest {
+
+    private static class FakeClock extends AXFrameClock {
+        final int[] frames;
+        final int index;
+        long now;
+
+        FakeClock(final int[] frames, final int index, AXWaveTicker ticker) {
+            super(new Callback() {
+                @Override
+                public void onFrame(AXFrameClock clock) {
+                    frames[index]++;
+                }
+            });
+            this.frames = frames;
+            this.index = index;
+            setTicker(ticker);
+        }
+
+        void drawFrame(long cost) {
+            tick();
+            now += cost;
+            endFrame();
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+    }
+
+    @Test
+    public void dispatchesEveryClockOncePerVsync() {
+        AXWaveTicker ticker = new AXWaveTicker();
+        int[] frames = new int[3];
+        FakeClock[] clocks = new FakeClock[3];
+        for (int i = 0; i < 3; i++) {
+            clocks[i] = new FakeClock(frames, i, ticker);
+            clocks[i].scheduleFrame();
+            clocks[i].scheduleFrame();
+        }
+        assertEquals(3, ticker.getPendingCount());
+
+        ticker.doFrame(1_000_000L);
+        assertArrayEquals(new int[]{1, 1, 1}, frames);
+        assertEquals(0, ticker.getPendingCount());
+
+        // only clocks that request a frame get one
+        clocks[1].scheduleFrame();
+        ticker.doFrame(2_000_000L);
+        assertArrayEquals(new int[]{1, 2, 1}, frames);
+    }
+
+    @Test
+    public void cancelledClocksAreRemoved() {
+        AXWaveTicker ticker = new AXWaveTicker();
+        int[] frames = new int[1];
+        FakeClock clock = new FakeClock(frames, 0, ticker);
+        clock.scheduleFrame();
+        clock.cancelFrame();
+        assertEquals(0, ticker.getPendingCount());
+        ticker.doFrame(1_000_000L);
+        assertEquals(0, frames[0]);
+    }
+
+    @Test
+    public void budgetSpreadsFrames() {
+        AXWaveTicker ticker = new AXWaveTicker();
+        ticker.setBudget(10_000_000L);
+        int[] frames = new int[4];
+        FakeClock[] clocks = new FakeClock[4];
+        for (int i = 0; i < 4; i++) {
+            clocks[i] = new FakeClock(frames, i, ticker);
+            clocks[i].drawFrame(6_000_000L);
+            clocks[i].scheduleFrame();
+        }
+
+        // two clocks fit in the budget, the others wait first in line
+        ticker.doFrame(1_000_000L);
+        assertArrayEquals(new int[]{1, 1, 0, 0}, frames);
+        assertEquals(2, ticker.getPendingCount());
+        clocks[0].scheduleFrame();
+        clocks[1].scheduleFrame();
+
+        ticker.doFrame(2_000_000L);
+        assertArrayEquals(new int[]{1, 1, 1, 1}, frames);
+        assertEquals(2, ticker.getPendingCount());
+        assertEquals(4, ticker.getDeferredFrames());
+    }
+
+    @Test
+    public void clocksCancelledDuringTheDispatchAreSkipped() {
+        AXWaveTicker ticker = new AXWaveTicker();
+        final int[] frames = new int[2];
+        final FakeClock second = new FakeClock(frames, 1, ticker);
+        AXFrameClock first = new AXFrameClock(new AXFrameClock.Callback() {
+            @Override
+            public void onFrame(AXFrameClock clock) {
+                frames[0]++;
+                // e.g. detaches the other view
+                second.cancelFrame();
+            }
+        });
+        first.setTicker(ticker);
+        first.scheduleFrame();
+        second.scheduleFrame();
+
+        ticker.doFrame(1_000_000L);
+        assertArrayEquals(new int[]{1, 0}, frames);
+        assertEquals(0, ticker.getPendingCount());
+    }
+}
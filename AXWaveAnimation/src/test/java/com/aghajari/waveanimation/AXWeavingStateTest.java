@@ -0,0 +1,50 @@
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("deprecation")
+@RunWith(RobolectricTestRunner.class)
+public class AXWeavingStateTest {
+
+    /**
+     * written against the old state, counts the elapsed milliseconds
+     */
+    private static class LegacyState extends AXWeavingState {
+        long elapsed;
+        int calls;
+
+        LegacyState() {
+            super(1);
+        }
+
+        @Override
+        public Shader createShader() {
+            return new Shader();
+        }
+
+        @Override
+        public void update(long dt, float amplitude) {
+            elapsed += dt;
+            calls++;
+            super.update(dt, amplitude);
+        }
+    }
+
+    @Test
+    public void legacyUpdateIsCalledWithWholeMilliseconds() {
+        LegacyState state = new LegacyState();
+        state.width = state.height = 300;
+        for (int frame = 0; frame < 60; frame++) {
+            state.update(16.5f, 0.3f);
+        }
+        assertEquals(60, state.calls);
+        assertEquals(990, state.elapsed);
+        assertTrue(state.time > 0);
+    }
+}
@@ -0,0 +1,76 @@
+package com.aghajari.waveanimation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CubicBezierTableInterpolatorTest {
+
+    private static final float[][] CURVES = {
+            {0f, 0f, .58f, 1f},
+            {.42f, 0f, 1f, 1f},
+            {.42f, 0f, .58f, 1f},
+            {.25f, .1f, .25f, 1f},
+            {0f, .8f, .2f, 1f},
+            {.68f, -.55f, .265f, 1.55f},
+    };
+
+    @Test
+    public void matchesReferenceSolution() {
+        for (float[] c : CURVES) {
+            CubicBezierTableInterpolator table = new CubicBezierTableInterpolator(c[0], c[1], c[2], c[3]);
+            for (int i = 0; i <= 10_000; i++) {
+                float x = i / 10_000f;
+                assertEquals(reference(c, x), table.getInterpolation(x), 2e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void matchesNewtonSolver() {
+        // the Newton solver stops at an x error of 1e-3 and can't follow vertical tangents,
+        // compare on the regular easing curves only
+        for (int index = 0; index < 4; index++) {
+            float[] c = CURVES[index];
+            CubicBezierInterpolator newton = new CubicBezierInterpolator(c[0], c[1], c[2], c[3]);
+            CubicBezierTableInterpolator table = new CubicBezierTableInterpolator(c[0], c[1], c[2], c[3]);
+            for (int i = 0; i <= 1_000; i++) {
+                float x = i / 1_000f;
+                assertEquals(newton.getInterpolation(x), table.getInterpolation(x), 5e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void clampsOutsideOfRange() {
+        CubicBezierTableInterpolator table = new CubicBezierTableInterpolator(0, 0, .58f, 1);
+        assertEquals(0f, table.getInterpolation(-1f), 1e-6f);
+        assertEquals(0f, table.getInterpolation(0f), 1e-6f);
+        assertEquals(1f, table.getInterpolation(1f), 1e-6f);
+        assertEquals(1f, table.getInterpolation(2f), 1e-6f);
+    }
+
+    @Test
+    public void obtainSharesInstances() {
+        CubicBezierTableInterpolator a = CubicBezierTableInterpolator.obtain(0, 0, .58, 1);
+        assertSame(a, CubicBezierTableInterpolator.obtain(0f, 0f, .58f, 1f));
+        assertNotSame(a, CubicBezierTableInterpolator.obtain(.42f, 0f, .58f, 1f));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidControlPoints() {
+        new CubicBezierTableInterpolator(1.5f, 0, .58f, 1);
+    }
+
+    private static float reference(float[] c, double x) {
+        double cx = 3.0 * c[0], bx = 3.0 * (c[2] - c[0]) - cx, ax = 1.0 - cx - bx;
+        double cy = 3.0 * c[1], by = 3.0 * (c[3] - c[1]) - cy, ay = 1.0 - cy - by;
+        double lo = 0, hi = 1, t = x;
+        for (int i = 0; i < 60; i++) {
+            t = (lo + hi) / 2;
+            if (t * (cx + t * (bx + t * ax)) < x) lo = t;
+            else hi = t;
+        }
+        return (float) (t * (cy + t * (by + t * ay)));
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps many shapes at once on a {@link ForkJoinPool}.
+ * Instances are split into contiguous chunks, every chunk updates its shapes and writes
+ * their control points into per-instance arrays.
+ * {@link #step(float)} returns once every instance is done, the points are then visible
+ * to the calling thread. Don't touch the shapes while a step is running.
+ * The views step their drawables through it when it's set on the shared step of the ticker
+ * ({@code AXWaveTicker.setBatchSimulation}), callers that draw shapes themselves can step it directly
+ * and emit the points, e.g. through {@code AXWaveDrawable.emitPath(float[])}.
+ * ForkJoinPool needs API 21 on Android.
+ */
+public class AXBatchSimulation {
+
+    /**
+     * instances per task, small enough to balance the work and large enough
+     * to keep the per-task overhead low
+     */
+    public final static int DEFAULT_CHUNK_SIZE = 32;
+
+    private static ForkJoinPool defaultPool;
+
+    private final ForkJoinPool pool;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private AXTrigTable trigTable = AXTrigTable.getDefault();
+
+    private AXWaveShape[] shapes = new AXWaveShape[16];
+    private float[][] points = new float[16][];
+    // amplitude, speed scale, elapsed time (NaN for the time of the step)
+    private float[] inputs = new float[16 * 3];
+    // left, top, right, bottom, a center is stored as empty bounds
+    private float[] bounds = new float[16 * 4];
+    private int count;
+    private float dt;
+
+    /**
+     * simulate on a pool shared by the batches, one thread per core
+     */
+    public AXBatchSimulation() {
+        this(getDefaultPool());
+    }
+
+    public AXBatchSimulation(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    /**
+     * @return index of the instance
+     */
+    public int add(AXWaveShape shape) {
+        if (count == shapes.length) {
+            int size = count * 2;
+            shapes = Arrays.copyOf(shapes, size);
+            points = Arrays.copyOf(points, size);
+            inputs = Arrays.copyOf(inputs, size * 3);
+            bounds = Arrays.copyOf(bounds, size * 4);
+        }
+        shapes[count] = shape;
+        // reuse the points of a cleared instance
+        if (points[count] == null || points[count].length < shape.getPointCapacity()) {
+            points[count] = new float[shape.getPointCapacity()];
+        }
+        inputs[count * 3 + 2] = Float.NaN;
+        return count++;
+    }
+
+    /**
+     * remove every instance, the point arrays are kept for the next instances
+     */
+    public void clear() {
+        Arrays.fill(shapes, 0, count, null);
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public AXWaveShape getShape(int index) {
+        return shapes[index];
+    }
+
+    /**
+     * @return control points of the instance written by the last step,
+     * see {@link AXWaveShape#getPointCount()}
+     */
+    public float[] getPoints(int index) {
+        return points[index];
+    }
+
+    public void setInput(int index, float amplitude, float speedScale) {
+        setInput(index, amplitude, speedScale, Float.NaN);
+    }
+
+    /**
+     * @param dt elapsed time of the instance (ms), NaN to use the time of the step
+     */
+    public void setInput(int index, float amplitude, float speedScale, float dt) {
+        inputs[index * 3] = amplitude;
+        inputs[index * 3 + 1] = speedScale;
+        inputs[index * 3 + 2] = dt;
+    }
+
+    /**
+     * center of a blob instance, same as empty bounds around the center
+     */
+    public void setCenter(int index, float cX, float cY) {
+        setBounds(index, cX, cY, cX, cY);
+    }
+
+    /**
+     * bounds of the instance, see {@link AXWaveShape#computePoints(float, float, float, float, float[], AXTrigTable)}
+     */
+    public void setBounds(int index, float left, float top, float right, float bottom) {
+        int i = index * 4;
+        bounds[i] = left;
+        bounds[i + 1] = top;
+        bounds[i + 2] = right;
+        bounds[i + 3] = bottom;
+    }
+
+    /**
+     * update every instance and compute its points
+     * @param dt elapsed time since the previous step (ms), for the instances without their own
+     */
+    public void step(float dt) {
+        this.dt = dt;
+        if (count <= chunkSize) {
+            step(0, count);
+        } else {
+            pool.invoke(new Chunk(0, count));
+        }
+    }
+
+    private void step(int from, int to) {
+        for (int i = from; i < to; i++) {
+            AXWaveShape shape = shapes[i];
+            // the points array can grow with the blob count of the shape
+            if (points[i].length < shape.getPointCount()) {
+                points[i] = new float[shape.getPointCapacity()];
+            }
+            float dt = inputs[i * 3 + 2];
+            shape.update(inputs[i * 3], inputs[i * 3 + 1], Float.isNaN(dt) ? this.dt : dt);
+            int b = i * 4;
+            shape.computePoints(bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3], points[i], trigTable);
+        }
+    }
+
+    private class Chunk extends RecursiveAction {
+        private final static long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                step(from, to);
+                return;
+            }
+            // split on a chunk boundary so neighbouring tasks don't share chunks
+            int mid = from + Math.max((to - from) / chunkSize / 2, 1) * chunkSize;
+            invokeAll(new Chunk(from, mid), new Chunk(mid, to));
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(chunkSize, 1);
+    }
+
+    public AXTrigTable getTrigTable() {
+        return trigTable;
+    }
+
+    /**
+     * @param trigTable table for the blob rotations, null for {@link Math#sin(double)}
+     */
+    public void setTrigTable(AXTrigTable trigTable) {
+        this.trigTable = trigTable;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * Circular wave: N points moving between random radius/angle targets around a center.
+ * The shape is emitted as cubic bezier control points into a float array
+ * (move-to point followed by N cubic segments, 6 floats each).
+ */
+public class AXBlobShape extends AXWaveShape {
+
+    protected float L;
+
+    public AXBlobShape(int n) {
+        super(n);
+    }
+
+    @Override
+    protected void init(int n) {
+        L = (float) ((4.0 / 3.0) * Math.tan(Math.PI / (2 * n)));
+        super.init(n);
+    }
+
+    /**
+     * generate a random radius, angle and speed for the point
+     * @param target {@link #RADIUS} or {@link #RADIUS_NEXT}, the angle is written next to it
+     */
+    @Override
+    protected void generateBlob(int i, int target) {
+        float angleDif = 360f / N * 0.05f;
+        float radDif = maxRadius - minRadius;
+        int o = i * STRIDE;
+        state[o + target] = minRadius + Math.abs(((random.nextInt() % 100f) / 100f)) * radDif;
+        state[o + target + 1] = 360f / N * i + ((random.nextInt() % 100f) / 100f) * angleDif;
+        state[o + SPEED] = (float) (0.017 + 0.003 * (Math.abs(random.nextInt() % 100f) / 100f));
+    }
+
+    /**
+     * @return number of floats written by computePoints
+     */
+    @Override
+    public int getPointCount() {
+        return 6 * N + 2;
+    }
+
+    /**
+     * @return size of a points array that fits every count up to the capacity
+     */
+    @Override
+    public int getPointCapacity() {
+        return 6 * getCapacity() + 2;
+    }
+
+    /**
+     * blobs are centered in the bounds, see {@link #computePoints(float, float, float[], AXTrigTable)}
+     */
+    @Override
+    public void computePoints(float left, float top, float right, float bottom, float[] out, AXTrigTable table) {
+        computePoints((left + right) / 2f, (top + bottom) / 2f, out, table);
+    }
+
+    /**
+     * write the control points of the shape around the center into out
+     * @param table sin/cos table, null to use {@link Math#sin(double)}
+     */
+    public void computePoints(float cX, float cY, float[] out, AXTrigTable table) {
+        float r1 = radius(0);
+        float angle1 = angle(0);
+        float sin1 = table != null ? table.sin(angle1) : sin(angle1);
+        float cos1 = table != null ? table.cos(angle1) : cos(angle1);
+        final float r0 = r1, sin0 = sin1, cos0 = cos1;
+
+        out[0] = cX + r1 * sin1;
+        out[1] = cY - r1 * cos1;
+
+        final float[] state = this.state;
+        for (int i = 0, p = 2, o = STRIDE; i < N; i++, p += 6, o += STRIDE) {
+            float r2, sin2, cos2;
+            if (i + 1 < N) {
+                float t = state[o + PROGRESS];
+                r2 = state[o + RADIUS] * (1f - t) + state[o + RADIUS_NEXT] * t;
+                float angle2 = state[o + ANGLE] * (1f - t) + state[o + ANGLE_NEXT] * t;
+                sin2 = table != null ? table.sin(angle2) : sin(angle2);
+                cos2 = table != null ? table.cos(angle2) : cos(angle2);
+            } else {
+                r2 = r0;
+                sin2 = sin0;
+                cos2 = cos0;
+            }
+
+            float l = L * (Math.min(r1, r2) + (Math.max(r1, r2) - Math.min(r1, r2)) / 2f);
+            out[p] = cX + l * cos1 + r1 * sin1;
+            out[p + 1] = cY + l * sin1 - r1 * cos1;
+            out[p + 2] = cX - l * cos2 + r2 * sin2;
+            out[p + 3] = cY - l * sin2 - r2 * cos2;
+            out[p + 4] = cX + r2 * sin2;
+            out[p + 5] = cY - r2 * cos2;
+
+            r1 = r2;
+            sin1 = sin2;
+            cos1 = cos2;
+        }
+    }
+
+    private static float sin(float degrees) {
+        return (float) Math.sin(Math.toRadians(degrees));
+    }
+
+    private static float cos(float degrees) {
+        return (float) Math.cos(Math.toRadians(degrees));
+    }
+
+    /**
+     * change the number of points, the new points start on the current outline
+     * so the shape doesn't jump. allocates only if the count exceeds {@link #getCapacity()}
+     */
+    @Override
+    public void setBlobCount(int count) {
+        if (count == N) return;
+        if (count < 3) throw new IllegalArgumentException("count must be at least 3");
+
+        int n = N;
+        for (int i = 0; i < n; i++) {
+            scratchRadius[i] = radius(i);
+            scratchAngle[i] = angle(i);
+        }
+        ensureCapacity(count);
+
+        N = count;
+        L = (float) ((4.0 / 3.0) * Math.tan(Math.PI / (2 * N)));
+        for (int i = 0, o = 0; i < N; i++, o += STRIDE) {
+            float degrees = 360f / N * i;
+            state[o + RADIUS] = sampleRadius(degrees, n);
+            state[o + ANGLE] = degrees;
+            state[o + PROGRESS] = 0;
+            generateBlob(i, RADIUS_NEXT);
+        }
+    }
+
+    /**
+     * radius of the old outline at the giving angle
+     */
+    private float sampleRadius(float degrees, int n) {
+        if (degrees < scratchAngle[0]) degrees += 360f;
+        for (int i = 0; i < n; i++) {
+            float a1 = scratchAngle[i];
+            float a2 = i + 1 < n ? scratchAngle[i + 1] : scratchAngle[0] + 360f;
+            if (degrees < a2 || i == n - 1) {
+                float r2 = i + 1 < n ? scratchRadius[i + 1] : scratchRadius[0];
+                float t = a2 > a1 ? (degrees - a1) / (a2 - a1) : 0;
+                return scratchRadius[i] + (r2 - scratchRadius[i]) * Math.min(Math.max(t, 0), 1);
+            }
+        }
+        return scratchRadius[0];
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * Follows a target level on real elapsed time with separate attack (rising) and release (falling) times.
+ * Setting a target only stores it, so any number of readings between two frames costs nothing,
+ * every {@link #update(float)} is O(1) and allocation-free.
+ */
+public class AXEnvelopeFollower {
+
+    /**
+     * constant slope that reaches the target in attack/release ms,
+     * restarted by every new target (the old amplitude animation)
+     */
+    public final static int MODE_LINEAR = 0;
+
+    /**
+     * exponential approach, attack/release are the time constants (63% of a step)
+     */
+    public final static int MODE_ONE_POLE = 1;
+
+    /**
+     * critically damped spring, smooth velocity without overshoot,
+     * a step settles about as fast as {@link #MODE_ONE_POLE} with the same times
+     */
+    public final static int MODE_SPRING = 2;
+
+    // below this distance the value snaps to the target, so the follower settles
+    private final static float EPSILON = 1e-4f;
+
+    private int mode = MODE_ONE_POLE;
+    private float attack = 50f;
+    private float release = 200f;
+
+    private float value;
+    private float target;
+    private float velocity;
+    // slope of the linear glide (per ms), 0 if not gliding
+    private float slope;
+
+    /**
+     * move towards the giving level from the next update
+     */
+    public void setTarget(float target) {
+        this.target = target;
+        if (mode == MODE_LINEAR) {
+            glide(target > value ? attack : release);
+        } else {
+            slope = 0;
+        }
+    }
+
+    /**
+     * move to the giving level with a constant slope for the giving duration (ms) whatever the mode,
+     * the next {@link #setTarget(float)} goes back to the mode
+     */
+    public void glideTo(float target, float duration) {
+        this.target = target;
+        glide(duration);
+    }
+
+    private void glide(float duration) {
+        velocity = 0;
+        slope = duration > 0 ? (target - value) / duration : 0;
+        if (slope == 0) value = target;
+    }
+
+    /**
+     * jump to the giving level at once
+     */
+    public void snapTo(float value) {
+        this.value = this.target = value;
+        velocity = slope = 0;
+    }
+
+    /**
+     * @param dt elapsed time since the previous update (ms)
+     * @return the new value
+     */
+    public float update(float dt) {
+        if (value == target && velocity == 0) return value;
+
+        if (slope != 0) {
+            value += slope * dt;
+            if (slope > 0 ? value >= target : value <= target) {
+                value = target;
+                slope = 0;
+            }
+            return value;
+        }
+
+        final float time = target > value ? attack : release;
+        if (time <= 0) {
+            snapTo(target);
+            return value;
+        }
+        if (dt <= 0) return value;
+
+        if (mode == MODE_SPRING) {
+            // exact step of x'' = -w^2 x - 2w x', stable for any dt
+            final float w = 2f / time;
+            final float x = value - target;
+            final float decay = (float) Math.exp(-w * dt);
+            final float c = velocity + w * x;
+            value = target + (x + c * dt) * decay;
+            velocity = (velocity - w * c * dt) * decay;
+            if (Math.abs(value - target) < EPSILON && Math.abs(velocity) * time < EPSILON) {
+                snapTo(target);
+            }
+        } else {
+            value += (target - value) * (1f - (float) Math.exp(-dt / time));
+            velocity = 0;
+            if (Math.abs(value - target) < EPSILON) value = target;
+        }
+        return value;
+    }
+
+    public float getValue() {
+        return value;
+    }
+
+    public float getTarget() {
+        return target;
+    }
+
+    /**
+     * @return true if the value rests at the target
+     */
+    public boolean isSettled() {
+        return value == target && velocity == 0;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @param mode {@link #MODE_LINEAR}, {@link #MODE_ONE_POLE} or {@link #MODE_SPRING}
+     */
+    public void setMode(int mode) {
+        if (mode < MODE_LINEAR || mode > MODE_SPRING) {
+            throw new IllegalArgumentException("unknown mode " + mode);
+        }
+        this.mode = mode;
+        velocity = 0;
+        setTarget(target);
+    }
+
+    public float getAttack() {
+        return attack;
+    }
+
+    /**
+     * time of rising levels (ms), 0 to jump at once
+     */
+    public void setAttack(float attack) {
+        this.attack = Math.max(attack, 0);
+    }
+
+    public float getRelease() {
+        return release;
+    }
+
+    /**
+     * time of falling levels (ms), 0 to drop at once
+     */
+    public void setRelease(float release) {
+        this.release = Math.max(release, 0);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * In-place real FFT of a fixed power of two size.
+ * The twiddle and bit-reversal tables are computed once, transforms don't allocate.
+ * Not thread safe, every thread needs its own instance.
+ */
+public class AXFft {
+
+    private final int size;
+    private final int half;
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] splitCos;
+    private final float[] splitSin;
+    private final int[] reverse;
+
+    /**
+     * @param size number of real samples, a power of two (at least 4)
+     */
+    public AXFft(int size) {
+        if (size < 4 || (size & (size - 1)) != 0) {
+            throw new IllegalArgumentException("size must be a power of two, at least 4");
+        }
+        this.size = size;
+        this.half = size / 2;
+
+        // twiddles of the half size complex transform
+        cos = new float[half / 2];
+        sin = new float[half / 2];
+        for (int i = 0; i < half / 2; i++) {
+            cos[i] = (float) Math.cos(2 * Math.PI * i / half);
+            sin[i] = (float) -Math.sin(2 * Math.PI * i / half);
+        }
+
+        // twiddles that split the complex result into the real spectrum
+        splitCos = new float[half / 2 + 1];
+        splitSin = new float[half / 2 + 1];
+        for (int i = 0; i <= half / 2; i++) {
+            splitCos[i] = (float) Math.cos(2 * Math.PI * i / size);
+            splitSin[i] = (float) -Math.sin(2 * Math.PI * i / size);
+        }
+
+        reverse = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            reverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * transform {@link #getSize()} real samples in place.
+     * the result is packed as data[0] = DC, data[1] = Nyquist (both real)
+     * and data[2k], data[2k + 1] = real and imaginary parts of bin k (0 < k < size / 2)
+     */
+    public void realForward(float[] data) {
+        // the even and odd samples are the real and imaginary parts of a half size complex signal
+        complexForward(data);
+
+        float re0 = data[0], im0 = data[1];
+        data[0] = re0 + im0;
+        data[1] = re0 - im0;
+
+        for (int k = 1, end = half / 2; k <= end; k++) {
+            int a = 2 * k, b = 2 * (half - k);
+            float zRe = data[a], zIm = data[a + 1];
+            float cRe = data[b], cIm = -data[b + 1];
+
+            // even part (Z[k] + conj(Z[n - k])) / 2 and odd part (Z[k] - conj(Z[n - k])) / 2i
+            float eRe = (zRe + cRe) * 0.5f;
+            float eIm = (zIm + cIm) * 0.5f;
+            float oRe = (zIm - cIm) * 0.5f;
+            float oIm = -(zRe - cRe) * 0.5f;
+
+            float wRe = splitCos[k], wIm = splitSin[k];
+            float tRe = wRe * oRe - wIm * oIm;
+            float tIm = wRe * oIm + wIm * oRe;
+
+            data[a] = eRe + tRe;
+            data[a + 1] = eIm + tIm;
+            // X[n - k] = conj(E[k] - W^k O[k])
+            data[b] = eRe - tRe;
+            data[b + 1] = tIm - eIm;
+        }
+    }
+
+    /**
+     * squared magnitudes of the packed result of {@link #realForward(float[])}
+     * @param out size / 2 + 1 bins, DC to Nyquist
+     */
+    public void power(float[] data, float[] out) {
+        out[0] = data[0] * data[0];
+        out[half] = data[1] * data[1];
+        for (int k = 1; k < half; k++) {
+            float re = data[2 * k], im = data[2 * k + 1];
+            out[k] = re * re + im * im;
+        }
+    }
+
+    /**
+     * radix-2 transform of the half size interleaved complex signal
+     */
+    private void complexForward(float[] data) {
+        for (int i = 0; i < half; i++) {
+            int j = reverse[i];
+            if (j > i) {
+                float re = data[2 * i], im = data[2 * i + 1];
+                data[2 * i] = data[2 * j];
+                data[2 * i + 1] = data[2 * j + 1];
+                data[2 * j] = re;
+                data[2 * j + 1] = im;
+            }
+        }
+
+        for (int length = 2; length <= half; length <<= 1) {
+            int step = half / length;
+            int middle = length >> 1;
+            for (int start = 0; start < half; start += length) {
+                for (int j = 0, t = 0; j < middle; j++, t += step) {
+                    int a = 2 * (start + j), b = 2 * (start + j + middle);
+                    float wRe = cos[t], wIm = sin[t];
+                    float re = wRe * data[b] - wIm * data[b + 1];
+                    float im = wRe * data[b + 1] + wIm * data[b];
+                    data[b] = data[a] - re;
+                    data[b + 1] = data[a + 1] - im;
+                    data[a] += re;
+                    data[a + 1] += im;
+                }
+            }
+        }
+    }
+}
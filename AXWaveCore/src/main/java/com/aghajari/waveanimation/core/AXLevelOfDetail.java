@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * Level-of-detail policy, picks the number of blob points / line segments
+ * from the rendered size and an optional per-frame cost budget.
+ * Counts scale with the square root of the size, so small views get cheaper
+ * and large ones stay smooth, and the budget lowers them while frames are too expensive.
+ */
+public class AXLevelOfDetail {
+
+    private final static float ALPHA = 0.1f;
+    private final static int COOLDOWN = 30;
+
+    private int minCount = 4;
+    private float maxFactor = 2f;
+    private float minCostScale = 0.5f;
+    private long budget = 0;
+
+    private float costScale = 1f;
+    private float averageCost = -1;
+    private int cooldown = 0;
+
+    /**
+     * @param baseCount count tuned for the reference size
+     * @param sizeRatio rendered size / reference size
+     */
+    public int getCount(int baseCount, float sizeRatio) {
+        float scale = (float) Math.sqrt(Math.max(sizeRatio, 0)) * costScale;
+        int count = Math.min(Math.round(baseCount * scale), getMaxCount(baseCount));
+        return Math.max(Math.min(baseCount, minCount), count);
+    }
+
+    /**
+     * report the cost of the simulation of a frame
+     * @param nanos update and path-build time of the frame
+     * @return true if the counts have changed
+     */
+    public boolean onFrameCost(long nanos) {
+        if (budget <= 0) return false;
+        averageCost = averageCost < 0 ? nanos : averageCost + (nanos - averageCost) * ALPHA;
+        if (cooldown > 0) {
+            cooldown--;
+            return false;
+        }
+
+        float scale = costScale;
+        if (averageCost > budget) {
+            scale = Math.max(minCostScale, costScale - 0.1f);
+        } else if (averageCost < budget * 0.6f) {
+            scale = Math.min(1f, costScale + 0.1f);
+        }
+        if (scale == costScale) return false;
+        costScale = scale;
+        cooldown = COOLDOWN;
+        return true;
+    }
+
+    /**
+     * @return largest count the policy can pick for the base count
+     */
+    public int getMaxCount(int baseCount) {
+        return Math.max(baseCount, (int) (baseCount * maxFactor));
+    }
+
+    public int getMinCount() {
+        return minCount;
+    }
+
+    public void setMinCount(int minCount) {
+        this.minCount = minCount;
+    }
+
+    public float getMaxFactor() {
+        return maxFactor;
+    }
+
+    /**
+     * @param maxFactor largest count = base count * maxFactor
+     */
+    public void setMaxFactor(float maxFactor) {
+        this.maxFactor = maxFactor;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @param budget simulation cost budget per frame (ns), 0 to pick the counts from the size only
+     */
+    public void setBudget(long budget) {
+        this.budget = budget;
+        if (budget <= 0) costScale = 1f;
+    }
+
+    public float getMinCostScale() {
+        return minCostScale;
+    }
+
+    /**
+     * @param minCostScale lowest factor the budget can apply to the counts
+     */
+    public void setMinCostScale(float minCostScale) {
+        this.minCostScale = minCostScale;
+    }
+
+    /**
+     * @return current factor of the budget (1 if frames are within budget)
+     */
+    public float getCostScale() {
+        return costScale;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * State and math of a line wave: N + 1 points along the width moving between random heights,
+ * packed like every {@link AXWaveShape} with the angle slots unused.
+ * The shape is emitted as the bottom right and bottom left corners, the first point
+ * and N cubic segments (6 floats each).
+ */
+public class AXLineShape extends AXWaveShape {
+
+    public AXLineShape(int n) {
+        super(n);
+    }
+
+    @Override
+    public int getStateCount() {
+        return N + 1;
+    }
+
+    @Override
+    protected void generateBlob(int i, int target) {
+        float radDif = maxRadius - minRadius;
+        int o = i * STRIDE;
+        state[o + target] = minRadius + Math.abs(((random.nextInt() % 100f) / 100f)) * radDif;
+        state[o + SPEED] = (float) (0.017 + 0.003 * (Math.abs(random.nextInt() % 100f) / 100f));
+    }
+
+    @Override
+    public int getPointCount() {
+        return 6 * N + 6;
+    }
+
+    @Override
+    public int getPointCapacity() {
+        return 6 * getCapacity() + 6;
+    }
+
+    /**
+     * @return largest number of segments that doesn't need reallocation
+     */
+    @Override
+    public int getCapacity() {
+        return super.getCapacity() - 1;
+    }
+
+    @Override
+    public void ensureCapacity(int count) {
+        super.ensureCapacity(count + 1);
+    }
+
+    /**
+     * change the number of segments, the new points start on the current line
+     */
+    @Override
+    public void setBlobCount(int count) {
+        if (count == N) return;
+        if (count < 1) throw new IllegalArgumentException("count must be at least 1");
+
+        int n = N;
+        for (int i = 0; i <= n; i++) {
+            scratchRadius[i] = radius(i);
+        }
+        ensureCapacity(count);
+
+        N = count;
+        for (int i = 0, o = 0; i <= N; i++, o += STRIDE) {
+            float x = (float) i / N * n;
+            int index = Math.min((int) x, n - 1);
+            float t = x - index;
+            state[o + RADIUS] = scratchRadius[index] + (scratchRadius[index + 1] - scratchRadius[index]) * t;
+            state[o + PROGRESS] = 0;
+            generateBlob(i, RADIUS_NEXT);
+        }
+    }
+
+    @Override
+    public float angle(int i) {
+        return 0;
+    }
+
+    /**
+     * same as {@link #computePoints(float, float, float, float, float[])}, lines aren't rotated
+     */
+    @Override
+    public void computePoints(float left, float top, float right, float bottom, float[] out, AXTrigTable table) {
+        computePoints(left, top, right, bottom, out);
+    }
+
+    /**
+     * write the control points of the line into out,
+     * the points rise from top by their radius
+     */
+    public void computePoints(float left, float top, float right, float bottom, float[] out) {
+        out[0] = right;
+        out[1] = bottom;
+        out[2] = left;
+        out[3] = bottom;
+        out[4] = left;
+        out[5] = top - radius(0);
+
+        final float[] state = this.state;
+        float y1 = out[5];
+        for (int i = 1, p = 6, o = STRIDE; i <= N; i++, p += 6, o += STRIDE) {
+            float t = state[o + PROGRESS];
+            float y2 = top - (state[o + RADIUS] * (1f - t) + state[o + RADIUS_NEXT] * t);
+            float x1 = (right - left) / N * (i - 1);
+            float x2 = (right - left) / N * i;
+            float cx = x1 + (x2 - x1) / 2;
+
+            out[p] = cx;
+            out[p + 1] = y1;
+            out[p + 2] = cx;
+            out[p + 3] = y2;
+            out[p + 4] = x2;
+            out[p + 5] = y2;
+            y1 = y2;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Power spectrum of a PCM stream. Incoming samples are down-mixed into a window of
+ * {@link #getSize()} frames, every {@link #getHop()} new frames the window is multiplied
+ * by a Hann table and transformed by {@link AXFft}.
+ * Writing doesn't allocate, call it from the audio thread and read the latest spectrum
+ * from any other thread with {@link #copyPower(float[])}.
+ */
+public class AXSpectrum {
+
+    public final static int DEFAULT_SIZE = 1024;
+
+    private final AXFft fft;
+    private final int size;
+    private final int sampleRate;
+    private final float[] window;
+    private final float[] samples;
+    private final float[] buffer;
+    private final float[] power;
+    private final float[] published;
+    private final float normalization;
+
+    private int hop;
+    private int fill;
+    private long sequence;
+
+    public AXSpectrum(int sampleRate) {
+        this(DEFAULT_SIZE, sampleRate);
+    }
+
+    /**
+     * @param size window length (frames), a power of two
+     */
+    public AXSpectrum(int size, int sampleRate) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.fft = new AXFft(size);
+        this.size = size;
+        this.sampleRate = sampleRate;
+        this.hop = size / 2;
+
+        window = new float[size];
+        float sum = 0;
+        for (int i = 0; i < size; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+            sum += window[i];
+        }
+        // a full scale sine reaches 1 in its bin
+        normalization = 4f / (sum * sum);
+
+        samples = new float[size];
+        buffer = new float[size];
+        power = new float[size / 2 + 1];
+        published = new float[size / 2 + 1];
+    }
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void write(short[] pcm, int offset, int length, int channels) {
+        final int end = offset + length - length % channels;
+        final float scale = 1f / (32768f * channels);
+        for (int i = offset; i < end; ) {
+            int mix = 0;
+            for (int c = 0; c < channels; c++) mix += pcm[i++];
+            push(mix * scale);
+        }
+    }
+
+    /**
+     * @param length number of samples (frames * channels)
+     */
+    public void write(float[] pcm, int offset, int length, int channels) {
+        final int end = offset + length - length % channels;
+        final float scale = 1f / channels;
+        for (int i = offset; i < end; ) {
+            float mix = 0;
+            for (int c = 0; c < channels; c++) mix += pcm[i++];
+            push(mix * scale);
+        }
+    }
+
+    /**
+     * reads the buffer with absolute gets, the byte order must match the PCM data
+     * @param length number of bytes
+     * @param pcmFloat true for 32 bit float samples, false for 16 bit
+     */
+    public void write(ByteBuffer pcm, int offset, int length, int channels, boolean pcmFloat) {
+        final int bytes = pcmFloat ? 4 : 2;
+        final float scale = pcmFloat ? 1f / channels : 1f / (32768f * channels);
+        final int frameSize = bytes * channels;
+        final int end = offset + length - length % frameSize;
+        for (int i = offset; i < end; ) {
+            float mix = 0;
+            for (int c = 0; c < channels; c++, i += bytes) {
+                mix += pcmFloat ? pcm.getFloat(i) : pcm.getShort(i);
+            }
+            push(mix * scale);
+        }
+    }
+
+    private void push(float sample) {
+        samples[fill++] = sample;
+        if (fill < size) return;
+
+        for (int i = 0; i < size; i++) {
+            buffer[i] = samples[i] * window[i];
+        }
+        fft.realForward(buffer);
+        fft.power(buffer, power);
+        for (int i = 0; i < power.length; i++) {
+            power[i] *= normalization;
+        }
+        publish();
+
+        // keep the overlap for the next window
+        System.arraycopy(samples, hop, samples, 0, size - hop);
+        fill = size - hop;
+    }
+
+    private synchronized void publish() {
+        System.arraycopy(power, 0, published, 0, power.length);
+        sequence++;
+    }
+
+    /**
+     * copy the power of the latest window (0 - 1 for a full scale sine)
+     * @param out {@link #getBinCount()} bins, DC to Nyquist
+     * @return number of windows analyzed so far
+     */
+    public synchronized long copyPower(float[] out) {
+        System.arraycopy(published, 0, out, 0, published.length);
+        return sequence;
+    }
+
+    /**
+     * forget the buffered samples and the published spectrum, call it while nothing is written
+     */
+    public synchronized void reset() {
+        fill = 0;
+        for (int i = 0; i < published.length; i++) published[i] = 0;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return number of bins of {@link #copyPower(float[])}
+     */
+    public int getBinCount() {
+        return size / 2 + 1;
+    }
+
+    /**
+     * @return bandwidth of a bin (Hz)
+     */
+    public float getBinWidth() {
+        return sampleRate / (float) size;
+    }
+
+    public int getHop() {
+        return hop;
+    }
+
+    /**
+     * @param hop number of new frames between two windows (1 - size), size / 2 by default
+     */
+    public void setHop(int hop) {
+        if (hop < 1 || hop > size) {
+            throw new IllegalArgumentException("hop must be between 1 and size");
+        }
+        this.hop = hop;
+    }
+}
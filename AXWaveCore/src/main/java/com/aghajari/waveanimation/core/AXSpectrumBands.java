@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * Groups the bins of an {@link AXSpectrum} into log-spaced bands and smooths every band
+ * with separate attack and release times. The levels (0 - 1) map the loudest bin of the band
+ * between {@link #getMinDecibels()} and {@link #getMaxDecibels()}.
+ */
+public class AXSpectrumBands {
+
+    private final float[] levels;
+    private final int[] from;
+    private final int[] to;
+
+    private float minFrequency = 50f;
+    private float maxFrequency = 12000f;
+    private float minDecibels = -80f;
+    private float maxDecibels = -10f;
+    private float attack = 30f;
+    private float release = 150f;
+
+    // the bin ranges are computed for this spectrum layout
+    private float binWidth = -1;
+    private int binCount = -1;
+
+    /**
+     * @param count number of bands, usually the number of points of the shape
+     */
+    public AXSpectrumBands(int count) {
+        if (count < 1) throw new IllegalArgumentException("count must be at least 1");
+        levels = new float[count];
+        from = new int[count];
+        to = new int[count];
+    }
+
+    /**
+     * aggregate and smooth the giving power spectrum
+     * @param power bins of {@link AXSpectrum#copyPower(float[])}
+     * @param dt    elapsed time since the previous update (ms)
+     */
+    public void update(AXSpectrum spectrum, float[] power, float dt) {
+        if (spectrum.getBinWidth() != binWidth || spectrum.getBinCount() != binCount) {
+            computeRanges(spectrum.getBinWidth(), spectrum.getBinCount());
+        }
+
+        final float attackFactor = attack > 0 ? 1f - (float) Math.exp(-dt / attack) : 1f;
+        final float releaseFactor = release > 0 ? 1f - (float) Math.exp(-dt / release) : 1f;
+        final float range = maxDecibels - minDecibels;
+
+        for (int b = 0; b < levels.length; b++) {
+            float max = 0;
+            for (int i = from[b]; i < to[b]; i++) {
+                if (power[i] > max) max = power[i];
+            }
+            float target = 0;
+            if (max > 0) {
+                float db = 10f * (float) Math.log10(max);
+                target = Math.min(Math.max((db - minDecibels) / range, 0), 1);
+            }
+            float level = levels[b];
+            levels[b] = level + (target - level) * (target > level ? attackFactor : releaseFactor);
+        }
+    }
+
+    private void computeRanges(float binWidth, int binCount) {
+        this.binWidth = binWidth;
+        this.binCount = binCount;
+        final int count = levels.length;
+        final float maxFrequency = Math.min(this.maxFrequency, binWidth * (binCount - 1));
+        final float minFrequency = Math.min(this.minFrequency, maxFrequency);
+        final double ratio = maxFrequency / minFrequency;
+
+        for (int b = 0; b < count; b++) {
+            double low = minFrequency * Math.pow(ratio, (double) b / count);
+            double high = minFrequency * Math.pow(ratio, (double) (b + 1) / count);
+            // skip DC, narrow low bands share a bin
+            int first = Math.max(1, Math.min(binCount - 1, (int) Math.floor(low / binWidth)));
+            int last = Math.max(first + 1, Math.min(binCount, (int) Math.ceil(high / binWidth)));
+            from[b] = first;
+            to[b] = last;
+        }
+    }
+
+    /**
+     * @return smoothed level of every band (0 - 1), lowest frequency first
+     */
+    public float[] getLevels() {
+        return levels;
+    }
+
+    public int getCount() {
+        return levels.length;
+    }
+
+    /**
+     * fall back to silence at once
+     */
+    public void reset() {
+        for (int b = 0; b < levels.length; b++) levels[b] = 0;
+    }
+
+    public float getMinFrequency() {
+        return minFrequency;
+    }
+
+    public float getMaxFrequency() {
+        return maxFrequency;
+    }
+
+    /**
+     * frequency range of the bands (Hz), the max is limited by the Nyquist frequency
+     */
+    public void setFrequencyRange(float minFrequency, float maxFrequency) {
+        if (minFrequency <= 0 || maxFrequency <= minFrequency) {
+            throw new IllegalArgumentException("invalid frequency range");
+        }
+        this.minFrequency = minFrequency;
+        this.maxFrequency = maxFrequency;
+        binWidth = -1;
+    }
+
+    public float getMinDecibels() {
+        return minDecibels;
+    }
+
+    public float getMaxDecibels() {
+        return maxDecibels;
+    }
+
+    /**
+     * power range (dB, full scale sine = 0) mapped to the levels 0 - 1
+     */
+    public void setDecibelRange(float minDecibels, float maxDecibels) {
+        if (maxDecibels <= minDecibels) {
+            throw new IllegalArgumentException("invalid decibel range");
+        }
+        this.minDecibels = minDecibels;
+        this.maxDecibels = maxDecibels;
+    }
+
+    public float getAttack() {
+        return attack;
+    }
+
+    /**
+     * time constant of rising levels (ms), 0 to jump at once
+     */
+    public void setAttack(float attack) {
+        this.attack = Math.max(attack, 0);
+    }
+
+    public float getRelease() {
+        return release;
+    }
+
+    /**
+     * time constant of falling levels (ms), 0 to drop at once
+     */
+    public void setRelease(float release) {
+        this.release = Math.max(release, 0);
+    }
+}
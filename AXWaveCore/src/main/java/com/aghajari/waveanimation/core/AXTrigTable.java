@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+/**
+ * Precomputed sin/cos table (degrees) with linear interpolation between the samples.
+ * Immutable, can be shared between drawables and threads.
+ */
+public class AXTrigTable {
+
+    public final static int DEFAULT_RESOLUTION = 4096;
+
+    private final int resolution;
+    private final float samplesPerDegree;
+    private final float[] table;
+
+    public AXTrigTable(int resolution) {
+        if (resolution < 4) {
+            throw new IllegalArgumentException("resolution must be at least 4");
+        }
+        this.resolution = resolution;
+        this.samplesPerDegree = resolution / 360f;
+        this.table = new float[resolution + 1];
+        for (int i = 0; i <= resolution; i++) {
+            table[i] = (float) Math.sin(2 * Math.PI * i / resolution);
+        }
+    }
+
+    private static class DefaultHolder {
+        static final AXTrigTable INSTANCE = new AXTrigTable(DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * @return shared table with {@link #DEFAULT_RESOLUTION} samples
+     */
+    public static AXTrigTable getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return number of samples per full turn
+     */
+    public int getResolution() {
+        return resolution;
+    }
+
+    public float sin(float degrees) {
+        float index = degrees * samplesPerDegree;
+        float floor = (float) Math.floor(index);
+        float fraction = index - floor;
+        int i = (int) floor % resolution;
+        if (i < 0) i += resolution;
+        return table[i] + (table[i + 1] - table[i]) * fraction;
+    }
+
+    public float cos(float degrees) {
+        return sin(degrees + 90f);
+    }
+}
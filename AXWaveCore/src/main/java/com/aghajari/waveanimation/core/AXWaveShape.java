@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation.core;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * State and simulation shared by the wave shapes: points moving between random targets,
+ * packed into a single array. Android-free, every shape emits its outline as control points
+ * into a float array, see {@link AXBlobShape} and {@link AXLineShape}.
+ */
+public abstract class AXWaveShape {
+
+    /**
+     * speeds are defined per frame of this length (ms)
+     */
+    public final static float FRAME_TIME = 16f;
+
+    protected float maxSpeed = 8.2f;
+    protected float minSpeed = 0.8f;
+
+    protected float minRadius = -1f;
+    protected float maxRadius = -1f;
+
+    /**
+     * per point state, {@link #STRIDE} consecutive floats for each point so the
+     * update and draw loops walk a single array
+     */
+    protected float[] state;
+
+    public final static int STRIDE = 6;
+    public final static int RADIUS = 0;
+    public final static int ANGLE = 1;
+    public final static int RADIUS_NEXT = 2;
+    public final static int ANGLE_NEXT = 3;
+    public final static int PROGRESS = 4;
+    public final static int SPEED = 5;
+
+    // current outline, used to resample the shape when the number of points changes
+    protected float[] scratchRadius;
+    protected float[] scratchAngle;
+
+    // levels (0 - 1) the radii follow in spectrum mode, null for the random targets
+    protected float[] spectrum;
+
+    protected final Random random = new Random();
+    private long seed;
+
+    protected int N;
+
+    protected AXWaveShape(int n) {
+        init(n);
+    }
+
+    protected void init(int n) {
+        N = n;
+        int count = getStateCount();
+        state = new float[count * STRIDE];
+        scratchRadius = new float[count];
+        scratchAngle = new float[count];
+        generateBlob();
+    }
+
+    /**
+     * @return packed per point state, {@link #STRIDE} floats for each of {@link #getStateCount()} points.
+     * the array is replaced when the capacity grows
+     */
+    public float[] getState() {
+        return state;
+    }
+
+    /**
+     * @return generator of the random targets, seeded by {@link #setSeed(long)}
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * @return number of points in {@link #state}, N for blobs and N + 1 for lines
+     */
+    public int getStateCount() {
+        return N;
+    }
+
+    /**
+     * generate a random target and speed for the point
+     * @param target {@link #RADIUS} or {@link #RADIUS_NEXT}
+     */
+    protected abstract void generateBlob(int i, int target);
+
+    public void generateBlob() {
+        for (int i = 0, count = getStateCount(); i < count; i++) {
+            generateBlob(i, RADIUS);
+            generateBlob(i, RADIUS_NEXT);
+            state[i * STRIDE + PROGRESS] = 0;
+        }
+    }
+
+    /**
+     * advance the points
+     * @param dt elapsed time since the previous frame (ms)
+     */
+    public void update(float amplitude, float speedScale, float dt) {
+        final float frames = dt / FRAME_TIME;
+        final float[] state = this.state;
+        for (int o = 0, end = getStateCount() * STRIDE; o < end; o += STRIDE) {
+            float s = state[o + SPEED];
+            float p = state[o + PROGRESS] + ((s * minSpeed) + amplitude * s * maxSpeed * speedScale) * frames;
+            if (p >= 1f) {
+                state[o + PROGRESS] = 0;
+                state[o + RADIUS] = state[o + RADIUS_NEXT];
+                state[o + ANGLE] = state[o + ANGLE_NEXT];
+                generateBlob(o / STRIDE, RADIUS_NEXT);
+            } else {
+                state[o + PROGRESS] = p;
+            }
+        }
+        if (spectrum != null) applySpectrum();
+    }
+
+    /**
+     * place the points between min and max radius by the spectrum levels,
+     * the angles keep moving. the levels are resampled if their count doesn't match the points
+     */
+    protected void applySpectrum() {
+        final float[] levels = spectrum;
+        final int count = getStateCount();
+        final float radDif = maxRadius - minRadius;
+        final float step = count > 1 ? (levels.length - 1) / (float) (count - 1) : 0;
+        for (int i = 0, o = 0; i < count; i++, o += STRIDE) {
+            float x = i * step;
+            int index = Math.min((int) x, levels.length - 1);
+            float level = index + 1 < levels.length
+                    ? levels[index] + (levels[index + 1] - levels[index]) * (x - index)
+                    : levels[index];
+            float r = minRadius + level * radDif;
+            state[o + RADIUS] = r;
+            state[o + RADIUS_NEXT] = r;
+        }
+    }
+
+    /**
+     * drive the radii by the giving levels (0 - 1) instead of random targets,
+     * the array is read on every update so it can be refilled in place.
+     * null to go back to the random targets
+     * @param levels usually {@link #getSpectrumSize()} levels, e.g. {@link AXSpectrumBands#getLevels()}
+     */
+    public void setSpectrum(float[] levels) {
+        if (levels != null && levels.length == 0) levels = null;
+        if (spectrum != null && levels == null) generateBlob();
+        spectrum = levels;
+    }
+
+    public float[] getSpectrum() {
+        return spectrum;
+    }
+
+    /**
+     * @return number of levels that map one to one to the points
+     */
+    public int getSpectrumSize() {
+        return getStateCount();
+    }
+
+    /**
+     * @return number of floats written by computePoints
+     */
+    public abstract int getPointCount();
+
+    /**
+     * @return size of a points array that fits every count up to the capacity
+     */
+    public abstract int getPointCapacity();
+
+    /**
+     * @return largest number of points that doesn't need reallocation
+     */
+    public int getCapacity() {
+        return state.length / STRIDE;
+    }
+
+    /**
+     * grow the state in place, so {@link #setBlobCount(int)} won't allocate up to the giving count
+     */
+    public void ensureCapacity(int count) {
+        if (state.length >= count * STRIDE) return;
+        state = Arrays.copyOf(state, count * STRIDE);
+        scratchRadius = Arrays.copyOf(scratchRadius, count);
+        scratchAngle = Arrays.copyOf(scratchAngle, count);
+    }
+
+    /**
+     * write the control points of the shape inside the bounds into out,
+     * see the shapes for the layout of the points
+     * @param table sin/cos table for rotated shapes, null to use {@link Math#sin(double)}
+     */
+    public abstract void computePoints(float left, float top, float right, float bottom,
+                                       float[] out, AXTrigTable table);
+
+    /**
+     * place a point without a target, it stays there until an update generates its next target
+     * (e.g. a baked timeline that never updates the shape)
+     */
+    public void setPoint(int i, float radius, float angle) {
+        int o = i * STRIDE;
+        state[o + RADIUS] = radius;
+        state[o + RADIUS_NEXT] = radius;
+        state[o + ANGLE] = angle;
+        state[o + ANGLE_NEXT] = angle;
+    }
+
+    /**
+     * @return current radius of the point
+     */
+    public float radius(int i) {
+        int o = i * STRIDE;
+        float p = state[o + PROGRESS];
+        return state[o + RADIUS] * (1f - p) + state[o + RADIUS_NEXT] * p;
+    }
+
+    /**
+     * @return current angle of the point (degrees)
+     */
+    public float angle(int i) {
+        int o = i * STRIDE;
+        float p = state[o + PROGRESS];
+        return state[o + ANGLE] * (1f - p) + state[o + ANGLE_NEXT] * p;
+    }
+
+    /**
+     * seed the random generator and regenerate the shape,
+     * shapes with the same seed and the same updates emit the same points
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        random.setSeed(seed);
+        generateBlob();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public float getMaxRadius() {
+        return maxRadius;
+    }
+
+    public void setMaxRadius(float maxRadius) {
+        this.maxRadius = maxRadius;
+    }
+
+    public float getMinRadius() {
+        return minRadius;
+    }
+
+    public void setMinRadius(float minRadius) {
+        this.minRadius = minRadius;
+    }
+
+    public float getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public void setMaxSpeed(float maxSpeed) {
+        this.maxSpeed = maxSpeed;
+    }
+
+    public float getMinSpeed() {
+        return minSpeed;
+    }
+
+    public void setMinSpeed(float minSpeed) {
+        this.minSpeed = minSpeed;
+    }
+
+    public int getBlobCount() {
+        return N;
+    }
+
+    /**
+     * change the number of points, the new points continue the current outline
+     * so the shape doesn't jump. allocates only if the count exceeds {@link #getCapacity()}
+     */
+    public abstract void setBlobCount(int count);
+}
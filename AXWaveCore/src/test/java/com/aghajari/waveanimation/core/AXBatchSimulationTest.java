@@ -0,0 +1,102 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class AXBatchSimulationTest {
+
+    private static AXWaveShape createShape(int i) {
+        AXWaveShape shape = i % 3 == 0 ? new AXLineShape(5) : new AXBlobShape(8);
+        shape.setMinRadius(i % 3 == 0 ? 0 : 100);
+        shape.setMaxRadius(i % 3 == 0 ? 30 : 140);
+        shape.setSeed(i);
+        return shape;
+    }
+
+    @Test
+    public void matchesSequentialSteps() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AXBatchSimulation batch = new AXBatchSimulation(pool);
+        batch.setChunkSize(7);
+        int n = 100;
+        AXWaveShape[] expected = new AXWaveShape[n];
+        float[][] points = new float[n][];
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, batch.add(createShape(i)));
+            expected[i] = createShape(i);
+            points[i] = new float[expected[i].getPointCount()];
+            batch.setInput(i, i / (float) n, 0.8f);
+            if (expected[i] instanceof AXLineShape) {
+                batch.setBounds(i, 0, 10, 400, 60);
+            } else {
+                batch.setCenter(i, i, 200);
+            }
+        }
+
+        for (int frame = 0; frame < 20; frame++) {
+            batch.step(16f);
+            for (int i = 0; i < n; i++) {
+                AXWaveShape shape = expected[i];
+                shape.update(i / (float) n, 0.8f, 16f);
+                if (shape instanceof AXLineShape) {
+                    ((AXLineShape) shape).computePoints(0, 10, 400, 60, points[i]);
+                } else {
+                    ((AXBlobShape) shape).computePoints(i, 200, points[i], AXTrigTable.getDefault());
+                }
+                float[] actual = batch.getPoints(i);
+                for (int p = 0; p < points[i].length; p++) {
+                    assertEquals(points[i][p], actual[p], 0f);
+                }
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void smallBatchRunsOnTheCallingThread() {
+        AXBatchSimulation batch = new AXBatchSimulation(null);
+        batch.add(createShape(1));
+        batch.setCenter(0, 50, 50);
+        batch.step(16f);
+        assertEquals(1, batch.size());
+        assertTrue(batch.getPoints(0)[0] != 0);
+
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    private static void assertStep(AXBatchSimulation batch, int index, float dt) {
+        AXWaveShape expected = createShape(1);
+        float[] points = new float[expected.getPointCount()];
+        expected.update(0.5f, 1f, dt);
+        ((AXBlobShape) expected).computePoints(50, 50, points, AXTrigTable.getDefault());
+        float[] actual = batch.getPoints(index);
+        for (int p = 0; p < points.length; p++) {
+            assertEquals(points[p], actual[p], 0f);
+        }
+    }
+
+    @Test
+    public void instancesKeepTheirOwnElapsedTime() {
+        AXBatchSimulation batch = new AXBatchSimulation(null);
+        for (int i = 0; i < 2; i++) {
+            batch.add(createShape(1));
+            batch.setInput(i, 0.5f, 1f, i == 0 ? 32f : 48f);
+            batch.setCenter(i, 50, 50);
+        }
+        batch.step(16f);
+        assertStep(batch, 0, 32f);
+        assertStep(batch, 1, 48f);
+
+        // a cleared instance doesn't keep the time of the previous one
+        batch.clear();
+        batch.add(createShape(1));
+        batch.setInput(0, 0.5f, 1f);
+        batch.setCenter(0, 50, 50);
+        batch.step(16f);
+        assertStep(batch, 0, 16f);
+    }
+}
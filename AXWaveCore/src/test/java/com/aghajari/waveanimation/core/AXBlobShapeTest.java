@@ -0,0 +1,191 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXBlobShapeTest {
+
+    private static AXBlobShape createShape(int n) {
+        AXBlobShape shape = new AXBlobShape(n);
+        shape.setMinRadius(100);
+        shape.setMaxRadius(140);
+        shape.setSeed(3);
+        return shape;
+    }
+
+    @Test
+    public void tableMatchesExactRotation() {
+        AXBlobShape shape = createShape(8);
+        float[] table = new float[shape.getPointCount()];
+        float[] exact = new float[shape.getPointCount()];
+        for (int frame = 0; frame < 300; frame++) {
+            shape.update(0.7f, 0.8f, 16f);
+            shape.computePoints(200, 200, table, AXTrigTable.getDefault());
+            shape.computePoints(200, 200, exact, null);
+            assertArrayEquals(exact, table, 1e-3f);
+        }
+    }
+
+    @Test
+    public void pointsStayOnTheBlob() {
+        AXBlobShape shape = createShape(6);
+        float[] points = new float[shape.getPointCount()];
+        shape.update(1f, 1f, 160f);
+        shape.computePoints(0, 0, points, null);
+
+        // segment end points lie on the blob radius
+        for (int i = 0; i < shape.getBlobCount(); i++) {
+            int next = (i + 1) % shape.getBlobCount();
+            float x = points[2 + i * 6 + 4];
+            float y = points[2 + i * 6 + 5];
+            assertEquals(shape.radius(next), (float) Math.hypot(x, y), 1e-3f);
+        }
+        // closed shape
+        assertEquals(points[0], points[points.length - 2], 1e-3f);
+        assertEquals(points[1], points[points.length - 1], 1e-3f);
+    }
+
+    @Test
+    public void dtScalesProgress() {
+        AXBlobShape a = createShape(8);
+        AXBlobShape b = createShape(8);
+        a.update(0.5f, 0.8f, 8f);
+        a.update(0.5f, 0.8f, 8f);
+        b.update(0.5f, 0.8f, 16f);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(a.radius(i), b.radius(i), 1e-4f);
+        }
+    }
+
+    @Test
+    public void lineLayout() {
+        AXLineShape shape = new AXLineShape(4);
+        shape.setMinRadius(0);
+        shape.setMaxRadius(30);
+        shape.setSeed(5);
+        float[] points = new float[shape.getPointCount()];
+        assertEquals(6 * 4 + 6, points.length);
+
+        shape.computePoints(0, 100, 400, 120, points);
+        assertEquals(400f, points[0], 0f);
+        assertEquals(120f, points[1], 0f);
+        assertEquals(0f, points[2], 0f);
+        assertEquals(120f, points[3], 0f);
+        assertEquals(100f - shape.radius(0), points[5], 0f);
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(100f * i, points[6 * i + 4], 1e-4f);
+            assertEquals(100f - shape.radius(i), points[6 * i + 5], 0f);
+        }
+    }
+
+    @Test
+    public void blobCountKeepsOutline() {
+        AXBlobShape shape = createShape(8);
+        shape.ensureCapacity(16);
+        float[] state = shape.getState();
+        shape.update(1f, 1f, 160f);
+        float[] before = new float[8];
+        for (int i = 0; i < 8; i++) before[i] = shape.radius(i);
+
+        shape.setBlobCount(16);
+        assertEquals(16, shape.getBlobCount());
+        assertSame(state, shape.getState());
+        float min = Math.min(before[0], before[1]);
+        float max = Math.max(before[0], before[1]);
+        for (int i = 0; i < 16; i++) {
+            assertTrue(shape.radius(i) >= 100f && shape.radius(i) <= 140f);
+        }
+        // the new points lie between the old neighbours
+        float r = shape.radius(1);
+        assertTrue(r >= min - 1e-3f && r <= max + 1e-3f);
+
+        shape.setBlobCount(8);
+        assertEquals(8, shape.getBlobCount());
+        float[] points = new float[shape.getPointCount()];
+        shape.computePoints(0, 0, points, null);
+        assertEquals(points[0], points[points.length - 2], 1e-3f);
+        assertEquals(points[1], points[points.length - 1], 1e-3f);
+    }
+
+    @Test
+    public void lineCountKeepsEnds() {
+        AXLineShape shape = new AXLineShape(4);
+        shape.setMinRadius(0);
+        shape.setMaxRadius(30);
+        shape.setSeed(5);
+        shape.update(1f, 1f, 100f);
+        float first = shape.radius(0);
+        float last = shape.radius(4);
+
+        shape.setBlobCount(9);
+        assertEquals(9, shape.getCapacity());
+        assertEquals(6 * 9 + 6, shape.getPointCount());
+        assertEquals(first, shape.radius(0), 1e-4f);
+        assertEquals(last, shape.radius(9), 1e-4f);
+    }
+
+    @Test
+    public void capacityKeepsState() {
+        AXBlobShape shape = createShape(8);
+        shape.update(0.5f, 0.8f, 100f);
+        float[] before = new float[shape.getPointCount()];
+        shape.computePoints(0, 0, before, null);
+
+        shape.ensureCapacity(64);
+        assertEquals(64, shape.getCapacity());
+        float[] after = new float[shape.getPointCount()];
+        shape.computePoints(0, 0, after, null);
+        assertArrayEquals(before, after, 0);
+    }
+
+    @Test
+    public void spectrumPlacesTheRadii() {
+        AXBlobShape shape = createShape(4);
+        float[] levels = {0, 0.5f, 1f, 0.25f};
+        shape.setSpectrum(levels);
+        shape.update(0.5f, 0.8f, 16f);
+        assertEquals(100, shape.radius(0), 1e-4f);
+        assertEquals(120, shape.radius(1), 1e-4f);
+        assertEquals(140, shape.radius(2), 1e-4f);
+
+        // refilled in place, resampled for more points
+        levels[3] = 1f;
+        shape.setBlobCount(7);
+        shape.update(0.5f, 0.8f, 16f);
+        assertEquals(100, shape.radius(0), 1e-4f);
+        assertEquals(110, shape.radius(1), 1e-4f);
+        assertEquals(140, shape.radius(6), 1e-4f);
+
+        shape.setSpectrum(null);
+        assertNull(shape.getSpectrum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blobCountTooSmall() {
+        createShape(8).setBlobCount(2);
+    }
+
+    @Test
+    public void everyShapeComputesPointsInBounds() {
+        AXWaveShape[] shapes = {createShape(6), new AXLineShape(4)};
+        for (AXWaveShape shape : shapes) {
+            float[] points = new float[shape.getPointCount()];
+            shape.computePoints(0, 100, 400, 120, points, null);
+            for (float value : points) assertFalse(Float.isNaN(value));
+        }
+
+        AXBlobShape blob = (AXBlobShape) shapes[0];
+        float[] centered = new float[blob.getPointCount()];
+        float[] bounds = new float[blob.getPointCount()];
+        blob.computePoints(200, 110, centered, null);
+        blob.computePoints(0, 100, 400, 120, bounds, null);
+        assertArrayEquals(centered, bounds, 0f);
+
+        AXLineShape line = (AXLineShape) shapes[1];
+        float[] direct = new float[line.getPointCount()];
+        line.computePoints(0, 100, 400, 120, direct);
+        line.computePoints(0, 100, 400, 120, bounds, AXTrigTable.getDefault());
+        for (int p = 0; p < direct.length; p++) assertEquals(direct[p], bounds[p], 0f);
+    }
+}
@@ -0,0 +1,82 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXEnvelopeFollowerTest {
+
+    private static AXEnvelopeFollower follower(int mode) {
+        AXEnvelopeFollower follower = new AXEnvelopeFollower();
+        follower.setMode(mode);
+        follower.setAttack(40);
+        follower.setRelease(160);
+        return follower;
+    }
+
+    @Test
+    public void onePoleUsesTheTimeConstants() {
+        AXEnvelopeFollower follower = follower(AXEnvelopeFollower.MODE_ONE_POLE);
+        follower.setTarget(1);
+        for (int i = 0; i < 4; i++) follower.update(10);
+        assertEquals(1 - Math.exp(-1), follower.getValue(), 1e-4);
+
+        follower.snapTo(1);
+        follower.setTarget(0);
+        follower.update(160);
+        assertEquals(Math.exp(-1), follower.getValue(), 1e-4);
+    }
+
+    @Test
+    public void followsRealTimeWhateverTheFrameRate() {
+        int[] modes = {AXEnvelopeFollower.MODE_ONE_POLE, AXEnvelopeFollower.MODE_SPRING};
+        for (int mode : modes) {
+            AXEnvelopeFollower fast = follower(mode);
+            AXEnvelopeFollower slow = follower(mode);
+            fast.setTarget(0.8f);
+            slow.setTarget(0.8f);
+            for (int i = 0; i < 12; i++) fast.update(100f / 12);
+            for (int i = 0; i < 3; i++) slow.update(100f / 3);
+            assertEquals("mode " + mode, slow.getValue(), fast.getValue(), 1e-4f);
+        }
+    }
+
+    @Test
+    public void springDoesntOvershootAndSettles() {
+        AXEnvelopeFollower follower = follower(AXEnvelopeFollower.MODE_SPRING);
+        follower.setTarget(1);
+        float previous = 0;
+        for (int i = 0; i < 200 && !follower.isSettled(); i++) {
+            float value = follower.update(16);
+            assertTrue(value >= previous && value <= 1);
+            previous = value;
+        }
+        assertTrue(follower.isSettled());
+        assertEquals(1f, follower.getValue(), 0);
+    }
+
+    @Test
+    public void linearReachesTheTargetInTime() {
+        AXEnvelopeFollower follower = follower(AXEnvelopeFollower.MODE_LINEAR);
+        follower.setTarget(1);
+        follower.update(20);
+        assertEquals(0.5f, follower.getValue(), 1e-5f);
+        follower.update(20);
+        assertTrue(follower.isSettled());
+
+        follower.glideTo(0.5f, 100);
+        follower.update(50);
+        assertEquals(0.75f, follower.getValue(), 1e-5f);
+    }
+
+    @Test
+    public void burstsOnlyKeepTheLastTarget() {
+        AXEnvelopeFollower burst = follower(AXEnvelopeFollower.MODE_SPRING);
+        AXEnvelopeFollower single = follower(AXEnvelopeFollower.MODE_SPRING);
+        for (int i = 0; i < 500; i++) burst.setTarget(i % 7 / 7f);
+        single.setTarget(499 % 7 / 7f);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(single.update(16), burst.update(16), 0);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AXFftTest {
+
+    @Test
+    public void matchesDft() {
+        for (int size = 4; size <= 256; size <<= 1) {
+            Random random = new Random(size);
+            float[] data = new float[size];
+            for (int i = 0; i < size; i++) data[i] = random.nextFloat() * 2 - 1;
+            double[][] expected = dft(data);
+
+            new AXFft(size).realForward(data);
+            float tolerance = 1e-4f * size;
+            assertEquals(expected[0][0], data[0], tolerance);
+            assertEquals(expected[0][size / 2], data[1], tolerance);
+            for (int k = 1; k < size / 2; k++) {
+                assertEquals(expected[0][k], data[2 * k], tolerance);
+                assertEquals(expected[1][k], data[2 * k + 1], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void sinePeaksInItsBin() {
+        int size = 512;
+        float[] data = new float[size];
+        for (int i = 0; i < size; i++) data[i] = (float) Math.sin(2 * Math.PI * 20 * i / size);
+        AXFft fft = new AXFft(size);
+        fft.realForward(data);
+        float[] power = new float[size / 2 + 1];
+        fft.power(data, power);
+
+        int peak = 0;
+        for (int k = 1; k < power.length; k++) {
+            if (power[k] > power[peak]) peak = k;
+        }
+        assertEquals(20, peak);
+        // |X| = amplitude * size / 2 for a sine on a bin
+        assertEquals(size / 2f, (float) Math.sqrt(power[20]), 1e-2f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherSizes() {
+        new AXFft(48);
+    }
+
+    private static double[][] dft(float[] data) {
+        int n = data.length;
+        double[][] out = new double[2][n / 2 + 1];
+        for (int k = 0; k <= n / 2; k++) {
+            for (int i = 0; i < n; i++) {
+                out[0][k] += data[i] * Math.cos(2 * Math.PI * k * i / n);
+                out[1][k] -= data[i] * Math.sin(2 * Math.PI * k * i / n);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,43 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXLevelOfDetailTest {
+
+    @Test
+    public void countFollowsSize() {
+        AXLevelOfDetail lod = new AXLevelOfDetail();
+        assertEquals(8, lod.getCount(8, 1f));
+        assertEquals(4, lod.getCount(8, 0.1f));
+        assertEquals(16, lod.getCount(8, 4f));
+        assertEquals(16, lod.getCount(8, 100f));
+        assertEquals(16, lod.getMaxCount(8));
+        // never above the base count for tiny bases
+        assertEquals(3, lod.getCount(3, 0f));
+    }
+
+    @Test
+    public void budgetLowersAndRestoresCounts() {
+        AXLevelOfDetail lod = new AXLevelOfDetail();
+        assertFalse(lod.onFrameCost(10_000_000));
+        lod.setBudget(1_000_000);
+
+        assertTrue(lod.onFrameCost(2_000_000));
+        assertEquals(0.9f, lod.getCostScale(), 1e-4f);
+        // cooldown between steps
+        for (int i = 0; i < 30; i++) assertFalse(lod.onFrameCost(2_000_000));
+        assertTrue(lod.onFrameCost(2_000_000));
+        for (int i = 0; i < 200; i++) lod.onFrameCost(2_000_000);
+        assertEquals(0.5f, lod.getCostScale(), 1e-4f);
+        assertEquals(4, lod.getCount(8, 1f));
+
+        // within the hysteresis band nothing changes
+        for (int i = 0; i < 200; i++) lod.onFrameCost(800_000);
+        assertEquals(0.5f, lod.getCostScale(), 1e-4f);
+
+        for (int i = 0; i < 400; i++) lod.onFrameCost(100_000);
+        assertEquals(1f, lod.getCostScale(), 1e-4f);
+    }
+}
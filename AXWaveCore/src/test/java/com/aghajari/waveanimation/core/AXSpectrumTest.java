@@ -0,0 +1,106 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXSpectrumTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private static short[] sine(float frequency, float amplitude, int frames) {
+        short[] pcm = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            pcm[i] = (short) (amplitude * 32767 * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE));
+        }
+        return pcm;
+    }
+
+    @Test
+    public void fullScaleSineReachesOne() {
+        AXSpectrum spectrum = new AXSpectrum(1024, SAMPLE_RATE);
+        // exactly on bin 64
+        spectrum.write(sine(64 * spectrum.getBinWidth(), 1f, 1024), 0, 1024, 1);
+        float[] power = new float[spectrum.getBinCount()];
+        assertEquals(1, spectrum.copyPower(power));
+        assertEquals(1f, power[64], 0.01f);
+        assertTrue(power[200] < 1e-6f);
+    }
+
+    @Test
+    public void publishesEveryHop() {
+        AXSpectrum spectrum = new AXSpectrum(256, SAMPLE_RATE);
+        spectrum.setHop(64);
+        short[] pcm = sine(1000, 0.5f, 256 + 64 * 3);
+        spectrum.write(pcm, 0, pcm.length, 1);
+        assertEquals(4, spectrum.copyPower(new float[spectrum.getBinCount()]));
+    }
+
+    @Test
+    public void stereoIsDownMixed() {
+        short[] mono = sine(1000, 0.5f, 512);
+        short[] stereo = new short[1024];
+        for (int i = 0; i < 512; i++) stereo[2 * i] = stereo[2 * i + 1] = mono[i];
+
+        AXSpectrum a = new AXSpectrum(512, SAMPLE_RATE);
+        AXSpectrum b = new AXSpectrum(512, SAMPLE_RATE);
+        a.write(mono, 0, mono.length, 1);
+        b.write(stereo, 0, stereo.length, 2);
+        float[] pa = new float[a.getBinCount()];
+        float[] pb = new float[b.getBinCount()];
+        a.copyPower(pa);
+        b.copyPower(pb);
+        assertArrayEquals(pa, pb, 1e-6f);
+    }
+
+    @Test
+    public void bandOfTheToneIsLoudest() {
+        AXSpectrum spectrum = new AXSpectrum(1024, SAMPLE_RATE);
+        short[] pcm = sine(2000, 0.5f, 1024);
+        spectrum.write(pcm, 0, pcm.length, 1);
+        float[] power = new float[spectrum.getBinCount()];
+        spectrum.copyPower(power);
+
+        AXSpectrumBands bands = new AXSpectrumBands(8);
+        bands.setAttack(0);
+        bands.update(spectrum, power, 16);
+
+        // 50 - 8000 Hz in 8 log-spaced bands, 2000 Hz falls in the 6th
+        float[] levels = bands.getLevels();
+        int loudest = 0;
+        for (int i = 1; i < levels.length; i++) {
+            if (levels[i] > levels[loudest]) loudest = i;
+        }
+        assertEquals(5, loudest);
+        assertTrue(levels[5] > 0.8f);
+        assertEquals(0, levels[0], 1e-6f);
+    }
+
+    @Test
+    public void attackAndReleaseRunOnTime() {
+        AXSpectrum spectrum = new AXSpectrum(1024, SAMPLE_RATE);
+        short[] pcm = sine(2000, 0.5f, 1024);
+        spectrum.write(pcm, 0, pcm.length, 1);
+        float[] power = new float[spectrum.getBinCount()];
+        spectrum.copyPower(power);
+
+        AXSpectrumBands fast = new AXSpectrumBands(8);
+        AXSpectrumBands slow = new AXSpectrumBands(8);
+        fast.setAttack(0);
+        fast.update(spectrum, power, 16);
+        slow.update(spectrum, power, 8);
+        slow.update(spectrum, power, 8);
+        float target = fast.getLevels()[5];
+        assertTrue(slow.getLevels()[5] < target);
+
+        // one attack time constant: 1 - 1/e of the way
+        AXSpectrumBands timed = new AXSpectrumBands(8);
+        timed.update(spectrum, power, timed.getAttack());
+        assertEquals(target * (1 - (float) Math.exp(-1)), timed.getLevels()[5], 1e-4f);
+
+        // silence falls with the release time
+        float[] silence = new float[power.length];
+        fast.update(spectrum, silence, fast.getRelease());
+        assertEquals(target / (float) Math.E, fast.getLevels()[5], 1e-4f);
+    }
+}
@@ -0,0 +1,23 @@
+package com.aghajari.waveanimation.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AXTrigTableTest {
+
+    @Test
+    public void matchesMath() {
+        AXTrigTable table = AXTrigTable.getDefault();
+        for (float degrees = -720; degrees <= 720; degrees += 0.37f) {
+            double radians = Math.toRadians(degrees);
+            assertEquals(Math.sin(radians), table.sin(degrees), 2e-6);
+            assertEquals(Math.cos(radians), table.cos(degrees), 2e-6);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTinyTables() {
+        new AXTrigTable(2);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import com.aghajari.waveanimation.core.AXBatchSimulation;
+import com.aghajari.waveanimation.core.AXBlobShape;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link AXBatchSimulation} with the number of worker threads,
+ * threads = 0 steps the same instances sequentially on the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchSimulationBenchmark {
+
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"256", "1024"})
+    public int instances;
+
+    private ForkJoinPool pool;
+    private AXBatchSimulation batch;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(Math.max(threads, 1));
+        batch = new AXBatchSimulation(pool);
+        if (threads == 0) batch.setChunkSize(Integer.MAX_VALUE);
+        for (int i = 0; i < instances; i++) {
+            AXBlobShape shape = new AXBlobShape(8);
+            shape.setMinRadius(100);
+            shape.setMaxRadius(140);
+            shape.setSeed(i);
+            batch.add(shape);
+            batch.setInput(i, (i & 63) / 63f, 0.8f);
+            batch.setCenter(i, 200, 200);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public AXBatchSimulation step() {
+        batch.step(AXBlobShape.FRAME_TIME);
+        return batch;
+    }
+}
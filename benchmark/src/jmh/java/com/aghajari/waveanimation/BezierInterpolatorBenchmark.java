@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CubicBezierInterpolator} (Newton iterations) against {@link CubicBezierTableInterpolator}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BezierInterpolatorBenchmark {
+
+    private final static int SAMPLES = 256;
+
+    @Param({"0,0,0.58,1", "0.25,0.1,0.25,1", "0,0.8,0.2,1"})
+    public String curve;
+
+    private CubicBezierInterpolator exact;
+    private CubicBezierTableInterpolator table;
+    private final float[] input = new float[SAMPLES];
+
+    @Setup
+    public void setup() {
+        String[] values = curve.split(",");
+        float startX = Float.parseFloat(values[0]);
+        float startY = Float.parseFloat(values[1]);
+        float endX = Float.parseFloat(values[2]);
+        float endY = Float.parseFloat(values[3]);
+        exact = new CubicBezierInterpolator(startX, startY, endX, endY);
+        table = new CubicBezierTableInterpolator(startX, startY, endX, endY);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            // not aligned with the table samples
+            input[i] = (i * 0.618034f) % 1f;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float exact() {
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += exact.getInterpolation(input[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float table() {
+        float sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += table.getInterpolation(input[i]);
+        }
+        return sum;
+    }
+}
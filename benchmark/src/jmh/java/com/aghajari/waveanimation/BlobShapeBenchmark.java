@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import com.aghajari.waveanimation.core.AXBlobShape;
+import com.aghajari.waveanimation.core.AXTrigTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation step of the Android-free {@link AXBlobShape}, no Path involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BlobShapeBenchmark {
+
+    @Param({"4", "8", "12", "16", "32", "128", "512"})
+    public int blobs;
+
+    private AXBlobShape shape;
+    private float[] points;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        shape = new AXBlobShape(blobs);
+        shape.setMinRadius(100);
+        shape.setMaxRadius(140);
+        shape.setSeed(1);
+        points = new float[shape.getPointCount()];
+    }
+
+    @Benchmark
+    public float[] step() {
+        shape.update((frame++ & 63) / 63f, 0.8f, AXBlobShape.FRAME_TIME);
+        shape.computePoints(200, 200, points, AXTrigTable.getDefault());
+        return points;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Control point generation of {@link AXLineWaveDrawable}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LineWaveDrawableBenchmark {
+
+    @Param({"5", "7", "8", "16"})
+    public int segments;
+
+    private AXLineWaveDrawable drawable;
+    private final Canvas canvas = new Canvas();
+    private final Paint paint = new Paint();
+    private int frame;
+
+    @Setup
+    public void setup() {
+        drawable = new AXLineWaveDrawable(segments, 0.7f);
+        drawable.setMinRadius(0);
+        drawable.setMaxRadius(60);
+        drawable.setSeed(1);
+    }
+
+    private float nextAmplitude() {
+        return (frame++ & 63) / 63f;
+    }
+
+    @Benchmark
+    public void update() {
+        drawable.update(nextAmplitude(), -1, AXFrameClock.DEFAULT_FRAME_TIME);
+    }
+
+    @Benchmark
+    public float[] computePoints() {
+        drawable.computePoints(0, 0, 1080, 200, 0.5f);
+        return drawable.getPoints();
+    }
+
+    /**
+     * a frame of AXLineWaveView during a state transition (two passes)
+     */
+    @Benchmark
+    public long transitionFrame() {
+        float amplitude = nextAmplitude();
+        drawable.update(amplitude, -1, AXFrameClock.DEFAULT_FRAME_TIME);
+        drawable.buildPath(0, 0, 1080, 200, amplitude);
+        for (int pass = 0; pass < 2; pass++) {
+            drawable.drawPath(canvas, paint);
+        }
+        return canvas.getDrawCount();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import com.aghajari.waveanimation.core.AXSpectrum;
+import com.aghajari.waveanimation.core.AXSpectrumBands;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spectrum mode at 48 kHz: one hop of PCM through the windowed FFT,
+ * and the band aggregation a view runs per drawable and frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpectrumBenchmark {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    @Param({"512", "1024", "2048"})
+    public int size;
+
+    private AXSpectrum spectrum;
+    private AXSpectrumBands bands;
+    private short[] pcm;
+    private float[] power;
+
+    @Setup
+    public void setup() {
+        spectrum = new AXSpectrum(size, SAMPLE_RATE);
+        bands = new AXSpectrumBands(9);
+        pcm = new short[spectrum.getHop()];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (12000 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE)
+                    + 4000 * Math.sin(2 * Math.PI * 3100 * i / SAMPLE_RATE));
+        }
+        power = new float[spectrum.getBinCount()];
+        // fill the first window, every write below transforms once
+        spectrum.write(new short[size - spectrum.getHop()], 0, size - spectrum.getHop(), 1);
+    }
+
+    @Benchmark
+    public AXSpectrum hop() {
+        spectrum.write(pcm, 0, pcm.length, 1);
+        return spectrum;
+    }
+
+    @Benchmark
+    public float[] bands() {
+        spectrum.copyPower(power);
+        bands.update(spectrum, power, 16f);
+        return bands.getLevels();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import com.aghajari.waveanimation.core.AXTrigTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blob simulation and geometry of {@link AXWaveDrawable} at different blob counts,
+ * with the sin/cos table and with the exact Matrix rotation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WaveDrawableBenchmark {
+
+    @Param({"4", "8", "12", "16", "32"})
+    public int blobs;
+
+    @Param({"table", "exact"})
+    public String trig;
+
+    private AXWaveDrawable drawable;
+    private final Canvas canvas = new Canvas();
+    private final Paint paint = new Paint();
+    private int frame;
+
+    @Setup
+    public void setup() {
+        drawable = new AXWaveDrawable(blobs);
+        drawable.setMinRadius(100, true);
+        drawable.setMaxRadius(140, true);
+        drawable.setTrigTable("exact".equals(trig) ? null : AXTrigTable.getDefault());
+        drawable.setSeed(1);
+    }
+
+    private float nextAmplitude() {
+        return (frame++ & 63) / 63f;
+    }
+
+    @Benchmark
+    public void update() {
+        drawable.update(nextAmplitude(), 0.8f, AXFrameClock.DEFAULT_FRAME_TIME);
+    }
+
+    @Benchmark
+    public float[] computePoints() {
+        drawable.computePoints(200, 200);
+        return drawable.getPoints();
+    }
+
+    @Benchmark
+    public void buildPath() {
+        drawable.buildPath(200, 200);
+    }
+
+    /**
+     * a frame of AXWaveView during a state transition,
+     * the path is built once and stroked in all three passes
+     */
+    @Benchmark
+    public long transitionFrame() {
+        drawable.update(nextAmplitude(), 0.8f, AXFrameClock.DEFAULT_FRAME_TIME);
+        drawable.buildPath(200, 200);
+        for (int pass = 0; pass < 3; pass++) {
+            drawable.drawPath(canvas, paint);
+        }
+        return canvas.getDrawCount();
+    }
+
+    /**
+     * the same frame rebuilding the path in every pass, the baseline of {@link #transitionFrame()}
+     */
+    @Benchmark
+    public long transitionFrameRebuildingPaths() {
+        drawable.update(nextAmplitude(), 0.8f, AXFrameClock.DEFAULT_FRAME_TIME);
+        for (int pass = 0; pass < 3; pass++) {
+            drawable.draw(200, 200, canvas, paint);
+        }
+        return canvas.getDrawCount();
+    }
+}
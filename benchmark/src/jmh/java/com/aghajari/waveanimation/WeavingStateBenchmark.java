@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package com.aghajari.waveanimation;
+
+import android.graphics.Shader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shader movement of {@link AXWeavingState}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeavingStateBenchmark {
+
+    private AXWeavingState state;
+    private int frame;
+
+    @Setup
+    public void setup() {
+        state = AXWeavingState.create(1, new Shader());
+        state.width = 300;
+        state.height = 300;
+        state.setSeed(1);
+    }
+
+    @Benchmark
+    public float update() {
+        state.update(AXFrameClock.DEFAULT_FRAME_TIME, (frame++ & 63) / 63f);
+        return state.x;
+    }
+
+    @Benchmark
+    public void loadMatrix() {
+        state.loadMatrix();
+    }
+
+    @Benchmark
+    public void frame() {
+        state.update(AXFrameClock.DEFAULT_FRAME_TIME, (frame++ & 63) / 63f);
+        state.loadMatrix();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package android.graphics;
+
+/**
+ * JVM stand-in for the framework Canvas, only counts the calls.
+ */
+public class Canvas {
+
+    private int saveCount;
+    private long drawCount;
+
+    public int save() {
+        return ++saveCount;
+    }
+
+    public void restore() {
+        saveCount--;
+    }
+
+    public void scale(float sx, float sy, float px, float py) {
+    }
+
+    public void drawPath(Path path, Paint paint) {
+        drawCount += path.size();
+    }
+
+    public long getDrawCount() {
+        return drawCount;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package android.graphics;
+
+/**
+ * JVM stand-in for the framework Matrix, affine transforms only.
+ */
+public class Matrix {
+
+    // | a c tx |
+    // | b d ty |
+    private float a = 1, b, c, d = 1, tx, ty;
+
+    public void reset() {
+        a = d = 1;
+        b = c = tx = ty = 0;
+    }
+
+    public void setRotate(float degrees, float px, float py) {
+        double radians = Math.toRadians(degrees);
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+        a = cos;
+        b = sin;
+        c = -sin;
+        d = cos;
+        tx = px - cos * px + sin * py;
+        ty = py - sin * px - cos * py;
+    }
+
+    public boolean postTranslate(float dx, float dy) {
+        tx += dx;
+        ty += dy;
+        return true;
+    }
+
+    public boolean postScale(float sx, float sy, float px, float py) {
+        a *= sx;
+        c *= sx;
+        tx = (tx - px) * sx + px;
+        b *= sy;
+        d *= sy;
+        ty = (ty - py) * sy + py;
+        return true;
+    }
+
+    public void mapPoints(float[] pts) {
+        for (int i = 0; i + 1 < pts.length; i += 2) {
+            float x = pts[i];
+            float y = pts[i + 1];
+            pts[i] = a * x + c * y + tx;
+            pts[i + 1] = b * x + d * y + ty;
+        }
+    }
+}
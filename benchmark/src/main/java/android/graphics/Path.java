@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 - Amir Hossein Aghajari
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+
+package android.graphics;
+
+/**
+ * JVM stand-in for the framework Path,
+ * records the segments so the benchmarks pay for the data they produce.
+ */
+public class Path {
+
+    private float[] data = new float[64];
+    private int size;
+
+    public void reset() {
+        size = 0;
+    }
+
+    public void moveTo(float x, float y) {
+        add(0, x, y);
+    }
+
+    public void lineTo(float x, float y) {
+        add(1, x, y);
+    }
+
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        add(2, x1, y1);
+        add(3, x2, y2);
+        add(3, x3, y3);
+    }
+
+    public void close() {
+        add(4, 0, 0);
+    }
+
+    /**
+     * @return number of recorded floats
+     */
+    public int size() {
+        return size;
+    }
+
+    private void add(int verb, float x, float y) {
+        if (size + 3 > data.length) {
+            data = java.util.Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = verb;
+        data[size++] = x;
+        data[size++] = y;
+    }
+}